@@ -1,10 +1,12 @@
 package com.nico.turnos.config;
 
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 // import lombok.RequiredArgsConstructor; <--- BORRÁ O COMENTÁ ESTA LÍNEA
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.lang.NonNull;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -22,11 +24,18 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtService jwtService;
     private final UserDetailsService userDetailsService;
+    private final RevocacionTokens revocacionTokens;
+    // true: el usuario se arma con los claims del token (sin query); false: se busca en la base como antes
+    private final boolean principalSinEstado;
 
     // --- CONSTRUCTOR MANUAL (OBLIGATORIO PORQUE LOMBOK TE ESTÁ FALLANDO) ---
-    public JwtAuthenticationFilter(JwtService jwtService, UserDetailsService userDetailsService) {
+    public JwtAuthenticationFilter(JwtService jwtService, UserDetailsService userDetailsService,
+                                   RevocacionTokens revocacionTokens,
+                                   @Value("${jwt.stateless-principal:false}") boolean principalSinEstado) {
         this.jwtService = jwtService;
         this.userDetailsService = userDetailsService;
+        this.revocacionTokens = revocacionTokens;
+        this.principalSinEstado = principalSinEstado;
     }
     // -----------------------------------------------------------------------
 
@@ -55,12 +64,14 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         try {
             jwt = authHeader.substring(7);
-            userEmail = jwtService.extractUsername(jwt);
+            // Verifica firma y vencimiento una sola vez (si el token ya se vio, sale de la cache)
+            Claims claims = jwtService.extractAllClaims(jwt);
+            userEmail = claims.getSubject();
 
             if (userEmail != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                UserDetails userDetails = this.userDetailsService.loadUserByUsername(userEmail);
+                UserDetails userDetails = resolverUsuario(claims);
                 
-                if (jwtService.isTokenValid(jwt, userDetails)) {
+                if (userDetails != null && userEmail.equals(userDetails.getUsername())) {
                     UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
                             userDetails, null, userDetails.getAuthorities()
                     );
@@ -73,4 +84,19 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         }
         filterChain.doFilter(request, response);
     }
-}
\ No newline at end of file
+
+    private UserDetails resolverUsuario(Claims claims) {
+        // Con la lista de revocaciones atrasada no confiamos en el rol del token: vamos a la base
+        if (principalSinEstado && revocacionTokens.estaAlDia()) {
+            if (revocacionTokens.estaRevocado(claims.getSubject(), claims.getIssuedAt())) {
+                return null;
+            }
+            UsuarioAutenticado usuario = UsuarioAutenticado.desdeClaims(claims);
+            if (usuario != null) {
+                return usuario;
+            }
+            // Token viejo, sin id ni rol: caemos a la base
+        }
+        return this.userDetailsService.loadUserByUsername(claims.getSubject());
+    }
+}
@@ -1,26 +1,52 @@
 package com.nico.turnos.config;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
 import org.springframework.beans.factory.annotation.Value; // <-- Importación agregada
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 
 import java.security.Key;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 
 @Service
 public class JwtService {
 
+    static final long DURACION_TOKEN_MS = 1000L * 60 * 60 * 24; // 24 horas
+
+    // Claims que se agregan en el login para poder armar el usuario sin ir a la base
+    public static final String CLAIM_ID = "uid";
+    public static final String CLAIM_ROL = "rol";
+
     // 👇 AHORA LEE LA CLAVE DESDE LAS VARIABLES DE ENTORNO
-    @Value("${jwt.secret}")
-    private String secretKey;
+    // La clave y el parser se arman una sola vez: decodificar la clave en cada request era trabajo repetido
+    private final Key signInKey;
+    private final JwtParser parser;
+
+    // Tokens ya verificados -> sus claims. La clave es el token completo (firma incluida), así que un token
+    // adulterado nunca coincide. Cada entrada vale hasta que vence su token.
+    private final Map<String, Claims> tokensVerificados = new ConcurrentHashMap<>();
+    private final int maximoTokensEnCache;
+
+    public JwtService(@Value("${jwt.secret}") String secretKey,
+                      @Value("${jwt.cache.maximo-tokens:10000}") int maximoTokensEnCache) {
+        byte[] keyBytes = Decoders.BASE64.decode(secretKey); // Usa la variable protegida
+        this.signInKey = Keys.hmacShaKeyFor(keyBytes);
+        this.parser = Jwts.parserBuilder().setSigningKey(signInKey).build();
+        this.maximoTokensEnCache = maximoTokensEnCache;
+    }
 
     public String generateToken(UserDetails userDetails) {
         return generateToken(new HashMap<>(), userDetails);
@@ -31,43 +57,74 @@ public class JwtService {
                 .setClaims(extraClaims)
                 .setSubject(userDetails.getUsername())
                 .setIssuedAt(new Date(System.currentTimeMillis()))
-                .setExpiration(new Date(System.currentTimeMillis() + 1000 * 60 * 60 * 24)) // 24 horas
-                .signWith(getSignInKey(), SignatureAlgorithm.HS256)
+                .setExpiration(new Date(System.currentTimeMillis() + DURACION_TOKEN_MS))
+                .signWith(signInKey, SignatureAlgorithm.HS256)
                 .compact();
     }
 
+    // false si el token es de otro usuario, está vencido, mal firmado o mal formado
     public boolean isTokenValid(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return (username.equals(userDetails.getUsername())) && !isTokenExpired(token);
-    }
-
-    private boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+        try {
+            final String username = extractUsername(token);
+            return userDetails.getUsername().equals(username);
+        } catch (JwtException | IllegalArgumentException e) {
+            return false;
+        }
     }
 
     public String extractUsername(String token) {
         return extractClaim(token, Claims::getSubject);
     }
 
-    private Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
-    }
-
     public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
         final Claims claims = extractAllClaims(token);
         return claimsResolver.apply(claims);
     }
 
-    private Claims extractAllClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSignInKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+    // Verifica firma y vencimiento (una sola vez por token, después sale de la cache) y devuelve los claims.
+    // Lanza JwtException si el token no sirve.
+    public Claims extractAllClaims(String token) {
+        Claims claims = tokensVerificados.get(token);
+        if (claims != null) {
+            if (!vencido(claims)) {
+                return claims;
+            }
+            tokensVerificados.remove(token);
+            throw new ExpiredJwtException(null, claims, "El token venció");
+        }
+
+        claims = parser.parseClaimsJws(token).getBody();
+        guardarEnCache(token, claims);
+        return claims;
     }
 
-    private Key getSignInKey() {
-        byte[] keyBytes = Decoders.BASE64.decode(secretKey); // Usa la variable protegida
-        return Keys.hmacShaKeyFor(keyBytes);
+    // Los tokens vencidos no se vuelven a pedir, así que hay que barrerlos cada tanto
+    @Scheduled(fixedDelay = 5 * 60 * 1000)
+    public void limpiarTokensVencidos() {
+        tokensVerificados.values().removeIf(this::vencido);
+    }
+
+    int getTokensEnCache() {
+        return tokensVerificados.size();
+    }
+
+    private void guardarEnCache(String token, Claims claims) {
+        if (claims.getExpiration() == null) {
+            return; // Sin vencimiento no sabemos hasta cuándo guardarlo
+        }
+        // Cache llena: se saca una sola entrada cualquiera en lugar de barrer todo el mapa en cada request.
+        // Si era un token vigente, la próxima vez se vuelve a verificar; los vencidos los barre el @Scheduled.
+        if (tokensVerificados.size() >= maximoTokensEnCache) {
+            Iterator<String> tokens = tokensVerificados.keySet().iterator();
+            if (tokens.hasNext()) {
+                tokens.next();
+                tokens.remove();
+            }
+        }
+        tokensVerificados.put(token, claims);
+    }
+
+    private boolean vencido(Claims claims) {
+        return claims.getExpiration().getTime() <= System.currentTimeMillis();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,84 @@
+package com.nico.turnos.config;
+
+import com.nico.turnos.entity.TokenRevocado;
+import com.nico.turnos.repository.TokenRevocadoRepository;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Lista de usuarios cuyos tokens ya emitidos dejan de valer (se lo borró, se le cambió el rol o el email).
+// Hace falta porque con el principal armado desde el token no consultamos la base en cada request.
+// Un token queda revocado si se emitió antes (o en el mismo segundo) que la revocación: el "iat" del JWT
+// tiene precisión de segundos, así que preferimos pedir un login de más a dejar pasar uno viejo.
+// Las revocaciones se guardan en token_revocado y cada nodo las copia a memoria cada
+// jwt.revocaciones.sincronizar-ms: en el nodo que revoca vale en el acto, en los demás al siguiente ciclo.
+// Si la copia está atrasada (recién arrancó o la base no responde), estaAlDia() da false y el filtro
+// vuelve a buscar el usuario en la base en lugar de confiar en el token.
+@Component
+public class RevocacionTokens {
+
+    static final long MAXIMO_ATRASO_MS = 60_000;
+
+    private final TokenRevocadoRepository tokenRevocadoRepository;
+
+    // username -> momento de la revocación (ms)
+    private final Map<String, Long> revocados = new ConcurrentHashMap<>();
+    // Momento (ms) de la última copia completa desde la base; 0 = todavía ninguna
+    private volatile long ultimaSincronizacion;
+
+    public RevocacionTokens(TokenRevocadoRepository tokenRevocadoRepository) {
+        this.tokenRevocadoRepository = tokenRevocadoRepository;
+    }
+
+    public void revocar(String username) {
+        if (username == null) return;
+        long ahora = System.currentTimeMillis();
+        revocados.merge(username, ahora, Math::max);
+        tokenRevocadoRepository.save(new TokenRevocado(username, aFecha(ahora)));
+    }
+
+    public boolean estaRevocado(String username, Date emitidoEn) {
+        Long revocadoEn = revocados.get(username);
+        if (revocadoEn == null) return false;
+        return emitidoEn == null || emitidoEn.getTime() <= revocadoEn;
+    }
+
+    // true si la lista en memoria refleja las revocaciones de todos los nodos hasta hace poco
+    public boolean estaAlDia() {
+        return System.currentTimeMillis() - ultimaSincronizacion <= MAXIMO_ATRASO_MS;
+    }
+
+    // También corre apenas arranca la aplicación
+    @Scheduled(fixedDelayString = "${jwt.revocaciones.sincronizar-ms:10000}")
+    public void sincronizar() {
+        long ahora = System.currentTimeMillis();
+        try {
+            for (TokenRevocado revocado : tokenRevocadoRepository.findByRevocadoEnAfter(
+                    aFecha(ahora - JwtService.DURACION_TOKEN_MS))) {
+                long revocadoEn = revocado.getRevocadoEn().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+                revocados.merge(revocado.getUsername(), revocadoEn, Math::max);
+            }
+            ultimaSincronizacion = ahora;
+        } catch (RuntimeException e) {
+            System.err.println("❌ No se pudieron leer las revocaciones de tokens: " + e.getMessage());
+        }
+    }
+
+    // Pasada la vida de un token, todos los emitidos antes de la revocación ya vencieron solos
+    @Scheduled(fixedDelay = 60 * 60 * 1000)
+    public void limpiar() {
+        long limite = System.currentTimeMillis() - JwtService.DURACION_TOKEN_MS;
+        revocados.values().removeIf(revocadoEn -> revocadoEn < limite);
+        tokenRevocadoRepository.borrarAnterioresA(aFecha(limite));
+    }
+
+    private static LocalDateTime aFecha(long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+    }
+}
@@ -1,5 +1,7 @@
 package com.nico.turnos.config;
 
+import com.nico.turnos.controller.TurnoController;
+import com.nico.turnos.entity.Rol;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
@@ -37,6 +39,9 @@ public class SecurityConfiguration {
                 // 👇 ACÁ AGREGAMOS "/health" A LA LISTA DE PERMITIDOS
                 .requestMatchers("/auth/**", "/h2-console/**", "/chat/**", "/uploads/**", "/health").permitAll()
                 .requestMatchers(HttpMethod.OPTIONS, "/**").permitAll()
+                // Datos personales de todos los usuarios (DNI, teléfono, email) y los turnos de toda la clínica
+                // (paciente, email, motivo): solo el admin
+                .requestMatchers("/api/reportes/usuarios.csv", "/api/reportes/turnos.csv").hasAuthority(Rol.ADMIN.name())
                 .anyRequest().authenticated()
             )
             .sessionManagement(sess -> sess.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
@@ -60,6 +65,8 @@ public class SecurityConfiguration {
         // 2. Permitimos todos los métodos y headers
         configuration.setAllowedMethods(List.of("GET", "POST", "PUT", "DELETE", "OPTIONS", "PATCH"));
         configuration.setAllowedHeaders(List.of("Authorization", "Content-Type", "X-Requested-With", "Accept", "Origin"));
+        // Para que el navegador deje leer el token de la página siguiente de GET /turnos
+        configuration.setExposedHeaders(List.of(TurnoController.ENCABEZADO_SIGUIENTE_TOKEN));
         
         // 3. Importante para que el JWT pase de un lado al otro
         configuration.setAllowCredentials(true);
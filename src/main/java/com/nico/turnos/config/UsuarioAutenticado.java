@@ -0,0 +1,52 @@
+package com.nico.turnos.config;
+
+import com.nico.turnos.entity.Rol;
+import io.jsonwebtoken.Claims;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Collection;
+import java.util.List;
+
+// Usuario logueado armado solo con los datos del token (id, email y rol), sin ir a la base.
+// Las autoridades son las mismas que devuelve Usuario, así que la seguridad se comporta igual.
+public class UsuarioAutenticado implements UserDetails {
+
+    private final Long id;
+    private final String username;
+    private final Rol rol;
+
+    public UsuarioAutenticado(Long id, String username, Rol rol) {
+        this.id = id;
+        this.username = username;
+        this.rol = rol;
+    }
+
+    // null si el token es de antes de que agregáramos estos claims (hay que buscar el usuario en la base)
+    public static UsuarioAutenticado desdeClaims(Claims claims) {
+        Object id = claims.get(JwtService.CLAIM_ID);
+        Object rol = claims.get(JwtService.CLAIM_ROL);
+        if (!(id instanceof Number) || !(rol instanceof String) || claims.getSubject() == null) {
+            return null;
+        }
+        try {
+            return new UsuarioAutenticado(((Number) id).longValue(), claims.getSubject(), Rol.valueOf((String) rol));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    public Long getId() { return id; }
+    public Rol getRol() { return rol; }
+
+    @Override public String getUsername() { return username; }
+    @Override public String getPassword() { return null; }
+    @Override public Collection<? extends GrantedAuthority> getAuthorities() { return List.of(new SimpleGrantedAuthority(rol.name())); }
+    @Override public boolean isAccountNonExpired() { return true; }
+    @Override public boolean isAccountNonLocked() { return true; }
+    @Override public boolean isCredentialsNonExpired() { return true; }
+    // Al token solo se llega con la cuenta habilitada (login y verificación de email). Si después se borra la
+    // cuenta o se le cambia el rol, lo corta RevocacionTokens, que está en la base y la ven todos los nodos
+    @Override public boolean isEnabled() { return true; }
+}
@@ -7,6 +7,7 @@ import com.nico.turnos.dto.RegisterRequest;
 import com.nico.turnos.entity.Rol;
 import com.nico.turnos.entity.Usuario;
 import com.nico.turnos.repository.UsuarioRepository;
+import com.nico.turnos.service.CatalogoMedicosService;
 import com.nico.turnos.service.EmailService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -27,13 +28,16 @@ public class AuthController {
     private final PasswordEncoder passwordEncoder;
     private final JwtService jwtService;
     private final EmailService emailService;
+    private final CatalogoMedicosService catalogoMedicosService;
 
-    public AuthController(AuthenticationManager authenticationManager, UsuarioRepository usuarioRepository, PasswordEncoder passwordEncoder, JwtService jwtService, EmailService emailService) {
+    public AuthController(AuthenticationManager authenticationManager, UsuarioRepository usuarioRepository, PasswordEncoder passwordEncoder, JwtService jwtService, EmailService emailService,
+                          CatalogoMedicosService catalogoMedicosService) {
         this.authenticationManager = authenticationManager;
         this.usuarioRepository = usuarioRepository;
         this.passwordEncoder = passwordEncoder;
         this.jwtService = jwtService;
         this.emailService = emailService;
+        this.catalogoMedicosService = catalogoMedicosService;
     }
 
     @PostMapping("/login")
@@ -47,7 +51,9 @@ public class AuthController {
         }
 
         Usuario user = usuarioRepository.findByUsername(request.getUsername()).orElseThrow();
-        String token = jwtService.generateToken(user);
+        // Id y rol viajan en el token para no tener que buscar al usuario en cada request
+        String token = jwtService.generateToken(
+                Map.of(JwtService.CLAIM_ID, user.getId(), JwtService.CLAIM_ROL, user.getRol().name()), user);
         return ResponseEntity.ok(new AuthResponse(token, user.getRol().name()));
     }
 
@@ -81,16 +87,14 @@ public class AuthController {
         } else {
             user.setEnabled(true); 
             usuarioRepository.save(user);
+            catalogoMedicosService.invalidarProfesionales();
             return ResponseEntity.ok("Usuario " + request.getRol() + " creado y activado correctamente.");
         }
     }
 
     @GetMapping("/verify-account")
     public ResponseEntity<?> verifyAccount(@RequestParam String token) {
-        Usuario usuario = usuarioRepository.findAll().stream()
-                .filter(u -> token.equals(u.getVerificationCode()))
-                .findFirst()
-                .orElse(null);
+        Usuario usuario = usuarioRepository.findFirstByVerificationCodeAndEnabledFalse(token).orElse(null);
 
         if (usuario == null) {
             return ResponseEntity.badRequest().body("Código inválido.");
@@ -1,41 +1,144 @@
 package com.nico.turnos.controller;
 
 import com.nico.turnos.service.GeminiService;
+import com.nico.turnos.service.SesionChatService;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
 
 @RestController
 @RequestMapping("/chat")
 @CrossOrigin(origins = "http://localhost:5173") 
 public class ChatController {
 
+    // Tiempo máximo de una respuesta en streaming (después se corta aunque el modelo siga generando)
+    private static final long TIMEOUT_STREAM_MS = 120_000;
+
     private final GeminiService geminiService;
+    private final SesionChatService sesionChatService;
 
-    public ChatController(GeminiService geminiService) {
+    public ChatController(GeminiService geminiService, SesionChatService sesionChatService) {
         this.geminiService = geminiService;
+        this.sesionChatService = sesionChatService;
     }
 
+    // Dos formas de mandar la pregunta:
+    //   {"mensaje": "...", "sesionId": "..."}  -> el historial lo guarda el servidor (sesionId vuelve en la respuesta;
+    //                                             si falta o venció se abre una sesión nueva)
+    //   {"historial": [...]}                   -> el cliente manda la conversación entera (forma anterior)
     @PostMapping("/preguntar")
     public ResponseEntity<Map<String, String>> preguntar(@RequestBody Map<String, Object> request) {
         Map<String, String> response = new HashMap<>();
         try {
             // Atrapamos el contexto y el historial (que ahora es una lista)
             String contexto = (String) request.getOrDefault("contexto", "No hay información del paciente.");
-            
-            @SuppressWarnings("unchecked")
-            List<Map<String, String>> historial = (List<Map<String, String>>) request.get("historial");
-            
-            // Le pasamos el historial completo al servicio
-            String respuestaIA = geminiService.preguntarAGemini(historial, contexto);
-            
-            response.put("respuesta", respuestaIA); 
+            SesionChatService.Conversacion conversacion = conversacion(request);
+
+            String respuestaIA = geminiService.preguntarAGemini(conversacion.historial(), contexto);
+
+            if (conversacion.sesionId() != null) {
+                if (GeminiService.esRespuestaDelModelo(respuestaIA)) {
+                    sesionChatService.agregarRespuesta(conversacion.sesionId(), respuestaIA);
+                }
+                response.put("sesionId", conversacion.sesionId());
+            }
+            response.put("respuesta", respuestaIA);
             return ResponseEntity.ok(response);
         } catch (Exception e) {
             response.put("respuesta", "Error del sistema: " + e.getMessage());
             return ResponseEntity.ok(response); 
         }
     }
-}
\ No newline at end of file
+
+    // Misma entrada que /preguntar, pero la respuesta va llegando como eventos SSE:
+    //   event: fragmento  data: {"texto": "..."}   (uno por cada pedazo que manda el modelo)
+    //   event: fin        data: {"respuesta": "..."} (el texto completo, más "sesionId" si se usó una sesión)
+    //   event: error      data: {"respuesta": "..."}
+    // El hilo del servlet se libera enseguida; los fragmentos se mandan desde el cliente HTTP asíncrono.
+    @PostMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter preguntarEnStreaming(@RequestBody Map<String, Object> request) {
+        SseEmitter emitter = new SseEmitter(TIMEOUT_STREAM_MS);
+
+        // Un pedido inválido (mensaje vacío o muy largo, historial mal armado) se contesta con un evento
+        // "error", igual que /preguntar responde con un cuerpo, en vez de salir como un 500 sin eventos
+        String contexto;
+        SesionChatService.Conversacion conversacion;
+        try {
+            contexto = (String) request.getOrDefault("contexto", "No hay información del paciente.");
+            conversacion = conversacion(request);
+        } catch (RuntimeException e) {
+            enviarError(emitter, "Error del sistema: " + e.getMessage());
+            return emitter;
+        }
+        String sesionId = conversacion.sesionId();
+
+        CompletableFuture<String> respuesta = geminiService.preguntarEnStreaming(conversacion.historial(), contexto, fragmento -> {
+            try {
+                emitter.send(SseEmitter.event().name("fragmento").data(Map.of("texto", fragmento), MediaType.APPLICATION_JSON));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e); // El cliente se fue: corta la descarga del modelo
+            }
+        });
+
+        respuesta.whenComplete((texto, error) -> {
+            if (error != null) {
+                System.err.println("❌ Error en el chat en streaming: " + error.getMessage());
+                enviarError(emitter, "El asistente virtual no está disponible en este momento.");
+                return;
+            }
+            try {
+                Map<String, String> fin = new HashMap<>();
+                fin.put("respuesta", texto);
+                if (sesionId != null) {
+                    // Se guarda aunque el cliente ya no esté: la respuesta se generó entera
+                    sesionChatService.agregarRespuesta(sesionId, texto);
+                    fin.put("sesionId", sesionId);
+                }
+                emitter.send(SseEmitter.event().name("fin").data(fin, MediaType.APPLICATION_JSON));
+                emitter.complete();
+            } catch (IOException | IllegalStateException e) {
+                // La conexión ya estaba cerrada (timeout o el cliente se fue)
+            }
+        });
+
+        // Si se corta del lado del cliente o vence el tiempo, dejamos de esperar al modelo
+        // (el timeout es un modelo que no terminó a tiempo y cuenta como falla de Groq; la desconexión no)
+        emitter.onTimeout(() -> respuesta.completeExceptionally(
+                new TimeoutException("Groq no terminó la respuesta en " + TIMEOUT_STREAM_MS + " ms")));
+        emitter.onError(e -> respuesta.cancel(true));
+        return emitter;
+    }
+
+    private static void enviarError(SseEmitter emitter, String mensaje) {
+        try {
+            emitter.send(SseEmitter.event().name("error").data(Map.of("respuesta", mensaje), MediaType.APPLICATION_JSON));
+            emitter.complete();
+        } catch (IOException | IllegalStateException e) {
+            // La conexión ya estaba cerrada (timeout o el cliente se fue)
+        }
+    }
+
+    @DeleteMapping("/sesion/{sesionId}")
+    public ResponseEntity<Void> cerrarSesion(@PathVariable String sesionId) {
+        sesionChatService.cerrar(sesionId);
+        return ResponseEntity.noContent().build();
+    }
+
+    // Con "mensaje" el historial sale de la sesión del servidor (ya recortado); si no, se usa el que mandó el cliente
+    @SuppressWarnings("unchecked")
+    private SesionChatService.Conversacion conversacion(Map<String, Object> request) {
+        if (request.containsKey("mensaje")) {
+            return sesionChatService.agregarPregunta((String) request.get("sesionId"), (String) request.get("mensaje"));
+        }
+        return new SesionChatService.Conversacion(null, (List<Map<String, String>>) request.get("historial"));
+    }
+}
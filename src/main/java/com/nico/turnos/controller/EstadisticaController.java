@@ -1,10 +1,20 @@
 package com.nico.turnos.controller;
 
 import com.nico.turnos.dto.EstadisticaDTO;
-import com.nico.turnos.repository.TurnoRepository;
+import com.nico.turnos.dto.PuntoSerieDTO;
+import com.nico.turnos.dto.ResultadoRecordatoriosDTO;
+import com.nico.turnos.service.EstadisticaDiariaService;
+import com.nico.turnos.service.CacheDeRespuestasChat;
+import com.nico.turnos.service.ClienteHttpExterno;
+import com.nico.turnos.service.ClientesHttpExternos;
+import com.nico.turnos.service.EstadisticaService;
+import com.nico.turnos.service.GeminiService;
+import com.nico.turnos.service.RecordatorioService;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -14,17 +24,80 @@ import java.util.Map;
 @CrossOrigin(origins = "http://localhost:5173")
 public class EstadisticaController {
 
-    private final TurnoRepository turnoRepository;
+    private static final int DIAS_DASHBOARD = EstadisticaService.DIAS_POR_DIA;
 
-    public EstadisticaController(TurnoRepository turnoRepository) {
-        this.turnoRepository = turnoRepository;
+    private static final int DIAS_SERIE_DEFECTO = 30;
+
+    private final EstadisticaService estadisticaService;
+    private final EstadisticaDiariaService estadisticaDiariaService;
+    private final RecordatorioService recordatorioService;
+    private final GeminiService geminiService;
+    private final ClientesHttpExternos clientesHttp;
+
+    public EstadisticaController(EstadisticaService estadisticaService,
+                                 EstadisticaDiariaService estadisticaDiariaService,
+                                 RecordatorioService recordatorioService,
+                                 GeminiService geminiService,
+                                 ClientesHttpExternos clientesHttp) {
+        this.estadisticaService = estadisticaService;
+        this.estadisticaDiariaService = estadisticaDiariaService;
+        this.recordatorioService = recordatorioService;
+        this.geminiService = geminiService;
+        this.clientesHttp = clientesHttp;
     }
 
+    // Se arma con los contadores en memoria, no consulta la tabla de turnos
     @GetMapping("/dashboard")
     public ResponseEntity<Map<String, List<EstadisticaDTO>>> getDashboardData() {
+        LocalDate hoy = LocalDate.now();
         Map<String, List<EstadisticaDTO>> data = new HashMap<>();
-        data.put("especialidades", turnoRepository.conteoPorEspecialidad());
-        data.put("asistencia", turnoRepository.conteoPorAsistencia());
+        data.put("especialidades", estadisticaService.conteoPorEspecialidad());
+        data.put("asistencia", estadisticaService.conteoPorAsistencia());
+        data.put("medicos", estadisticaService.conteoPorMedico());
+        data.put("ultimosDias", estadisticaService.conteoPorDia(hoy.minusDays(DIAS_DASHBOARD - 1), hoy));
         return ResponseEntity.ok(data);
     }
-}
\ No newline at end of file
+
+    // Serie de tiempo desde la tabla de resumen: /api/stats/series?granularidad=semana&desde=2025-01-01&medicoId=3
+    // Sin fechas devuelve los últimos 30 días.
+    @GetMapping("/series")
+    public ResponseEntity<List<PuntoSerieDTO>> getSerie(
+            @RequestParam(defaultValue = "dia") String granularidad,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta,
+            @RequestParam(required = false) Long medicoId,
+            @RequestParam(required = false) String especialidad) {
+        LocalDate fin = hasta != null ? hasta : LocalDate.now();
+        LocalDate inicio = desde != null ? desde : fin.minusDays(DIAS_SERIE_DEFECTO - 1);
+        return ResponseEntity.ok(estadisticaDiariaService.serie(
+                EstadisticaDiariaService.granularidad(granularidad), inicio, fin, medicoId, especialidad));
+    }
+
+    // Métricas de la última corrida del job de recordatorios que procesó turnos (204 si ninguna procesó nada todavía)
+    @GetMapping("/recordatorios")
+    public ResponseEntity<ResultadoRecordatoriosDTO> getUltimosRecordatorios() {
+        ResultadoRecordatoriosDTO resultado = recordatorioService.getUltimaEjecucion();
+        return resultado != null ? ResponseEntity.ok(resultado) : ResponseEntity.noContent().build();
+    }
+
+    // Uso de la cache de respuestas del chatbot en esta instancia (desde que arrancó)
+    @GetMapping("/chat-cache")
+    public ResponseEntity<Map<String, Object>> getCacheChat() {
+        CacheDeRespuestasChat cache = geminiService.getCacheRespuestas();
+        long aciertos = cache.getAciertos();
+        long consultas = aciertos + cache.getFallos();
+        Map<String, Object> data = new HashMap<>();
+        data.put("entradas", cache.getCantidad());
+        data.put("aciertos", aciertos);
+        data.put("fallos", cache.getFallos());
+        data.put("omitidas", cache.getOmitidas());
+        data.put("tasaAciertos", consultas == 0 ? 0.0 : (double) aciertos / consultas);
+        return ResponseEntity.ok(data);
+    }
+
+    // Llamadas a APIs externas por destino en esta instancia: estado del circuito, en curso, fallas, rechazos y latencia
+    @GetMapping("/http-externo")
+    public ResponseEntity<List<ClienteHttpExterno.Metricas>> getHttpExterno() {
+        return ResponseEntity.ok(clientesHttp.metricas());
+    }
+}
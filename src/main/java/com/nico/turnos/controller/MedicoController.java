@@ -1,16 +1,20 @@
 package com.nico.turnos.controller;
 
+import com.nico.turnos.dto.ProfesionalDTO;
+import com.nico.turnos.dto.SlotDisponibleDTO;
 import com.nico.turnos.entity.Medico;
 import com.nico.turnos.repository.MedicoRepository;
-import com.nico.turnos.repository.TurnoRepository;
+import com.nico.turnos.service.CatalogoMedicosService;
+import com.nico.turnos.service.DisponibilidadService;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.LocalDate;
-import java.time.LocalDateTime;
 import java.time.LocalTime;
-import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/medicos")
@@ -18,54 +22,86 @@ import java.util.stream.Collectors;
 public class MedicoController {
 
     private final MedicoRepository medicoRepository;
-    private final TurnoRepository turnoRepository;
+    private final DisponibilidadService disponibilidadService;
+    private final CatalogoMedicosService catalogoMedicosService;
 
-    public MedicoController(MedicoRepository medicoRepository, TurnoRepository turnoRepository) {
+    public MedicoController(MedicoRepository medicoRepository, DisponibilidadService disponibilidadService,
+                            CatalogoMedicosService catalogoMedicosService) {
         this.medicoRepository = medicoRepository;
-        this.turnoRepository = turnoRepository;
+        this.disponibilidadService = disponibilidadService;
+        this.catalogoMedicosService = catalogoMedicosService;
     }
 
     @PostMapping
     public Medico crearMedico(@RequestBody Medico medico) {
-        return medicoRepository.save(medico);
+        Medico guardado = medicoRepository.save(medico);
+        catalogoMedicosService.invalidarMedicos();
+        return guardado;
     }
 
-    // 1. Listar todos los médicos
+    // 1. Listar todos los médicos (desde la cache; 304 si el navegador ya tiene esta versión)
     @GetMapping
-    public List<Medico> listarMedicos() {
-        return medicoRepository.findAll();
+    public ResponseEntity<List<Medico>> listarMedicos(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return responderCatalogo(catalogoMedicosService.medicos(), ifNoneMatch);
     }
 
-    // 2. Devuelve los horarios DISPONIBLES
+    // Usuarios con rol MEDICO (los que atienden turnos), con la misma cache y ETag
+    @GetMapping("/profesionales")
+    public ResponseEntity<List<ProfesionalDTO>> listarProfesionales(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return responderCatalogo(catalogoMedicosService.profesionales(), ifNoneMatch);
+    }
+
+    // 2. Devuelve los horarios DISPONIBLES (sale del índice en memoria, sin ir a la base)
     @GetMapping("/{id}/disponibilidad")
     public List<LocalTime> obtenerHorariosDisponibles(
             @PathVariable Long id,
-            @RequestParam String fecha) { // YYYY-MM-DD
-
-        LocalDate fechaConsultada = LocalDate.parse(fecha);
+            @RequestParam String fecha, // YYYY-MM-DD
+            @RequestParam(defaultValue = "30") int duracion) { // minutos de la consulta
 
-        // A. Definimos el horario de trabajo (9:00 a 17:00)
-        LocalTime inicio = LocalTime.of(9, 0);
-        LocalTime fin = LocalTime.of(17, 0);
+        return disponibilidadService.horariosDisponibles(id, LocalDate.parse(fecha), duracion);
+    }
 
-        // B. Generamos slots cada 30 min
-        List<LocalTime> slotsPosibles = new ArrayList<>();
-        while (inicio.isBefore(fin)) {
-            slotsPosibles.add(inicio);
-            inicio = inicio.plusMinutes(30);
+    // 3. Próximos turnos libres entre todos los médicos de una especialidad
+    // Ej: /medicos/disponibilidad/proximos?especialidad=Cardiología&desde=2025-03-10&dias=14&cantidad=10
+    @GetMapping("/disponibilidad/proximos")
+    public ResponseEntity<?> buscarProximosLibres(
+            @RequestParam String especialidad,
+            @RequestParam(required = false) String desde, // YYYY-MM-DD, por defecto hoy
+            @RequestParam(defaultValue = "14") int dias,
+            @RequestParam(defaultValue = "10") int cantidad) {
+        try {
+            LocalDate inicio = desde != null ? LocalDate.parse(desde) : LocalDate.now();
+            List<SlotDisponibleDTO> libres = disponibilidadService.buscarProximosLibres(
+                    especialidad, inicio, inicio.plusDays(Math.max(dias, 1) - 1), cantidad);
+            return ResponseEntity.ok(libres);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
         }
+    }
 
-        // C. Buscamos ocupados (Pasamos el ID y la FECHA DIRECTAMENTE)
-        List<LocalDateTime> turnosOcupados = turnoRepository.findHorariosOcupados(id, fechaConsultada);
-
-        // Convertimos a solo hora
-        List<LocalTime> horariosOcupados = turnosOcupados.stream()
-                .map(LocalDateTime::toLocalTime)
-                .collect(Collectors.toList());
-
-        // D. Restamos
-        slotsPosibles.removeAll(horariosOcupados);
+    private <T> ResponseEntity<List<T>> responderCatalogo(CatalogoMedicosService.Catalogo<T> catalogo, String ifNoneMatch) {
+        // no-cache: el navegador puede guardarlo pero tiene que preguntar (y casi siempre recibe 304)
+        if (coincideEtag(ifNoneMatch, catalogo.etag())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(catalogo.etag())
+                    .cacheControl(CacheControl.noCache())
+                    .build();
+        }
+        return ResponseEntity.ok()
+                .eTag(catalogo.etag())
+                .cacheControl(CacheControl.noCache())
+                .body(catalogo.datos());
+    }
 
-        return slotsPosibles;
+    private static boolean coincideEtag(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) return false;
+        for (String candidato : ifNoneMatch.split(",")) {
+            String valor = candidato.trim();
+            if (valor.startsWith("W/")) valor = valor.substring(2);
+            if (valor.equals(etag) || valor.equals("*")) return true;
+        }
+        return false;
     }
-}
\ No newline at end of file
+}
@@ -1,17 +1,18 @@
 package com.nico.turnos.controller;
 
 import com.nico.turnos.service.ReporteService;
-import org.springframework.core.io.InputStreamResource;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.io.ByteArrayInputStream;
-import java.io.IOException;
+import java.time.LocalDate;
 
 @RestController
 @RequestMapping("/api/reportes")
@@ -25,8 +26,9 @@ public class ReporteController {
     }
 
     @GetMapping("/excel")
-    public ResponseEntity<InputStreamResource> descargarExcel() throws IOException {
-        ByteArrayInputStream in = reporteService.generarExcelCompleto();
+    public ResponseEntity<StreamingResponseBody> descargarExcel() {
+        // El Excel se va escribiendo directo en la respuesta mientras se lee la base
+        StreamingResponseBody cuerpo = out -> reporteService.escribirExcelCompleto(out);
         
         HttpHeaders headers = new HttpHeaders();
         // Le indicamos al navegador que esto es un archivo descargable
@@ -36,6 +38,35 @@ public class ReporteController {
                 .ok()
                 .headers(headers)
                 .contentType(MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"))
-                .body(new InputStreamResource(in));
+                .body(cuerpo);
+    }
+
+    // CSV de turnos, opcionalmente filtrado por fecha y comprimido: /api/reportes/turnos.csv?desde=2025-01-01&hasta=2025-12-31&gzip=true
+    @GetMapping("/turnos.csv")
+    public ResponseEntity<StreamingResponseBody> descargarCsvTurnos(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta,
+            @RequestParam(defaultValue = "false") boolean gzip) {
+        LocalDate inicio = desde != null ? desde : LocalDate.of(1900, 1, 1);
+        LocalDate fin = hasta != null ? hasta : LocalDate.of(3000, 1, 1);
+
+        StreamingResponseBody cuerpo = out -> reporteService.escribirCsvTurnos(
+                out, inicio.atStartOfDay(), fin.plusDays(1).atStartOfDay(), gzip);
+        return respuestaCsv("turnos", gzip, cuerpo);
+    }
+
+    @GetMapping("/usuarios.csv")
+    public ResponseEntity<StreamingResponseBody> descargarCsvUsuarios(@RequestParam(defaultValue = "false") boolean gzip) {
+        StreamingResponseBody cuerpo = out -> reporteService.escribirCsvUsuarios(out, gzip);
+        return respuestaCsv("usuarios", gzip, cuerpo);
+    }
+
+    private ResponseEntity<StreamingResponseBody> respuestaCsv(String nombre, boolean gzip, StreamingResponseBody cuerpo) {
+        String archivo = nombre + (gzip ? ".csv.gz" : ".csv");
+        return ResponseEntity
+                .ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + archivo)
+                .contentType(gzip ? MediaType.parseMediaType("application/gzip") : MediaType.parseMediaType("text/csv; charset=UTF-8"))
+                .body(cuerpo);
     }
 }
\ No newline at end of file
@@ -1,16 +1,24 @@
 package com.nico.turnos.controller;
 
+import com.nico.turnos.dto.TurnoPaginaResponse;
 import com.nico.turnos.dto.TurnoRequest;
 import com.nico.turnos.dto.TurnoResponse;
 import com.nico.turnos.entity.Turno;
 import com.nico.turnos.repository.TurnoRepository;
 import com.nico.turnos.service.ReporteService;
 import com.nico.turnos.service.TurnoService;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.AccessDeniedException;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @RestController
@@ -18,6 +26,8 @@ import java.util.List;
 @CrossOrigin(origins = "http://localhost:5173")
 public class TurnoController {
 
+    public static final String ENCABEZADO_SIGUIENTE_TOKEN = "X-Siguiente-Token";
+
     // Solo necesitamos estos 3 servicios ahora:
     private final TurnoService turnoService;
     private final ReporteService reporteService;
@@ -30,9 +40,33 @@ public class TurnoController {
         this.turnoRepository = turnoRepository;
     }
 
+    // Sigue devolviendo la lista de siempre. Si el listado tiene más páginas (admin) el token para pedir la
+    // siguiente va en el header X-Siguiente-Token: /turnos/pagina?token=<token>
     @GetMapping
-    public List<TurnoResponse> listar() {
-        return turnoService.listar();
+    public ResponseEntity<List<TurnoResponse>> listar() {
+        TurnoPaginaResponse pagina = turnoService.listar();
+        ResponseEntity.BodyBuilder respuesta = ResponseEntity.ok();
+        if (pagina.siguienteToken() != null) {
+            respuesta.header(ENCABEZADO_SIGUIENTE_TOKEN, pagina.siguienteToken());
+        }
+        return respuesta.body(pagina.turnos());
+    }
+
+    // Listado paginado con filtros: /turnos/pagina?desde=...&hasta=...&medicoId=...&especialidad=...&token=...
+    @GetMapping("/pagina")
+    public ResponseEntity<?> listarPagina(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime desde,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime hasta,
+            @RequestParam(required = false) Long medicoId,
+            @RequestParam(required = false) String especialidad,
+            @RequestParam(required = false) String token,
+            @RequestParam(required = false) Integer size) {
+        try {
+            TurnoPaginaResponse pagina = turnoService.listarPagina(desde, hasta, medicoId, especialidad, token, size);
+            return ResponseEntity.ok(pagina);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
     }
 
     @PostMapping
@@ -62,16 +96,57 @@ public class TurnoController {
     }
 
     // --- NUEVO ENDPOINT PDF ---
+    // Todos los PDFs de un médico en un rango de días, en un solo zip: /turnos/pdf/lote?desde=2025-03-10
+    // El médico logueado siempre recibe los suyos; el admin indica medicoId.
+    @GetMapping("/pdf/lote")
+    public ResponseEntity<StreamingResponseBody> descargarPdfLote(
+            @RequestParam(required = false) Long medicoId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta) {
+        // Resolvemos permisos y turnos acá, antes de empezar a mandar bytes
+        List<Turno> turnos;
+        try {
+            turnos = turnoService.turnosParaLotePdf(medicoId, desde, hasta);
+        } catch (AccessDeniedException e) {
+            return mensajeDeError(HttpStatus.FORBIDDEN, e.getMessage());
+        } catch (RuntimeException e) {
+            return mensajeDeError(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+
+        StreamingResponseBody cuerpo = out -> reporteService.escribirZipReportes(turnos, out);
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=turnos_" + desde + ".zip")
+                .contentType(MediaType.parseMediaType("application/zip"))
+                .body(cuerpo);
+    }
+
+    // El endpoint del lote devuelve un StreamingResponseBody (Spring lo elige por el tipo declarado),
+    // así que el mensaje de error también va como uno, en texto plano
+    private static ResponseEntity<StreamingResponseBody> mensajeDeError(HttpStatus status, String mensaje) {
+        byte[] cuerpo = mensaje.getBytes(StandardCharsets.UTF_8);
+        return ResponseEntity.status(status)
+                .contentType(new MediaType(MediaType.TEXT_PLAIN, StandardCharsets.UTF_8))
+                .body(out -> out.write(cuerpo));
+    }
+
     @GetMapping("/{id}/pdf")
-    public ResponseEntity<byte[]> descargarPdf(@PathVariable Long id) {
+    public ResponseEntity<byte[]> descargarPdf(@PathVariable Long id,
+                                               @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         Turno turno = turnoRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Turno no encontrado"));
 
+        // Si el navegador ya tiene esta misma versión del PDF, no lo mandamos de nuevo
+        String etag = "\"" + reporteService.huellaReporte(turno) + "\"";
+        if (etag.equals(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+
         byte[] pdfBytes = reporteService.generarReporteTurno(turno);
 
         return ResponseEntity.ok()
                 .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=turno_" + id + ".pdf")
+                .eTag(etag)
                 .contentType(MediaType.APPLICATION_PDF)
                 .body(pdfBytes);
     }
-}
\ No newline at end of file
+}
@@ -1,13 +1,16 @@
 package com.nico.turnos.controller;
 
+import com.nico.turnos.config.RevocacionTokens;
 import com.nico.turnos.dto.PasswordUpdateRequest;
 import com.nico.turnos.entity.Rol;
 import com.nico.turnos.entity.Usuario;
 import com.nico.turnos.repository.UsuarioRepository;
 import com.nico.turnos.service.ArchivoService; 
+import com.nico.turnos.service.CatalogoMedicosService;
 import com.nico.turnos.service.EmailService;
+import com.nico.turnos.service.PerfilMedicoService;
+import com.nico.turnos.service.UsuarioActual;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.*;
 import java.util.List;
@@ -21,12 +24,23 @@ public class UsuarioController {
     private final PasswordEncoder passwordEncoder;
     private final EmailService emailService;
     private final ArchivoService archivoService; 
+    private final RevocacionTokens revocacionTokens;
+    private final UsuarioActual usuarioActual;
+    private final PerfilMedicoService perfilMedicoService;
+    private final CatalogoMedicosService catalogoMedicosService;
 
-    public UsuarioController(UsuarioRepository usuarioRepository, PasswordEncoder passwordEncoder, EmailService emailService, ArchivoService archivoService) {
+    public UsuarioController(UsuarioRepository usuarioRepository, PasswordEncoder passwordEncoder, EmailService emailService,
+                             ArchivoService archivoService, RevocacionTokens revocacionTokens,
+                             UsuarioActual usuarioActual, PerfilMedicoService perfilMedicoService,
+                             CatalogoMedicosService catalogoMedicosService) {
         this.usuarioRepository = usuarioRepository;
         this.passwordEncoder = passwordEncoder;
         this.emailService = emailService;
         this.archivoService = archivoService;
+        this.revocacionTokens = revocacionTokens;
+        this.usuarioActual = usuarioActual;
+        this.perfilMedicoService = perfilMedicoService;
+        this.catalogoMedicosService = catalogoMedicosService;
     }
 
     @GetMapping("/todos")
@@ -38,6 +52,8 @@ public class UsuarioController {
     public ResponseEntity<Usuario> editarUsuarioAdmin(@PathVariable Long id, @RequestBody Usuario datos) {
         Usuario usuario = usuarioRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
+        String usernameAnterior = usuario.getUsername();
+        Rol rolAnterior = usuario.getRol();
         
         usuario.setNombreCompleto(datos.getNombreCompleto());
         usuario.setDni(datos.getDni());
@@ -50,36 +66,48 @@ public class UsuarioController {
             usuario.setEnabled(true);
         }
 
-        return ResponseEntity.ok(usuarioRepository.save(usuario));
+        Usuario guardado = usuarioRepository.save(usuario);
+        perfilMedicoService.invalidar(id);
+        catalogoMedicosService.invalidarProfesionales();
+        // Los tokens ya emitidos llevan el rol y el email viejos: que vuelva a loguearse
+        if (rolAnterior != guardado.getRol() || !usernameAnterior.equals(guardado.getUsername())) {
+            revocacionTokens.revocar(usernameAnterior);
+        }
+        return ResponseEntity.ok(guardado);
     }
     
     @DeleteMapping("/{id}")
     public ResponseEntity<?> eliminarUsuario(@PathVariable Long id) { 
+        usuarioRepository.findById(id).ifPresent(usuario -> revocacionTokens.revocar(usuario.getUsername()));
         usuarioRepository.deleteById(id); 
+        perfilMedicoService.invalidar(id);
+        catalogoMedicosService.invalidarProfesionales();
         return ResponseEntity.ok("Eliminado"); 
     }
 
     @GetMapping("/perfil")
     public ResponseEntity<Usuario> obtenerPerfil() {
-        String username = SecurityContextHolder.getContext().getAuthentication().getName();
-        Usuario usuario = usuarioRepository.findByUsername(username).orElseThrow();
+        Usuario usuario = usuarioActual.getUsuario();
         return ResponseEntity.ok(usuario);
     }
     
     @PutMapping("/perfil")
     public ResponseEntity<Usuario> actualizarPerfil(@RequestBody Usuario datos) {
-        String username = SecurityContextHolder.getContext().getAuthentication().getName();
-        Usuario usuario = usuarioRepository.findByUsername(username).orElseThrow();
+        Usuario usuario = usuarioActual.getUsuario();
         usuario.setNombreCompleto(datos.getNombreCompleto());
         usuario.setDni(datos.getDni());
         usuario.setTelefono(datos.getTelefono());
-        return ResponseEntity.ok(usuarioRepository.save(usuario));
+        Usuario guardado = usuarioRepository.save(usuario);
+        if (guardado.getRol() == Rol.MEDICO) {
+            perfilMedicoService.invalidar(guardado.getId());
+            catalogoMedicosService.invalidarProfesionales();
+        }
+        return ResponseEntity.ok(guardado);
     }
 
     @PostMapping("/perfil/password/solicitar-codigo")
     public ResponseEntity<?> solicitarCodigoPassword() {
-        String username = SecurityContextHolder.getContext().getAuthentication().getName();
-        Usuario usuario = usuarioRepository.findByUsername(username).orElseThrow();
+        Usuario usuario = usuarioActual.getUsuario();
         
         // Volvemos a generar el código de 6 dígitos real
         String codigo = String.format("%06d", new Random().nextInt(999999));
@@ -95,8 +123,7 @@ public class UsuarioController {
 
     @PutMapping("/perfil/password/confirmar")
     public ResponseEntity<?> cambiarPasswordConCodigo(@RequestBody PasswordUpdateRequest request) {
-        String username = SecurityContextHolder.getContext().getAuthentication().getName();
-        Usuario usuario = usuarioRepository.findByUsername(username).orElseThrow();
+        Usuario usuario = usuarioActual.getUsuario();
         if (!passwordEncoder.matches(request.getCurrentPassword(), usuario.getPassword())) {
             return ResponseEntity.badRequest().body("Contraseña actual incorrecta.");
         }
@@ -140,6 +167,9 @@ public class UsuarioController {
             String urlFoto = "https://turnos-backend-ns8s.onrender.com/uploads/" + nombreArchivo;
             usuario.setFotoPerfil(urlFoto);
             usuarioRepository.save(usuario);
+            if (usuario.getRol() == Rol.MEDICO) {
+                catalogoMedicosService.invalidarProfesionales();
+            }
 
             return org.springframework.http.ResponseEntity.ok(java.util.Map.of(
                     "mensaje", "Foto actualizada con éxito",
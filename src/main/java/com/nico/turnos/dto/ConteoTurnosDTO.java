@@ -0,0 +1,6 @@
+package com.nico.turnos.dto;
+
+import java.time.LocalDate;
+
+// Una fila del conteo agrupado de turnos que usa la reconciliación de estadísticas
+public record ConteoTurnosDTO(String especialidad, Boolean asistio, Long medicoId, LocalDate dia, Long cantidad) {}
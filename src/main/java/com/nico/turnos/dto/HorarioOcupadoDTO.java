@@ -0,0 +1,11 @@
+package com.nico.turnos.dto;
+
+import java.time.LocalDateTime;
+
+public record HorarioOcupadoDTO(Long medicoId, LocalDateTime fechaHora, int duracionMinutos) {
+
+    // Turno de duración estándar (30 min)
+    public HorarioOcupadoDTO(Long medicoId, LocalDateTime fechaHora) {
+        this(medicoId, fechaHora, 30);
+    }
+}
@@ -0,0 +1,4 @@
+package com.nico.turnos.dto;
+
+// Datos públicos de un usuario con rol MEDICO para el catálogo (sin password ni códigos)
+public record ProfesionalDTO(Long id, String nombreCompleto, String especialidad, String fotoPerfil) {}
@@ -0,0 +1,16 @@
+package com.nico.turnos.dto;
+
+import java.time.LocalDate;
+
+// Un punto de la serie de tiempo: "periodo" es el primer día del día / semana / mes
+public record PuntoSerieDTO(LocalDate periodo, long reservas, long asistencias, long cancelaciones, double tasaAsistencia) {
+
+    public PuntoSerieDTO(LocalDate periodo, Long reservas, Long asistencias, Long cancelaciones) {
+        this(periodo, valor(reservas), valor(asistencias), valor(cancelaciones),
+                valor(reservas) == 0 ? 0 : (double) valor(asistencias) / valor(reservas));
+    }
+
+    private static long valor(Long numero) {
+        return numero != null ? numero : 0L;
+    }
+}
@@ -0,0 +1,13 @@
+package com.nico.turnos.dto;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+// Métricas de una corrida del job de recordatorios
+public record ResultadoRecordatoriosDTO(LocalDate fechaTurnos, LocalDateTime inicio, int turnos, int encolados,
+                                        int omitidos, int lotesFallidos, long duracionMs) {
+
+    public double porSegundo() {
+        return duracionMs == 0 ? encolados : encolados * 1000.0 / duracionMs;
+    }
+}
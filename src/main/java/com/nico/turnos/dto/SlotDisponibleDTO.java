@@ -0,0 +1,5 @@
+package com.nico.turnos.dto;
+
+import java.time.LocalDateTime;
+
+public record SlotDisponibleDTO(Long medicoId, String nombreMedico, String especialidad, LocalDateTime fechaHora) {}
@@ -0,0 +1,4 @@
+package com.nico.turnos.dto;
+
+// Totales de un médico y especialidad sumados desde la tabla de resumen (estadistica_diaria)
+public record TotalesResumenDTO(String especialidad, Long medicoId, Long reservas, Long asistencias) {}
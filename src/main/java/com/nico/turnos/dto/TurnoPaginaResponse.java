@@ -0,0 +1,6 @@
+package com.nico.turnos.dto;
+
+import java.util.List;
+
+// siguienteToken es null cuando no hay más páginas
+public record TurnoPaginaResponse(List<TurnoResponse> turnos, String siguienteToken) {}
@@ -6,6 +6,7 @@ public class TurnoRequest {
     private Long medicoId;
     private String descripcion;
     private LocalDateTime fechaHora;
+    private Integer duracionMinutos; // null = 30 al crear, sin cambios al editar
     private String diagnostico;
     private boolean asistio;
 
@@ -16,6 +17,8 @@ public class TurnoRequest {
     public void setDescripcion(String descripcion) { this.descripcion = descripcion; }
     public LocalDateTime getFechaHora() { return fechaHora; }
     public void setFechaHora(LocalDateTime fechaHora) { this.fechaHora = fechaHora; }
+    public Integer getDuracionMinutos() { return duracionMinutos; }
+    public void setDuracionMinutos(Integer duracionMinutos) { this.duracionMinutos = duracionMinutos; }
     public String getDiagnostico() { return diagnostico; }
     public void setDiagnostico(String diagnostico) { this.diagnostico = diagnostico; }
     public boolean isAsistio() { return asistio; }
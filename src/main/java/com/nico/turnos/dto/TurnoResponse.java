@@ -9,6 +9,7 @@ public class TurnoResponse {
     private String nombreMedico;
     private String descripcion;
     private LocalDateTime fechaHora;
+    private int duracionMinutos;
     private String diagnostico;
     private boolean asistio;
 
@@ -25,6 +26,8 @@ public class TurnoResponse {
     public void setDescripcion(String descripcion) { this.descripcion = descripcion; }
     public LocalDateTime getFechaHora() { return fechaHora; }
     public void setFechaHora(LocalDateTime fechaHora) { this.fechaHora = fechaHora; }
+    public int getDuracionMinutos() { return duracionMinutos; }
+    public void setDuracionMinutos(int duracionMinutos) { this.duracionMinutos = duracionMinutos; }
     public String getDiagnostico() { return diagnostico; }
     public void setDiagnostico(String diagnostico) { this.diagnostico = diagnostico; }
     public boolean isAsistio() { return asistio; }
@@ -0,0 +1,51 @@
+package com.nico.turnos.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDate;
+
+// Un cambio de turno que todavía no se volcó a estadistica_diaria: el día a recalcular y, si fue una
+// cancelación, el médico y la especialidad a los que se le suma. TurnoService lo inserta en la misma
+// transacción del cambio (así no se pierde aunque la app se caiga) y el job lo borra al procesarlo.
+// Solo se insertan filas nuevas, nunca se actualiza una existente: las reservas no se bloquean entre sí.
+@Entity
+@Table(name = "estadistica_cambio")
+public class CambioEstadistica {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private LocalDate fecha;
+
+    // Solo en las cancelaciones
+    private Long medicoId;
+    private String especialidad;
+
+    private boolean cancelacion;
+
+    public CambioEstadistica() {}
+
+    public CambioEstadistica(LocalDate fecha) {
+        this.fecha = fecha;
+    }
+
+    public CambioEstadistica(LocalDate fecha, Long medicoId, String especialidad) {
+        this.fecha = fecha;
+        this.medicoId = medicoId;
+        this.especialidad = especialidad;
+        this.cancelacion = true;
+    }
+
+    // --- GETTERS Y SETTERS ---
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    public LocalDate getFecha() { return fecha; }
+    public void setFecha(LocalDate fecha) { this.fecha = fecha; }
+    public Long getMedicoId() { return medicoId; }
+    public void setMedicoId(Long medicoId) { this.medicoId = medicoId; }
+    public String getEspecialidad() { return especialidad; }
+    public void setEspecialidad(String especialidad) { this.especialidad = especialidad; }
+    public boolean isCancelacion() { return cancelacion; }
+    public void setCancelacion(boolean cancelacion) { this.cancelacion = cancelacion; }
+}
@@ -0,0 +1,73 @@
+package com.nico.turnos.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+// Outbox de emails: se guarda en la misma transacción que el cambio que lo origina
+// y después lo despacha EmailDispatcherService en segundo plano.
+@Entity
+@Table(name = "email_pendiente")
+public class EmailPendiente {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private String destinatario;
+
+    @Column(nullable = false)
+    private String asunto;
+
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String contenido;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private EstadoEmail estado = EstadoEmail.PENDIENTE;
+
+    private int intentos;
+
+    @Column(nullable = false)
+    private LocalDateTime proximoIntento;
+
+    @Column(nullable = false)
+    private LocalDateTime creadoEn;
+
+    private LocalDateTime enviadoEn;
+
+    @Column(length = 500)
+    private String ultimoError;
+
+    public EmailPendiente() {}
+
+    public EmailPendiente(String destinatario, String asunto, String contenido) {
+        this.destinatario = destinatario;
+        this.asunto = asunto;
+        this.contenido = contenido;
+        this.creadoEn = LocalDateTime.now();
+        this.proximoIntento = this.creadoEn;
+    }
+
+    // --- GETTERS Y SETTERS ---
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    public String getDestinatario() { return destinatario; }
+    public void setDestinatario(String destinatario) { this.destinatario = destinatario; }
+    public String getAsunto() { return asunto; }
+    public void setAsunto(String asunto) { this.asunto = asunto; }
+    public String getContenido() { return contenido; }
+    public void setContenido(String contenido) { this.contenido = contenido; }
+    public EstadoEmail getEstado() { return estado; }
+    public void setEstado(EstadoEmail estado) { this.estado = estado; }
+    public int getIntentos() { return intentos; }
+    public void setIntentos(int intentos) { this.intentos = intentos; }
+    public LocalDateTime getProximoIntento() { return proximoIntento; }
+    public void setProximoIntento(LocalDateTime proximoIntento) { this.proximoIntento = proximoIntento; }
+    public LocalDateTime getCreadoEn() { return creadoEn; }
+    public void setCreadoEn(LocalDateTime creadoEn) { this.creadoEn = creadoEn; }
+    public LocalDateTime getEnviadoEn() { return enviadoEn; }
+    public void setEnviadoEn(LocalDateTime enviadoEn) { this.enviadoEn = enviadoEn; }
+    public String getUltimoError() { return ultimoError; }
+    public void setUltimoError(String ultimoError) { this.ultimoError = ultimoError; }
+}
@@ -0,0 +1,50 @@
+package com.nico.turnos.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDate;
+
+// Tabla de resumen: una fila por día, médico y especialidad con los totales de ese día.
+// La llena EstadisticaDiariaService a partir de la tabla turno, así las series de tiempo no recorren turno.
+// La especialidad se guarda como "" cuando el turno no tiene (la unique no trata bien los NULL).
+@Entity
+@Table(name = "estadistica_diaria",
+       uniqueConstraints = @UniqueConstraint(name = "uk_estadistica_diaria_fecha_medico_especialidad",
+                                             columnNames = {"fecha", "medico_id", "especialidad"}))
+public class EstadisticaDiaria {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private LocalDate fecha;
+
+    @Column(name = "medico_id", nullable = false)
+    private Long medicoId;
+
+    @Column(nullable = false)
+    private String especialidad;
+
+    // Turnos que hay para ese día (los cancelados ya no están en turno, van aparte)
+    private long reservas;
+    private long asistencias;
+    private long cancelaciones;
+
+    public EstadisticaDiaria() {}
+
+    // --- GETTERS Y SETTERS ---
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    public LocalDate getFecha() { return fecha; }
+    public void setFecha(LocalDate fecha) { this.fecha = fecha; }
+    public Long getMedicoId() { return medicoId; }
+    public void setMedicoId(Long medicoId) { this.medicoId = medicoId; }
+    public String getEspecialidad() { return especialidad; }
+    public void setEspecialidad(String especialidad) { this.especialidad = especialidad; }
+    public long getReservas() { return reservas; }
+    public void setReservas(long reservas) { this.reservas = reservas; }
+    public long getAsistencias() { return asistencias; }
+    public void setAsistencias(long asistencias) { this.asistencias = asistencias; }
+    public long getCancelaciones() { return cancelaciones; }
+    public void setCancelaciones(long cancelaciones) { this.cancelaciones = cancelaciones; }
+}
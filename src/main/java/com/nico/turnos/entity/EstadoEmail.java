@@ -0,0 +1,7 @@
+package com.nico.turnos.entity;
+
+public enum EstadoEmail {
+    PENDIENTE,
+    ENVIADO,
+    FALLIDO
+}
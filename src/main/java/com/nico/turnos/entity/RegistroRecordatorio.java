@@ -0,0 +1,51 @@
+package com.nico.turnos.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+// Registro de qué recordatorios ya se procesaron (uno por turno y tipo).
+// La unique constraint garantiza que aunque el job corra en varios nodos o se reinicie a mitad,
+// nunca se encole dos veces el mismo recordatorio.
+@Entity
+@Table(name = "registro_recordatorio",
+       uniqueConstraints = @UniqueConstraint(name = "uk_registro_recordatorio_turno_tipo", columnNames = {"turno_id", "tipo"}))
+public class RegistroRecordatorio {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "turno_id", nullable = false)
+    private Long turnoId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private TipoRecordatorio tipo;
+
+    // false si el turno no tenía un email válido y se salteó
+    private boolean encolado;
+
+    @Column(nullable = false)
+    private LocalDateTime procesadoEn;
+
+    public RegistroRecordatorio() {}
+
+    public RegistroRecordatorio(Long turnoId, TipoRecordatorio tipo, boolean encolado) {
+        this.turnoId = turnoId;
+        this.tipo = tipo;
+        this.encolado = encolado;
+        this.procesadoEn = LocalDateTime.now();
+    }
+
+    // --- GETTERS Y SETTERS ---
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    public Long getTurnoId() { return turnoId; }
+    public void setTurnoId(Long turnoId) { this.turnoId = turnoId; }
+    public TipoRecordatorio getTipo() { return tipo; }
+    public void setTipo(TipoRecordatorio tipo) { this.tipo = tipo; }
+    public boolean isEncolado() { return encolado; }
+    public void setEncolado(boolean encolado) { this.encolado = encolado; }
+    public LocalDateTime getProcesadoEn() { return procesadoEn; }
+    public void setProcesadoEn(LocalDateTime procesadoEn) { this.procesadoEn = procesadoEn; }
+}
@@ -0,0 +1,5 @@
+package com.nico.turnos.entity;
+
+public enum TipoRecordatorio {
+    DIA_ANTERIOR
+}
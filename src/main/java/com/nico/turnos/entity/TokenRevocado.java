@@ -0,0 +1,30 @@
+package com.nico.turnos.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+// Última revocación de los tokens de un usuario. Los tokens emitidos hasta ese momento dejan de valer.
+// Se guarda en la base para que la vean todos los nodos y no se pierda al reiniciar.
+@Entity
+@Table(name = "token_revocado", indexes = @Index(name = "idx_token_revocado_revocado_en", columnList = "revocado_en"))
+public class TokenRevocado {
+
+    @Id
+    private String username;
+
+    @Column(name = "revocado_en", nullable = false)
+    private LocalDateTime revocadoEn;
+
+    public TokenRevocado() {}
+
+    public TokenRevocado(String username, LocalDateTime revocadoEn) {
+        this.username = username;
+        this.revocadoEn = revocadoEn;
+    }
+
+    // --- GETTERS Y SETTERS ---
+    public String getUsername() { return username; }
+    public void setUsername(String username) { this.username = username; }
+    public LocalDateTime getRevocadoEn() { return revocadoEn; }
+    public void setRevocadoEn(LocalDateTime revocadoEn) { this.revocadoEn = revocadoEn; }
+}
@@ -4,9 +4,18 @@ import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "turno")
+// El esquema lo crean las migraciones de Flyway (db/migration V2 y V3); se declaran acá para que el modelo coincida.
+// El EXCLUDE que impide turnos solapados de un médico (V3) no se puede expresar con anotaciones.
+@Table(name = "turno",
+       uniqueConstraints = @UniqueConstraint(name = "uk_turno_medico_fecha_hora", columnNames = {"medico_id", "fecha_hora"}),
+       indexes = {
+               @Index(name = "idx_turno_paciente_fecha_hora", columnList = "paciente_username, fecha_hora"),
+               @Index(name = "idx_turno_fecha_hora", columnList = "fecha_hora")
+       })
 public class Turno {
 
+    public static final int DURACION_POR_DEFECTO = 30;
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -16,6 +25,10 @@ public class Turno {
 
     @Column(nullable = false)
     private Long medicoId;
+
+    // El turno ocupa [fechaHora, fechaHora + duracionMinutos)
+    @Column(nullable = false)
+    private int duracionMinutos = DURACION_POR_DEFECTO;
     
     private String nombreMedico;
     private String especialidad; 
@@ -41,6 +54,11 @@ public class Turno {
     public Long getMedicoId() { return medicoId; }
     public void setMedicoId(Long medicoId) { this.medicoId = medicoId; }
 
+    public int getDuracionMinutos() { return duracionMinutos; }
+    public void setDuracionMinutos(int duracionMinutos) { this.duracionMinutos = duracionMinutos; }
+
+    public LocalDateTime getFin() { return fechaHora.plusMinutes(duracionMinutos); }
+
     public String getNombreMedico() { return nombreMedico; }
     public void setNombreMedico(String nombreMedico) { this.nombreMedico = nombreMedico; }
 
@@ -10,7 +10,12 @@ import java.util.Collection;
 import java.util.List;
 
 @Entity
-@Table(name = "usuario")
+// Índices para buscar por token sin recorrer la tabla. verification_code no es único: también guarda
+// los códigos de 6 dígitos para cambiar la contraseña, que pueden repetirse entre usuarios.
+@Table(name = "usuario", indexes = {
+        @Index(name = "idx_usuario_verification_code", columnList = "verification_code"),
+        @Index(name = "uk_usuario_reset_token", columnList = "reset_token", unique = true)
+})
 public class Usuario implements UserDetails {
 
     @Id
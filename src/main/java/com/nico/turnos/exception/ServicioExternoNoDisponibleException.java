@@ -0,0 +1,8 @@
+package com.nico.turnos.exception;
+
+// La llamada a una API externa (Groq, Brevo) se cortó antes de salir: circuito abierto o demasiadas llamadas en curso
+public class ServicioExternoNoDisponibleException extends RuntimeException {
+    public ServicioExternoNoDisponibleException(String message) {
+        super(message);
+    }
+}
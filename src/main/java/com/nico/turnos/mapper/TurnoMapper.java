@@ -14,6 +14,7 @@ public class TurnoMapper {
         turno.setMedicoId(request.getMedicoId());
         turno.setDescripcion(request.getDescripcion());
         turno.setFechaHora(request.getFechaHora());
+        turno.setDuracionMinutos(request.getDuracionMinutos() != null ? request.getDuracionMinutos() : Turno.DURACION_POR_DEFECTO);
         turno.setDiagnostico(request.getDiagnostico());
         turno.setAsistio(request.isAsistio());
         return turno;
@@ -28,6 +29,7 @@ public class TurnoMapper {
         response.setNombreMedico(turno.getNombreMedico()); // Asegurate de setear esto en el Service
         response.setDescripcion(turno.getDescripcion());
         response.setFechaHora(turno.getFechaHora());
+        response.setDuracionMinutos(turno.getDuracionMinutos());
         response.setDiagnostico(turno.getDiagnostico());
         response.setAsistio(turno.isAsistio());
         return response;
@@ -43,6 +45,9 @@ public class TurnoMapper {
         if (request.getFechaHora() != null) {
             turnoExistente.setFechaHora(request.getFechaHora());
         }
+        if (request.getDuracionMinutos() != null) {
+            turnoExistente.setDuracionMinutos(request.getDuracionMinutos());
+        }
         // Si cambia la descripción
         if (request.getDescripcion() != null) {
             turnoExistente.setDescripcion(request.getDescripcion());
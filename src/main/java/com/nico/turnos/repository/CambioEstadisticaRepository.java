@@ -0,0 +1,28 @@
+package com.nico.turnos.repository;
+
+import com.nico.turnos.entity.CambioEstadistica;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface CambioEstadisticaRepository extends JpaRepository<CambioEstadistica, Long> {
+
+    // Para la primera carga: un cambio por cada día que tiene turnos
+    @Modifying
+    @Query(value = "INSERT INTO estadistica_cambio (fecha, cancelacion) " +
+                   "SELECT DISTINCT CAST(fecha_hora AS date), FALSE FROM turno",
+           nativeQuery = true)
+    int marcarTodosLosDias();
+
+    // Un solo nodo procesa los cambios a la vez: dos recálculos del mismo día en paralelo podrían terminar
+    // escribiendo el que vio menos turnos. Se libera solo con el commit o el rollback.
+    @Query(value = "SELECT pg_try_advisory_xact_lock(:clave)", nativeQuery = true)
+    boolean tomarLockDelJob(@Param("clave") long clave);
+
+    // Los más viejos primero. Un cambio que se confirma después de esta lectura queda para la vuelta siguiente.
+    @Query(value = "SELECT * FROM estadistica_cambio ORDER BY id LIMIT :limite", nativeQuery = true)
+    List<CambioEstadistica> reclamar(@Param("limite") int limite);
+}
@@ -0,0 +1,21 @@
+package com.nico.turnos.repository;
+
+import com.nico.turnos.entity.EmailPendiente;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface EmailPendienteRepository extends JpaRepository<EmailPendiente, Long> {
+
+    // Reclama un lote de emails listos para (re)intentar, del más viejo al más nuevo.
+    // FOR UPDATE SKIP LOCKED: si otro nodo está reclamando esas filas las saltea en vez de esperar.
+    // El que las reclama les corre proximo_intento antes de soltarlas (ver EmailDispatcherService).
+    @Query(value = "SELECT e.* FROM email_pendiente e " +
+                   "WHERE e.estado = 'PENDIENTE' AND e.proximo_intento <= :ahora " +
+                   "ORDER BY e.id LIMIT :limite FOR UPDATE SKIP LOCKED",
+           nativeQuery = true)
+    List<EmailPendiente> reclamarParaEnvio(@Param("ahora") LocalDateTime ahora, @Param("limite") int limite);
+}
@@ -0,0 +1,61 @@
+package com.nico.turnos.repository;
+
+import com.nico.turnos.dto.PuntoSerieDTO;
+import com.nico.turnos.dto.TotalesResumenDTO;
+import com.nico.turnos.entity.EstadisticaDiaria;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface EstadisticaDiariaRepository extends JpaRepository<EstadisticaDiaria, Long> {
+
+    // Las cancelaciones no se pueden recalcular (el turno se borra), así que el job las suma desde estadistica_cambio
+    @Modifying
+    @Query(value = "INSERT INTO estadistica_diaria (fecha, medico_id, especialidad, reservas, asistencias, cancelaciones) " +
+                   "VALUES (:fecha, :medicoId, :especialidad, 0, 0, :cantidad) " +
+                   "ON CONFLICT (fecha, medico_id, especialidad) " +
+                   "DO UPDATE SET cancelaciones = estadistica_diaria.cancelaciones + EXCLUDED.cancelaciones",
+           nativeQuery = true)
+    void sumarCancelaciones(@Param("fecha") LocalDate fecha,
+                            @Param("medicoId") Long medicoId,
+                            @Param("especialidad") String especialidad,
+                            @Param("cantidad") long cantidad);
+
+    // Recalcular un día = poner en cero lo que sale de turno y volver a cargarlo con un upsert
+    @Modifying
+    @Query(value = "UPDATE estadistica_diaria SET reservas = 0, asistencias = 0 WHERE fecha = :fecha",
+           nativeQuery = true)
+    void reiniciarDia(@Param("fecha") LocalDate fecha);
+
+    @Modifying
+    @Query(value = "INSERT INTO estadistica_diaria (fecha, medico_id, especialidad, reservas, asistencias, cancelaciones) " +
+                   "SELECT CAST(t.fecha_hora AS date), t.medico_id, COALESCE(t.especialidad, ''), " +
+                   "       COUNT(*), COUNT(*) FILTER (WHERE t.asistio), 0 " +
+                   "FROM turno t WHERE t.fecha_hora >= :inicio AND t.fecha_hora < :fin " +
+                   "GROUP BY CAST(t.fecha_hora AS date), t.medico_id, COALESCE(t.especialidad, '') " +
+                   "ON CONFLICT (fecha, medico_id, especialidad) " +
+                   "DO UPDATE SET reservas = EXCLUDED.reservas, asistencias = EXCLUDED.asistencias",
+           nativeQuery = true)
+    void recalcularRango(@Param("inicio") LocalDateTime inicio, @Param("fin") LocalDateTime fin);
+
+    // Totales por médico y especialidad de los días anteriores a "antesDe" (lo usa la reconciliación de EstadisticaService)
+    @Query("SELECT new com.nico.turnos.dto.TotalesResumenDTO(e.especialidad, e.medicoId, SUM(e.reservas), SUM(e.asistencias)) " +
+           "FROM EstadisticaDiaria e WHERE e.fecha < :antesDe GROUP BY e.especialidad, e.medicoId")
+    List<TotalesResumenDTO> totalesAntesDe(@Param("antesDe") LocalDate antesDe);
+
+    // Totales por día en el rango; el agrupado por semana o mes se hace en memoria (son pocas filas)
+    @Query("SELECT new com.nico.turnos.dto.PuntoSerieDTO(e.fecha, SUM(e.reservas), SUM(e.asistencias), SUM(e.cancelaciones)) " +
+           "FROM EstadisticaDiaria e WHERE e.fecha >= :desde AND e.fecha <= :hasta " +
+           "AND (:medicoId IS NULL OR e.medicoId = :medicoId) " +
+           "AND (:especialidad IS NULL OR e.especialidad = :especialidad) " +
+           "GROUP BY e.fecha ORDER BY e.fecha")
+    List<PuntoSerieDTO> totalesPorDia(@Param("desde") LocalDate desde,
+                                      @Param("hasta") LocalDate hasta,
+                                      @Param("medicoId") Long medicoId,
+                                      @Param("especialidad") String especialidad);
+}
@@ -0,0 +1,17 @@
+package com.nico.turnos.repository;
+
+import com.nico.turnos.entity.RegistroRecordatorio;
+import com.nico.turnos.entity.TipoRecordatorio;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface RegistroRecordatorioRepository extends JpaRepository<RegistroRecordatorio, Long> {
+
+    // Cuáles de estos turnos ya tienen el recordatorio registrado
+    @Query("SELECT r.turnoId FROM RegistroRecordatorio r WHERE r.turnoId IN :turnoIds AND r.tipo = :tipo")
+    List<Long> findTurnoIdsRegistrados(@Param("turnoIds") Collection<Long> turnoIds, @Param("tipo") TipoRecordatorio tipo);
+}
@@ -0,0 +1,22 @@
+package com.nico.turnos.repository;
+
+import com.nico.turnos.entity.TokenRevocado;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface TokenRevocadoRepository extends JpaRepository<TokenRevocado, String> {
+
+    // Las que todavía pueden afectar a un token vigente
+    List<TokenRevocado> findByRevocadoEnAfter(LocalDateTime desde);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM TokenRevocado t WHERE t.revocadoEn < :limite")
+    int borrarAnterioresA(@Param("limite") LocalDateTime limite);
+}
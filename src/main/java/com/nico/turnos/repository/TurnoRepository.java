@@ -1,15 +1,23 @@
 package com.nico.turnos.repository;
 
-import com.nico.turnos.dto.EstadisticaDTO;
+import com.nico.turnos.dto.ConteoTurnosDTO;
+import com.nico.turnos.dto.HorarioOcupadoDTO;
 import com.nico.turnos.entity.Turno;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
 
 @Repository
 public interface TurnoRepository extends JpaRepository<Turno, Long> {
@@ -24,23 +32,83 @@ public interface TurnoRepository extends JpaRepository<Turno, Long> {
     // Validar solapamiento al editar (excluyendo el turno actual por ID)
     boolean existsByMedicoIdAndFechaHoraAndIdNot(Long medicoId, LocalDateTime fechaHora, Long id);
 
-    // Query optimizada para calcular slots libres en el calendario
-    @Query("SELECT t.fechaHora FROM Turno t WHERE t.medicoId = :medicoId AND CAST(t.fechaHora AS date) = :fecha")
-    List<LocalDateTime> findHorariosOcupados(@Param("medicoId") Long medicoId, @Param("fecha") LocalDate fecha);
+    // Query optimizada para calcular slots libres en el calendario.
+    // Comparamos por rango (y no con CAST a date) para que Postgres pueda usar el índice sobre fechaHora
+    @Query("SELECT new com.nico.turnos.dto.HorarioOcupadoDTO(t.medicoId, t.fechaHora, t.duracionMinutos) FROM Turno t " +
+           "WHERE t.medicoId = :medicoId AND t.fechaHora >= :desde AND t.fechaHora < :hasta")
+    List<HorarioOcupadoDTO> findFechasOcupadas(@Param("medicoId") Long medicoId,
+                                               @Param("desde") LocalDateTime desde,
+                                               @Param("hasta") LocalDateTime hasta);
 
-    // --- GRÁFICOS (RECHARTS) ---
+    default List<HorarioOcupadoDTO> findHorariosOcupados(Long medicoId, LocalDate fecha) {
+        return findFechasOcupadas(medicoId, fecha.atStartOfDay(), fecha.plusDays(1).atStartOfDay());
+    }
 
-    // Conteo de turnos por especialidad
-    @Query("SELECT new com.nico.turnos.dto.EstadisticaDTO(t.especialidad, COUNT(t)) " +
-           "FROM Turno t WHERE t.especialidad IS NOT NULL GROUP BY t.especialidad")
-    List<EstadisticaDTO> conteoPorEspecialidad();
+    // Horarios ocupados de varios médicos en un rango (búsqueda del próximo turno libre en una sola query)
+    @Query("SELECT new com.nico.turnos.dto.HorarioOcupadoDTO(t.medicoId, t.fechaHora, t.duracionMinutos) FROM Turno t " +
+           "WHERE t.medicoId IN :medicoIds AND t.fechaHora >= :desde AND t.fechaHora < :hasta")
+    List<HorarioOcupadoDTO> findOcupadosPorMedicos(@Param("medicoIds") Collection<Long> medicoIds,
+                                                   @Param("desde") LocalDateTime desde,
+                                                   @Param("hasta") LocalDateTime hasta);
 
-    // Conteo de Asistencias vs Ausencias
-    @Query("SELECT new com.nico.turnos.dto.EstadisticaDTO(" +
-           "CASE WHEN t.asistio = true THEN 'Asistió' ELSE 'Pendiente' END, COUNT(t)) " +
-           "FROM Turno t GROUP BY t.asistio")
-    List<EstadisticaDTO> conteoPorAsistencia();
+    // --- GRÁFICOS (RECHARTS) ---
+
+    // Los contadores del dashboard de los turnos desde "desde" en un solo recorrido (lo usa la reconciliación de
+    // EstadisticaService; lo anterior sale de la tabla de resumen)
+    @Query("SELECT new com.nico.turnos.dto.ConteoTurnosDTO(t.especialidad, t.asistio, t.medicoId, cast(t.fechaHora as LocalDate), COUNT(t)) " +
+           "FROM Turno t WHERE t.fechaHora >= :desde " +
+           "GROUP BY t.especialidad, t.asistio, t.medicoId, cast(t.fechaHora as LocalDate)")
+    List<ConteoTurnosDTO> conteoAgrupadoDesde(@Param("desde") LocalDateTime desde);
 
     // 👇 NUEVO MÉTODO PARA BUSCAR TURNOS POR RANGO DE FECHAS
     java.util.List<com.nico.turnos.entity.Turno> findByFechaHoraBetween(java.time.LocalDateTime start, java.time.LocalDateTime end);
-}
\ No newline at end of file
+
+    // --- REPORTES ---
+    // Cursor sobre toda la tabla: se lee de a 500 filas, hay que consumirlo dentro de una transacción
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT t FROM Turno t ORDER BY t.id")
+    Stream<Turno> streamTodos();
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT t FROM Turno t WHERE t.fechaHora >= :desde AND t.fechaHora < :hasta ORDER BY t.fechaHora, t.id")
+    Stream<Turno> streamPorRango(@Param("desde") LocalDateTime desde, @Param("hasta") LocalDateTime hasta);
+
+    // --- RECORDATORIOS ---
+    // Reclama un lote de turnos del rango que todavía no tienen recordatorio de ese tipo.
+    // FOR UPDATE SKIP LOCKED: si otro nodo está procesando esas filas las saltea en vez de esperar,
+    // así el job puede correr en varias instancias a la vez sin duplicar envíos.
+    @Query(value = "SELECT t.* FROM turno t " +
+                   "WHERE t.fecha_hora BETWEEN :inicio AND :fin " +
+                   "AND NOT EXISTS (SELECT 1 FROM registro_recordatorio r WHERE r.turno_id = t.id AND r.tipo = :tipo) " +
+                   "ORDER BY t.id LIMIT :limite FOR UPDATE SKIP LOCKED",
+           nativeQuery = true)
+    List<Turno> reclamarParaRecordatorio(@Param("inicio") LocalDateTime inicio,
+                                         @Param("fin") LocalDateTime fin,
+                                         @Param("tipo") String tipo,
+                                         @Param("limite") int limite);
+
+    // --- LISTADO PAGINADO (KEYSET sobre fechaHora, id) ---
+    // El cursor es el último (fechaHora, id) de la página anterior; la primera página usa (hasta, 0).
+    // Así Postgres recorre el rango en orden sin OFFSET, y el costo no crece con el historial.
+    @Query("SELECT t FROM Turno t WHERE t.fechaHora >= :desde " +
+           "AND (t.fechaHora < :cursorFecha OR (t.fechaHora = :cursorFecha AND t.id < :cursorId)) " +
+           "AND (:medicoId IS NULL OR t.medicoId = :medicoId) " +
+           "AND (:especialidad IS NULL OR t.especialidad = :especialidad) " +
+           "AND (:pacienteUsername IS NULL OR t.pacienteUsername = :pacienteUsername) " +
+           "ORDER BY t.fechaHora DESC, t.id DESC")
+    List<Turno> buscarPagina(@Param("desde") LocalDateTime desde,
+                             @Param("cursorFecha") LocalDateTime cursorFecha,
+                             @Param("cursorId") Long cursorId,
+                             @Param("medicoId") Long medicoId,
+                             @Param("especialidad") String especialidad,
+                             @Param("pacienteUsername") String pacienteUsername,
+                             Pageable limite);
+
+    // Turnos de un médico en un rango, en orden cronológico (para el zip de PDFs)
+    @Query("SELECT t FROM Turno t WHERE t.medicoId = :medicoId AND t.fechaHora >= :desde AND t.fechaHora < :hasta " +
+           "ORDER BY t.fechaHora, t.id")
+    List<Turno> findParaLote(@Param("medicoId") Long medicoId,
+                             @Param("desde") LocalDateTime desde,
+                             @Param("hasta") LocalDateTime hasta,
+                             Pageable limite);
+}
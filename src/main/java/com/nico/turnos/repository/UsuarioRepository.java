@@ -1,13 +1,22 @@
 package com.nico.turnos.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import com.nico.turnos.dto.ProfesionalDTO;
 import com.nico.turnos.entity.Rol;
 import com.nico.turnos.entity.Usuario;
 
 import org.springframework.data.domain.Page; // <-- Nueva importación
 import org.springframework.data.domain.Pageable; // <-- Nueva importación
+import jakarta.persistence.QueryHint;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
 
 public interface UsuarioRepository extends JpaRepository<Usuario, Long> {
     Optional<Usuario> findByUsername(String username);
@@ -15,7 +24,22 @@ public interface UsuarioRepository extends JpaRepository<Usuario, Long> {
     // 👇 ESTOS SON LOS QUE FALTABAN PARA QUE NO TIRE ERROR
     boolean existsByUsername(String username);
     Optional<Usuario> findByResetToken(String resetToken);
+
+    // Solo cuentas todavía sin activar: el mismo campo guarda los códigos de cambio de contraseña
+    Optional<Usuario> findFirstByVerificationCodeAndEnabledFalse(String verificationCode);
     
     // 👇 ESTE ES EL NUEVO QUE AGREGAMOS HOY
     Page<Usuario> findByRol(Rol rol, Pageable pageable);
+
+    List<Usuario> findByRolAndEspecialidad(Rol rol, String especialidad);
+
+    // Solo las columnas públicas, para el catálogo de profesionales
+    @Query("SELECT new com.nico.turnos.dto.ProfesionalDTO(u.id, u.nombreCompleto, u.especialidad, u.fotoPerfil) " +
+           "FROM Usuario u WHERE u.rol = :rol ORDER BY u.nombreCompleto")
+    List<ProfesionalDTO> findProfesionales(@Param("rol") Rol rol);
+
+    // Cursor para reportes: se lee de a 500 filas, hay que consumirlo dentro de una transacción
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT u FROM Usuario u ORDER BY u.id")
+    Stream<Usuario> streamTodos();
 }
\ No newline at end of file
@@ -0,0 +1,62 @@
+package com.nico.turnos.service;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Cache LRU de PDFs ya generados, acotada por bytes (no por cantidad: un PDF con diagnóstico largo pesa más).
+// La clave es la huella del contenido, así que si el turno cambia la clave cambia sola y la entrada vieja
+// simplemente deja de usarse hasta que la desaloja el LRU. No hace falta invalidar a mano.
+public class CacheDePdf {
+
+    private final long maximoBytes;
+    // accessOrder = true: get() mueve la entrada al final, la primera es siempre la menos usada
+    private final LinkedHashMap<String, byte[]> entradas = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytesActuales;
+    private long aciertos;
+    private long fallos;
+
+    public CacheDePdf(long maximoBytes) {
+        if (maximoBytes < 0) {
+            throw new IllegalArgumentException("El tamaño máximo no puede ser negativo");
+        }
+        this.maximoBytes = maximoBytes;
+    }
+
+    public synchronized byte[] obtener(String huella) {
+        byte[] pdf = entradas.get(huella);
+        if (pdf != null) aciertos++; else fallos++;
+        return pdf;
+    }
+
+    public synchronized void guardar(String huella, byte[] pdf) {
+        // Un PDF más grande que toda la cache no se guarda (vaciaría todo lo demás)
+        if (pdf.length > maximoBytes) return;
+
+        byte[] anterior = entradas.put(huella, pdf);
+        if (anterior != null) bytesActuales -= anterior.length;
+        bytesActuales += pdf.length;
+
+        Iterator<Map.Entry<String, byte[]>> it = entradas.entrySet().iterator();
+        while (bytesActuales > maximoBytes && it.hasNext()) {
+            bytesActuales -= it.next().getValue().length;
+            it.remove();
+        }
+    }
+
+    public synchronized long getBytesActuales() {
+        return bytesActuales;
+    }
+
+    public synchronized int getCantidad() {
+        return entradas.size();
+    }
+
+    public synchronized long getAciertos() {
+        return aciertos;
+    }
+
+    public synchronized long getFallos() {
+        return fallos;
+    }
+}
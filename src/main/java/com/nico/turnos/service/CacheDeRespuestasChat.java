@@ -0,0 +1,106 @@
+package com.nico.turnos.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.Normalizer;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+// Cache LRU con vencimiento de respuestas del chatbot para preguntas sueltas (sin conversación previa).
+// La clave es la pregunta normalizada ("¿Qué horario tienen?" y "que horario tienen" son la misma) más una huella
+// del contexto, así dos pacientes con distinta información nunca comparten respuesta.
+public class CacheDeRespuestasChat {
+
+    private record Entrada(String respuesta, long venceEn) {}
+
+    private final int maximoEntradas;
+    private final long ttlMs;
+    private final LongSupplier reloj;
+    // accessOrder = true: la primera entrada es siempre la menos usada
+    private final LinkedHashMap<String, Entrada> entradas;
+    private long aciertos;
+    private long fallos;
+    private long omitidas;
+
+    public CacheDeRespuestasChat(int maximoEntradas, long ttlMs) {
+        this(maximoEntradas, ttlMs, System::currentTimeMillis);
+    }
+
+    CacheDeRespuestasChat(int maximoEntradas, long ttlMs, LongSupplier reloj) {
+        if (maximoEntradas < 0 || ttlMs < 0) {
+            throw new IllegalArgumentException("El tamaño y el vencimiento no pueden ser negativos");
+        }
+        this.maximoEntradas = maximoEntradas;
+        this.ttlMs = ttlMs;
+        this.reloj = reloj;
+        this.entradas = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entrada> eldest) {
+                return size() > CacheDeRespuestasChat.this.maximoEntradas;
+            }
+        };
+    }
+
+    public static String clave(String pregunta, String contexto) {
+        return normalizarPregunta(pregunta) + "|" + huella(contexto);
+    }
+
+    // Minúsculas, sin tildes, sin signos de puntuación y con los espacios colapsados
+    static String normalizarPregunta(String pregunta) {
+        String sinTildes = Normalizer.normalize(pregunta == null ? "" : pregunta, Normalizer.Form.NFD)
+                .replaceAll("\\p{M}", "");
+        return sinTildes.toLowerCase(Locale.ROOT)
+                .replaceAll("[^\\p{L}\\p{N}]+", " ")
+                .trim();
+    }
+
+    public synchronized String obtener(String clave) {
+        Entrada entrada = entradas.get(clave);
+        if (entrada != null && entrada.venceEn() > reloj.getAsLong()) {
+            aciertos++;
+            return entrada.respuesta();
+        }
+        if (entrada != null) entradas.remove(clave);
+        fallos++;
+        return null;
+    }
+
+    public synchronized void guardar(String clave, String respuesta) {
+        if (maximoEntradas == 0) return;
+        entradas.put(clave, new Entrada(respuesta, reloj.getAsLong() + ttlMs));
+    }
+
+    // Preguntas que no pasaron por la cache (con historial de conversación)
+    public synchronized void registrarOmitida() {
+        omitidas++;
+    }
+
+    public synchronized int getCantidad() {
+        return entradas.size();
+    }
+
+    public synchronized long getAciertos() {
+        return aciertos;
+    }
+
+    public synchronized long getFallos() {
+        return fallos;
+    }
+
+    public synchronized long getOmitidas() {
+        return omitidas;
+    }
+
+    private static String huella(String contexto) {
+        try {
+            MessageDigest sha = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(sha.digest((contexto == null ? "" : contexto).getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
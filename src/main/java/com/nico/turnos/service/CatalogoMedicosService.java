@@ -0,0 +1,91 @@
+package com.nico.turnos.service;
+
+import com.nico.turnos.dto.ProfesionalDTO;
+import com.nico.turnos.entity.Medico;
+import com.nico.turnos.entity.Rol;
+import com.nico.turnos.repository.MedicoRepository;
+import com.nico.turnos.repository.UsuarioRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+// Catálogo de médicos (entidad Medico y usuarios con rol MEDICO) guardado en memoria.
+// Cada versión del catálogo tiene su ETag: si el navegador ya la tiene, el controller contesta 304 sin ir a la base.
+// Se invalida cuando algo cambia (alta de médico, edición / alta / baja de usuarios) y, por las dudas,
+// vence solo cada "ttl-ms" por si alguien toca la base a mano.
+@Service
+public class CatalogoMedicosService {
+
+    public record Catalogo<T>(List<T> datos, String etag) {}
+
+    private final CacheCatalogo<Medico> medicos;
+    private final CacheCatalogo<ProfesionalDTO> profesionales;
+
+    public CatalogoMedicosService(MedicoRepository medicoRepository,
+                                  UsuarioRepository usuarioRepository,
+                                  @Value("${medicos.catalogo.ttl-ms:600000}") long ttlMs) {
+        // Prefijo por arranque: tras un reinicio ningún ETag viejo puede coincidir por casualidad
+        String arranque = UUID.randomUUID().toString().substring(0, 8);
+        this.medicos = new CacheCatalogo<>("medicos-" + arranque, ttlMs, medicoRepository::findAll);
+        this.profesionales = new CacheCatalogo<>("profesionales-" + arranque, ttlMs,
+                () -> usuarioRepository.findProfesionales(Rol.MEDICO));
+    }
+
+    public Catalogo<Medico> medicos() {
+        return medicos.obtener();
+    }
+
+    public Catalogo<ProfesionalDTO> profesionales() {
+        return profesionales.obtener();
+    }
+
+    public void invalidarMedicos() {
+        medicos.invalidar();
+    }
+
+    public void invalidarProfesionales() {
+        profesionales.invalidar();
+    }
+
+    private static final class CacheCatalogo<T> {
+
+        private record Entrada<T>(Catalogo<T> catalogo, long version, long venceEn) {}
+
+        private final String nombre;
+        private final long ttlMs;
+        private final Supplier<List<T>> cargador;
+        private final AtomicLong version = new AtomicLong();
+        private volatile Entrada<T> entrada;
+
+        CacheCatalogo(String nombre, long ttlMs, Supplier<List<T>> cargador) {
+            this.nombre = nombre;
+            this.ttlMs = ttlMs;
+            this.cargador = cargador;
+        }
+
+        Catalogo<T> obtener() {
+            Entrada<T> actual = entrada;
+            long ahora = System.currentTimeMillis();
+            if (actual != null && actual.version() == version.get() && actual.venceEn() > ahora) {
+                return actual.catalogo();
+            }
+
+            // La versión se lee antes de cargar: si alguien invalida mientras tanto, no guardamos datos viejos
+            long versionLeida = version.get();
+            List<T> datos = List.copyOf(cargador.get());
+            Catalogo<T> catalogo = new Catalogo<>(datos, "\"" + nombre + "-" + versionLeida + "-" + ahora + "\"");
+            if (version.get() == versionLeida) {
+                entrada = new Entrada<>(catalogo, versionLeida, ahora + ttlMs);
+            }
+            return catalogo;
+        }
+
+        void invalidar() {
+            version.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package com.nico.turnos.service;
+
+import com.nico.turnos.exception.ServicioExternoNoDisponibleException;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.web.client.RestClient;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+// Todo lo que sale hacia una API externa (un "destino": groq, brevo) pasa por acá:
+//  - un único HttpClient del JDK por destino, que reusa las conexiones (keep-alive) en lugar de abrir una
+//    conexión TCP/TLS por llamada, con timeout de conexión y de respuesta propios del destino;
+//  - un límite de llamadas simultáneas (bulkhead): si el destino se pone lento, las que sobran fallan enseguida
+//    en vez de quedarse colgadas ocupando hilos que necesita el resto de la aplicación (las reservas de turnos);
+//  - un circuit breaker: después de varias fallas seguidas deja de llamar por un rato y falla en el acto;
+//    pasado ese tiempo deja pasar una sola llamada de prueba, que lo vuelve a cerrar si sale bien.
+// Los contadores son por instancia, desde que arrancó.
+public class ClienteHttpExterno {
+
+    public record Configuracion(Duration timeoutConexion, Duration timeoutLectura, int maximoConcurrentes,
+                                int fallosParaAbrir, Duration tiempoAbierto) {}
+
+    public record Metricas(String destino, String circuito, int enCurso, int maximoConcurrentes,
+                           long llamadas, long exitos, long fallos, long canceladas, long rechazadasPorCircuito,
+                           long rechazadasPorLimite, long aperturas, double latenciaPromedioMs,
+                           double latenciaMaximaMs) {}
+
+    private enum Circuito { CERRADO, ABIERTO, SEMIABIERTO }
+
+    private final String destino;
+    private final Configuracion configuracion;
+    private final LongSupplier reloj;
+    private final HttpClient httpClient;
+    private final Semaphore enCurso;
+
+    private Circuito circuito = Circuito.CERRADO;
+    private int fallosSeguidos;
+    private long abiertoHasta;
+    private boolean pruebaEnCurso;
+
+    private final LongAdder llamadas = new LongAdder();
+    private final LongAdder exitos = new LongAdder();
+    private final LongAdder fallos = new LongAdder();
+    private final LongAdder canceladas = new LongAdder();
+    private final LongAdder rechazadasPorCircuito = new LongAdder();
+    private final LongAdder rechazadasPorLimite = new LongAdder();
+    private final LongAdder aperturas = new LongAdder();
+    private final LongAdder latenciaTotalNanos = new LongAdder();
+    private final AtomicLong latenciaMaximaNanos = new AtomicLong();
+
+    public ClienteHttpExterno(String destino, Configuracion configuracion) {
+        this(destino, configuracion, System::currentTimeMillis);
+    }
+
+    ClienteHttpExterno(String destino, Configuracion configuracion, LongSupplier reloj) {
+        if (configuracion.maximoConcurrentes() < 1 || configuracion.fallosParaAbrir() < 1) {
+            throw new IllegalArgumentException("El límite de llamadas y de fallas deben ser positivos");
+        }
+        this.destino = destino;
+        this.configuracion = configuracion;
+        this.reloj = reloj;
+        this.httpClient = HttpClient.newBuilder().connectTimeout(configuracion.timeoutConexion()).build();
+        this.enCurso = new Semaphore(configuracion.maximoConcurrentes());
+    }
+
+    // RestClient que usa el HttpClient del destino y pasa cada llamada por el límite y el circuito
+    public RestClient restClient(RestClient.Builder builder, String baseUrl) {
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(httpClient);
+        requestFactory.setReadTimeout(configuracion.timeoutLectura());
+        return builder
+                .baseUrl(baseUrl)
+                .requestFactory(requestFactory)
+                .requestInterceptor((request, body, execution) -> {
+                    Permiso permiso = entrar();
+                    boolean exito = false;
+                    try {
+                        ClientHttpResponse respuesta = execution.execute(request, body);
+                        exito = !esFallaDelDestino(respuesta.getStatusCode().value());
+                        return respuesta;
+                    } finally {
+                        permiso.terminar(exito);
+                    }
+                })
+                .build();
+    }
+
+    // Para llamadas que arma el servicio directamente (ej: streaming con sendAsync)
+    public HttpClient getHttpClient() {
+        return httpClient;
+    }
+
+    public Duration getTimeoutLectura() {
+        return configuracion.timeoutLectura();
+    }
+
+    // Ocupa un lugar para llamar al destino, o falla en el acto si el circuito está abierto o no hay lugar.
+    // Quien lo recibe tiene que llamar a terminar() al final, pase lo que pase.
+    public Permiso entrar() {
+        if (!enCurso.tryAcquire()) {
+            rechazadasPorLimite.increment();
+            throw new ServicioExternoNoDisponibleException(
+                    "Hay demasiadas llamadas en curso a " + destino + "; probá de nuevo en unos segundos.");
+        }
+        if (!permitirPorCircuito()) {
+            enCurso.release();
+            rechazadasPorCircuito.increment();
+            throw new ServicioExternoNoDisponibleException(
+                    "El servicio " + destino + " no está disponible en este momento.");
+        }
+        llamadas.increment();
+        return new Permiso();
+    }
+
+    // Errores del lado del destino: 5xx, y 429 (nos está pidiendo que bajemos el ritmo).
+    // Un 4xx es problema del pedido, no del destino, y no abre el circuito.
+    public static boolean esFallaDelDestino(int status) {
+        return status >= 500 || status == 429;
+    }
+
+    public Metricas getMetricas() {
+        long total = exitos.sum() + fallos.sum();
+        return new Metricas(destino, estadoCircuito(),
+                configuracion.maximoConcurrentes() - enCurso.availablePermits(), configuracion.maximoConcurrentes(),
+                llamadas.sum(), exitos.sum(), fallos.sum(), canceladas.sum(), rechazadasPorCircuito.sum(),
+                rechazadasPorLimite.sum(),
+                aperturas.sum(),
+                total == 0 ? 0.0 : latenciaTotalNanos.sum() / 1e6 / total,
+                latenciaMaximaNanos.get() / 1e6);
+    }
+
+    private synchronized String estadoCircuito() {
+        return circuito.name();
+    }
+
+    private synchronized boolean permitirPorCircuito() {
+        if (circuito == Circuito.ABIERTO) {
+            if (reloj.getAsLong() < abiertoHasta) return false;
+            circuito = Circuito.SEMIABIERTO;
+            pruebaEnCurso = false;
+        }
+        if (circuito == Circuito.SEMIABIERTO) {
+            // Una sola llamada de prueba a la vez
+            if (pruebaEnCurso) return false;
+            pruebaEnCurso = true;
+        }
+        return true;
+    }
+
+    private synchronized void registrarResultado(boolean exito) {
+        if (exito) {
+            if (circuito != Circuito.CERRADO) {
+                System.out.println("✅ Circuito de " + destino + " cerrado: el servicio volvió a responder");
+            }
+            circuito = Circuito.CERRADO;
+            fallosSeguidos = 0;
+            pruebaEnCurso = false;
+            return;
+        }
+        fallosSeguidos++;
+        if (circuito == Circuito.SEMIABIERTO
+                || (circuito == Circuito.CERRADO && fallosSeguidos >= configuracion.fallosParaAbrir())) {
+            circuito = Circuito.ABIERTO;
+            abiertoHasta = reloj.getAsLong() + configuracion.tiempoAbierto().toMillis();
+            pruebaEnCurso = false;
+            aperturas.increment();
+            System.err.println("⚠️ Circuito de " + destino + " abierto tras " + fallosSeguidos + " fallas seguidas; "
+                    + "sin llamadas por " + configuracion.tiempoAbierto().toSeconds() + "s");
+        }
+    }
+
+    // Una llamada cortada por quien la hizo no dice nada del destino: no cierra ni abre el circuito,
+    // pero si era la llamada de prueba deja pasar otra
+    private synchronized void registrarCancelacion() {
+        if (circuito == Circuito.SEMIABIERTO) {
+            pruebaEnCurso = false;
+        }
+    }
+
+    // Un lugar ocupado. terminar() y cancelar() se pueden llamar más de una vez: solo cuenta la primera.
+    public class Permiso {
+
+        private final long inicio = System.nanoTime();
+        private final AtomicBoolean terminado = new AtomicBoolean();
+
+        // Se cortó del lado nuestro (ej: el cliente del chat se desconectó) antes de saber cómo respondía el destino
+        public void cancelar() {
+            if (!terminado.compareAndSet(false, true)) return;
+            canceladas.increment();
+            registrarCancelacion();
+            enCurso.release();
+        }
+
+        public void terminar(boolean exito) {
+            if (!terminado.compareAndSet(false, true)) return;
+            long duracion = System.nanoTime() - inicio;
+            latenciaTotalNanos.add(duracion);
+            latenciaMaximaNanos.accumulateAndGet(duracion, Math::max);
+            (exito ? exitos : fallos).increment();
+            registrarResultado(exito);
+            enCurso.release();
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.nico.turnos.service;
+
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+// Un ClienteHttpExterno por destino, configurado con las propiedades http.externo.<destino>.* y compartido por
+// todos los servicios que llaman a ese destino.
+@Service
+public class ClientesHttpExternos {
+
+    private final Environment environment;
+    private final ConcurrentMap<String, ClienteHttpExterno> clientes = new ConcurrentHashMap<>();
+
+    public ClientesHttpExternos(Environment environment) {
+        this.environment = environment;
+    }
+
+    public ClienteHttpExterno cliente(String destino) {
+        return clientes.computeIfAbsent(destino, d -> new ClienteHttpExterno(d, configuracion(d)));
+    }
+
+    public List<ClienteHttpExterno.Metricas> metricas() {
+        return clientes.values().stream()
+                .map(ClienteHttpExterno::getMetricas)
+                .sorted(Comparator.comparing(ClienteHttpExterno.Metricas::destino))
+                .toList();
+    }
+
+    private ClienteHttpExterno.Configuracion configuracion(String destino) {
+        String prefijo = "http.externo." + destino + ".";
+        return new ClienteHttpExterno.Configuracion(
+                Duration.ofMillis(environment.getProperty(prefijo + "timeout-conexion-ms", Long.class, 5_000L)),
+                Duration.ofMillis(environment.getProperty(prefijo + "timeout-lectura-ms", Long.class, 30_000L)),
+                environment.getProperty(prefijo + "maximo-concurrentes", Integer.class, 10),
+                environment.getProperty(prefijo + "fallos-para-abrir", Integer.class, 5),
+                Duration.ofMillis(environment.getProperty(prefijo + "tiempo-abierto-ms", Long.class, 30_000L)));
+    }
+}
@@ -0,0 +1,417 @@
+package com.nico.turnos.service;
+
+import com.nico.turnos.dto.HorarioOcupadoDTO;
+import com.nico.turnos.dto.SlotDisponibleDTO;
+import com.nico.turnos.entity.Rol;
+import com.nico.turnos.entity.Usuario;
+import com.nico.turnos.repository.TurnoRepository;
+import com.nico.turnos.repository.UsuarioRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.LongSupplier;
+import java.util.stream.Collectors;
+
+// Índice en memoria de la ocupación de cada médico.
+// Por cada (médico, día) guardamos los turnos como intervalos [inicio, fin) ordenados por inicio, más un long
+// donde el bit i indica que el slot de 30 min que arranca a los i*30 minutos del día está (total o parcialmente)
+// ocupado, para armar el calendario sin recorrer nada. El día se carga de la base la primera vez que se consulta
+// y después se mantiene actualizado desde TurnoService (crear / actualizar / eliminar).
+// Los cambios hechos en otro nodo no llegan acá, así que lo guardado nunca es definitivo: un día cargado hace más de
+// VIGENCIA_DIA_MS se vuelve a leer de la base, y antes de rechazar una reserva por un choque en memoria se
+// recarga el día y se prueba de nuevo (el horario pudo haberse liberado en otro nodo).
+// Se guardan como mucho MAXIMO_DIAS_EN_MEMORIA días (médico, día); pasado eso se descarta el menos consultado,
+// así consultas a médicos o fechas arbitrarias no hacen crecer la memoria. Un día descartado se vuelve a cargar.
+// OJO: es por instancia. La base sigue siendo la fuente de verdad (ex_turno_medico_solapado, migración V3).
+@Service
+public class DisponibilidadService {
+
+    public static final int MINUTOS_POR_SLOT = 30;
+
+    // Horario que se ofrece en el calendario (9:00 a 17:00)
+    private static final LocalTime INICIO_AGENDA = LocalTime.of(9, 0);
+    private static final LocalTime FIN_AGENDA = LocalTime.of(17, 0);
+
+    // Límites de la búsqueda de próximos turnos libres
+    static final int DIAS_MAXIMOS_BUSQUEDA = 31;
+    private static final int CANTIDAD_MAXIMA_BUSQUEDA = 50;
+
+    // Tope del índice: unos pocos cientos de bytes por día, unos MB en total
+    static final int MAXIMO_DIAS_EN_MEMORIA = 20_000;
+    // Cuánto tarda como mucho en verse en el calendario una cancelación o un cambio hecho en otro nodo
+    static final long VIGENCIA_DIA_MS = 60_000;
+    // Al recargar un día se conservan las reservas de esta instancia más nuevas que esto: pueden estar todavía
+    // sin confirmar en la base, y sin ellas dos reservas simultáneas del mismo horario llegarían las dos a la base
+    static final long RESERVA_EN_CURSO_MS = 10_000;
+
+    private final TurnoRepository turnoRepository;
+    private final UsuarioRepository usuarioRepository;
+    private final LongSupplier reloj;
+
+    private record ClaveDia(Long medicoId, LocalDate fecha) {}
+
+    // (médico, día) -> agenda. accessOrder = true: el primero es el que hace más tiempo que no se consulta.
+    // Se accede siempre con synchronized (ocupacion); adentro solo se busca o se guarda, nunca se va a la base.
+    private final LinkedHashMap<ClaveDia, AgendaDia> ocupacion = new LinkedHashMap<>(1024, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<ClaveDia, AgendaDia> eldest) {
+            return size() > MAXIMO_DIAS_EN_MEMORIA;
+        }
+    };
+
+    // Turnos de un médico en un día, en minutos desde las 00:00. Como nunca se guardan dos intervalos que se pisen
+    // (lo garantiza la restricción de la base), para saber si uno nuevo choca alcanza con mirar el que empieza
+    // justo antes y el que empieza justo después: O(log n) en vez de recorrer la agenda.
+    // Los synchronized solo cubren trabajo en memoria.
+    static final class AgendaDia {
+        private final TreeMap<Integer, Integer> intervalos = new TreeMap<>();
+        private long ocupados;
+        // Momento (ms) en que se leyó de la base
+        private final long cargadaEn;
+        // Inicio -> reserva hecha en esta instancia después de cargar el día
+        private final Map<Integer, Reserva> reservasLocales = new HashMap<>();
+
+        private record Reserva(int fin, long hechaEn) {}
+
+        AgendaDia(long cargadaEn) {
+            this.cargadaEn = cargadaEn;
+        }
+
+        synchronized boolean libre(int inicio, int fin) {
+            Map.Entry<Integer, Integer> anterior = intervalos.floorEntry(inicio);
+            if (anterior != null && anterior.getValue() > inicio) return false;
+            Map.Entry<Integer, Integer> siguiente = intervalos.higherEntry(inicio);
+            return siguiente == null || siguiente.getKey() >= fin;
+        }
+
+        synchronized boolean reservar(int inicio, int fin, long ahora) {
+            if (!libre(inicio, fin)) return false;
+            agregar(inicio, fin);
+            reservasLocales.put(inicio, new Reserva(fin, ahora));
+            return true;
+        }
+
+        // Cambio de horario dentro del mismo día: el intervalo viejo no cuenta como choque
+        synchronized boolean mover(int inicioAnterior, int inicio, int fin, long ahora) {
+            Integer finAnterior = intervalos.remove(inicioAnterior);
+            Reserva reservaAnterior = reservasLocales.remove(inicioAnterior);
+            if (libre(inicio, fin)) {
+                agregar(inicio, fin);
+                reservasLocales.put(inicio, new Reserva(fin, ahora));
+                recalcular();
+                return true;
+            }
+            if (finAnterior != null) intervalos.put(inicioAnterior, finAnterior);
+            if (reservaAnterior != null) reservasLocales.put(inicioAnterior, reservaAnterior);
+            return false;
+        }
+
+        synchronized void liberar(int inicio) {
+            reservasLocales.remove(inicio);
+            if (intervalos.remove(inicio) != null) recalcular();
+        }
+
+        // Suma las reservas locales de otra agenda hechas desde "desde" (las que la base todavía puede no tener)
+        void heredarReservas(AgendaDia vieja, long desde) {
+            Map<Integer, Reserva> recientes = new HashMap<>();
+            synchronized (vieja) {
+                vieja.reservasLocales.forEach((inicio, reserva) -> {
+                    if (reserva.hechaEn() >= desde) recientes.put(inicio, reserva);
+                });
+            }
+            synchronized (this) {
+                recientes.forEach((inicio, reserva) -> {
+                    if (intervalos.containsKey(inicio) || libre(inicio, reserva.fin())) {
+                        intervalos.put(inicio, reserva.fin());
+                        reservasLocales.put(inicio, reserva);
+                    }
+                });
+                recalcular();
+            }
+        }
+
+        synchronized long ocupados() {
+            return ocupados;
+        }
+
+        private void agregar(int inicio, int fin) {
+            intervalos.put(inicio, fin);
+            ocupados |= mascara(inicio, fin);
+        }
+
+        private void recalcular() {
+            long bits = 0L;
+            for (Map.Entry<Integer, Integer> intervalo : intervalos.entrySet()) {
+                bits |= mascara(intervalo.getKey(), intervalo.getValue());
+            }
+            ocupados = bits;
+        }
+    }
+
+    @Autowired
+    public DisponibilidadService(TurnoRepository turnoRepository, UsuarioRepository usuarioRepository) {
+        this(turnoRepository, usuarioRepository, System::currentTimeMillis);
+    }
+
+    DisponibilidadService(TurnoRepository turnoRepository, UsuarioRepository usuarioRepository, LongSupplier reloj) {
+        this.turnoRepository = turnoRepository;
+        this.usuarioRepository = usuarioRepository;
+        this.reloj = reloj;
+    }
+
+    // Slots de 30 min que ofrece la agenda en un día (9:00, 9:30, ... 16:30)
+    public static List<LocalTime> slotsDeAgenda() {
+        List<LocalTime> slots = new ArrayList<>();
+        LocalTime inicio = INICIO_AGENDA;
+        while (inicio.isBefore(FIN_AGENDA)) {
+            slots.add(inicio);
+            inicio = inicio.plusMinutes(MINUTOS_POR_SLOT);
+        }
+        return slots;
+    }
+
+    public static boolean estaEnSlot(LocalTime hora, long bitmap) {
+        return (bitmap & mascara(hora)) != 0;
+    }
+
+    public List<LocalTime> horariosDisponibles(Long medicoId, LocalDate fecha) {
+        long ocupados = agenda(medicoId, fecha).ocupados();
+        List<LocalTime> libres = new ArrayList<>();
+        for (LocalTime slot : slotsDeAgenda()) {
+            if (!estaEnSlot(slot, ocupados)) {
+                libres.add(slot);
+            }
+        }
+        return libres;
+    }
+
+    // Horarios de la agenda donde entra una consulta de la duración pedida (sin pasarse del fin de la agenda)
+    public List<LocalTime> horariosDisponibles(Long medicoId, LocalDate fecha, int duracionMinutos) {
+        if (duracionMinutos <= 0) {
+            throw new RuntimeException("La duración tiene que ser mayor a cero.");
+        }
+        if (duracionMinutos == MINUTOS_POR_SLOT) {
+            return horariosDisponibles(medicoId, fecha);
+        }
+        AgendaDia agenda = agenda(medicoId, fecha);
+        int finAgenda = minutos(FIN_AGENDA);
+        List<LocalTime> libres = new ArrayList<>();
+        for (LocalTime slot : slotsDeAgenda()) {
+            int inicio = minutos(slot);
+            if (inicio + duracionMinutos <= finAgenda && agenda.libre(inicio, inicio + duracionMinutos)) {
+                libres.add(slot);
+            }
+        }
+        return libres;
+    }
+
+    // Próximos N turnos libres entre todos los médicos de una especialidad, en la ventana [desde, hasta].
+    // Trae la ocupación de todos los médicos con una sola query y recorre día -> slot -> médico,
+    // así que el resultado sale ordenado por fecha y hora.
+    public List<SlotDisponibleDTO> buscarProximosLibres(String especialidad, LocalDate desde, LocalDate hasta, int cantidad) {
+        if (especialidad == null || especialidad.isBlank()) {
+            throw new RuntimeException("La especialidad es obligatoria.");
+        }
+        if (hasta.isBefore(desde)) {
+            throw new RuntimeException("La fecha 'hasta' no puede ser anterior a 'desde'.");
+        }
+        // La ventana incluye los dos extremos: desde..hasta son DAYS.between + 1 días
+        if (ChronoUnit.DAYS.between(desde, hasta) >= DIAS_MAXIMOS_BUSQUEDA) {
+            throw new RuntimeException("La búsqueda no puede superar los " + DIAS_MAXIMOS_BUSQUEDA + " días.");
+        }
+        int limite = Math.max(1, Math.min(cantidad, CANTIDAD_MAXIMA_BUSQUEDA));
+
+        List<Usuario> medicos = new ArrayList<>(usuarioRepository.findByRolAndEspecialidad(Rol.MEDICO, especialidad));
+        if (medicos.isEmpty()) {
+            return List.of();
+        }
+        medicos.sort(Comparator.comparing(Usuario::getId));
+        List<Long> ids = medicos.stream().map(Usuario::getId).collect(Collectors.toList());
+
+        // medicoId -> (día -> bitmap), armado con una única query de rango
+        Map<Long, Map<LocalDate, Long>> ocupados = new HashMap<>();
+        Map<Long, Map<LocalDate, AgendaDia>> agendas = new HashMap<>();
+        long cargadaEn = reloj.getAsLong();
+        for (HorarioOcupadoDTO h : turnoRepository.findOcupadosPorMedicos(ids, desde.atStartOfDay(), hasta.plusDays(1).atStartOfDay())) {
+            agendas.computeIfAbsent(h.medicoId(), id -> new HashMap<>())
+                    .computeIfAbsent(h.fechaHora().toLocalDate(), dia -> new AgendaDia(cargadaEn))
+                    .agregar(minutos(h.fechaHora().toLocalTime()), minutos(h.fechaHora().toLocalTime()) + h.duracionMinutos());
+        }
+
+        // Aprovechamos la query para precargar el índice (si el día ya estaba, el índice manda)
+        for (Long id : ids) {
+            Map<LocalDate, AgendaDia> diasMedico = agendas.getOrDefault(id, Map.of());
+            for (LocalDate dia = desde; !dia.isAfter(hasta); dia = dia.plusDays(1)) {
+                AgendaDia agenda = indexar(new ClaveDia(id, dia), diasMedico.getOrDefault(dia, new AgendaDia(cargadaEn)));
+                ocupados.computeIfAbsent(id, k -> new HashMap<>()).put(dia, agenda.ocupados());
+            }
+        }
+
+        LocalDateTime ahora = LocalDateTime.now();
+        List<LocalTime> slots = slotsDeAgenda();
+        List<SlotDisponibleDTO> libres = new ArrayList<>();
+
+        for (LocalDate dia = desde; !dia.isAfter(hasta); dia = dia.plusDays(1)) {
+            if (dia.getDayOfWeek() == DayOfWeek.SUNDAY) continue; // La clínica cierra los domingos
+
+            for (LocalTime slot : slots) {
+                LocalDateTime fechaHora = dia.atTime(slot);
+                if (fechaHora.isBefore(ahora)) continue;
+
+                for (Usuario medico : medicos) {
+                    long bitmapDia = ocupados.getOrDefault(medico.getId(), Map.of()).getOrDefault(dia, 0L);
+                    if (!estaEnSlot(slot, bitmapDia)) {
+                        libres.add(new SlotDisponibleDTO(medico.getId(), medico.getNombreCompleto(), medico.getEspecialidad(), fechaHora));
+                        if (libres.size() == limite) {
+                            return libres;
+                        }
+                    }
+                }
+            }
+        }
+        return libres;
+    }
+
+    // Marca el horario como ocupado. Devuelve false si se pisa con otro turno del médico.
+    // Es atómico por (médico, día), así que dos reservas simultáneas en esta instancia no pueden ganar las dos.
+    // Entre nodos distintos lo garantiza la restricción de la base. Si choca con lo que hay en memoria se
+    // recarga el día antes de contestar que no: lo guardado puede estar viejo.
+    public boolean reservar(Long medicoId, LocalDateTime fechaHora) {
+        return reservar(medicoId, fechaHora, MINUTOS_POR_SLOT);
+    }
+
+    public boolean reservar(Long medicoId, LocalDateTime fechaHora, int duracionMinutos) {
+        int inicio = minutos(fechaHora.toLocalTime());
+        AgendaDia agenda = agenda(medicoId, fechaHora.toLocalDate());
+        if (agenda.reservar(inicio, inicio + duracionMinutos, reloj.getAsLong())) {
+            return true;
+        }
+        return recargar(new ClaveDia(medicoId, fechaHora.toLocalDate()), agenda)
+                .reservar(inicio, inicio + duracionMinutos, reloj.getAsLong());
+    }
+
+    // Cambio de horario o de duración de un turno ya guardado. En el mismo día el cambio es atómico;
+    // si cambia de día se toma el nuevo y el viejo se libera recién cuando se confirma (liberar).
+    public boolean reprogramar(Long medicoId, LocalDateTime fechaAnterior, LocalDateTime fechaNueva, int duracionMinutos) {
+        int inicio = minutos(fechaNueva.toLocalTime());
+        if (fechaAnterior.toLocalDate().equals(fechaNueva.toLocalDate())) {
+            int inicioAnterior = minutos(fechaAnterior.toLocalTime());
+            AgendaDia agenda = agenda(medicoId, fechaNueva.toLocalDate());
+            if (agenda.mover(inicioAnterior, inicio, inicio + duracionMinutos, reloj.getAsLong())) {
+                return true;
+            }
+            return recargar(new ClaveDia(medicoId, fechaNueva.toLocalDate()), agenda)
+                    .mover(inicioAnterior, inicio, inicio + duracionMinutos, reloj.getAsLong());
+        }
+        return reservar(medicoId, fechaNueva, duracionMinutos);
+    }
+
+    public void liberar(Long medicoId, LocalDateTime fechaHora) {
+        agenda(medicoId, fechaHora.toLocalDate()).liberar(minutos(fechaHora.toLocalTime()));
+    }
+
+    // Olvida el día para que la próxima consulta lo recargue de la base. Se usa cuando lo que hay en memoria
+    // puede no coincidir con lo guardado (la base rechazó un turno, o se deshizo un cambio de horario).
+    public void descartarDia(Long medicoId, LocalDate fecha) {
+        synchronized (ocupacion) {
+            ocupacion.remove(new ClaveDia(medicoId, fecha));
+        }
+    }
+
+    // Todos los días a las 3 AM sacamos los días que ya pasaron (los libera antes que el tope)
+    @Scheduled(cron = "0 0 3 * * ?")
+    public void limpiarDiasPasados() {
+        LocalDate hoy = LocalDate.now();
+        synchronized (ocupacion) {
+            ocupacion.keySet().removeIf(clave -> clave.fecha().isBefore(hoy));
+        }
+    }
+
+    int getDiasEnMemoria() {
+        synchronized (ocupacion) {
+            return ocupacion.size();
+        }
+    }
+
+    private AgendaDia agenda(Long medicoId, LocalDate fecha) {
+        ClaveDia clave = new ClaveDia(medicoId, fecha);
+        AgendaDia agenda;
+        synchronized (ocupacion) {
+            agenda = ocupacion.get(clave);
+        }
+        if (agenda == null) {
+            // La consulta va afuera del lock: adentro frenaría a todas las consultas (y pinnearía el hilo
+            // virtual) mientras espera a la base. Si dos hilos cargan el mismo día, se queda la primera agenda.
+            return indexar(clave, cargarDia(medicoId, fecha));
+        }
+        if (reloj.getAsLong() - agenda.cargadaEn >= VIGENCIA_DIA_MS) {
+            return recargar(clave, agenda);
+        }
+        return agenda;
+    }
+
+    // Lee el día de nuevo y reemplaza a la agenda vieja. Si mientras tanto otro hilo ya la reemplazó, se usa esa.
+    // Las reservas de esta instancia de los últimos RESERVA_EN_CURSO_MS pasan a la agenda nueva aunque la base
+    // no las tenga (pueden no estar confirmadas); si alguna no llegó a guardarse, decide la base igual que siempre.
+    private AgendaDia recargar(ClaveDia clave, AgendaDia vieja) {
+        AgendaDia nueva = cargarDia(clave.medicoId(), clave.fecha());
+        nueva.heredarReservas(vieja, reloj.getAsLong() - RESERVA_EN_CURSO_MS);
+        synchronized (ocupacion) {
+            AgendaDia actual = ocupacion.get(clave);
+            if (actual == null || actual == vieja) {
+                ocupacion.put(clave, nueva);
+                return nueva;
+            }
+            return actual;
+        }
+    }
+
+    // Guarda la agenda si el día no estaba; si ya estaba devuelve la que había
+    private AgendaDia indexar(ClaveDia clave, AgendaDia agenda) {
+        synchronized (ocupacion) {
+            AgendaDia anterior = ocupacion.putIfAbsent(clave, agenda);
+            return anterior != null ? anterior : agenda;
+        }
+    }
+
+    private AgendaDia cargarDia(Long medicoId, LocalDate fecha) {
+        AgendaDia agenda = new AgendaDia(reloj.getAsLong());
+        for (HorarioOcupadoDTO ocupado : turnoRepository.findHorariosOcupados(medicoId, fecha)) {
+            int inicio = minutos(ocupado.fechaHora().toLocalTime());
+            agenda.agregar(inicio, inicio + ocupado.duracionMinutos());
+        }
+        return agenda;
+    }
+
+    private static int minutos(LocalTime hora) {
+        return hora.getHour() * 60 + hora.getMinute();
+    }
+
+    private static long mascara(LocalTime hora) {
+        return 1L << (minutos(hora) / MINUTOS_POR_SLOT);
+    }
+
+    // Bits de todos los slots de 30 min que toca el intervalo [inicio, fin)
+    private static long mascara(int inicio, int fin) {
+        int primero = inicio / MINUTOS_POR_SLOT;
+        int ultimo = Math.min((Math.max(fin, inicio + 1) - 1) / MINUTOS_POR_SLOT, 63);
+        long bits = 0L;
+        for (int slot = primero; slot <= ultimo; slot++) {
+            bits |= 1L << slot;
+        }
+        return bits;
+    }
+}
@@ -0,0 +1,144 @@
+package com.nico.turnos.service;
+
+import com.nico.turnos.entity.EmailPendiente;
+import com.nico.turnos.entity.EstadoEmail;
+import com.nico.turnos.repository.EmailPendienteRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Vacía el outbox de emails: toma lotes de pendientes, los agrupa de a emailsPorLlamada en llamadas al envío
+// por lote de Brevo (messageVersions), manda esas llamadas en paralelo (con un máximo de llamadas simultáneas
+// y por segundo, para respetar la cuota de Brevo) y reintenta los que fallan con backoff exponencial.
+// Puede correr en varios nodos: cada lote se reclama con FOR UPDATE SKIP LOCKED y, en la misma transacción
+// corta, se le corre proximo_intento RESERVA_MINUTOS hacia adelante. Así ningún otro nodo lo toma mientras se
+// manda (sin tener una conexión a la base abierta durante los envíos). Si el nodo se cae a mitad, los que
+// no llegó a marcar vuelven a estar disponibles cuando vence la reserva.
+@Service
+public class EmailDispatcherService {
+
+    // Tiene que alcanzar para mandar un lote entero, con timeouts y todo
+    private static final long RESERVA_MINUTOS = 5;
+    private static final int MAXIMO_INTENTOS = 6;
+    private static final long BACKOFF_BASE_SEGUNDOS = 30;
+    private static final long BACKOFF_MAXIMO_SEGUNDOS = 60 * 60;
+
+    private final EmailPendienteRepository emailPendienteRepository;
+    private final EmailService emailService;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService executor;
+    private final LimitadorDeTasa limitador;
+    private final int tamanioLote;
+    private final int emailsPorLlamada;
+
+    public EmailDispatcherService(EmailPendienteRepository emailPendienteRepository,
+                                  EmailService emailService,
+                                  PlatformTransactionManager transactionManager,
+                                  @Value("${email.outbox.concurrencia:4}") int concurrencia,
+                                  @Value("${email.outbox.lote:50}") int tamanioLote,
+                                  @Value("${email.outbox.emails-por-llamada:10}") int emailsPorLlamada,
+                                  @Value("${email.outbox.envios-por-segundo:10}") double enviosPorSegundo) {
+        this.emailPendienteRepository = emailPendienteRepository;
+        this.emailService = emailService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.executor = Executors.newFixedThreadPool(concurrencia);
+        this.limitador = new LimitadorDeTasa(enviosPorSegundo, Math.max(1, concurrencia));
+        this.tamanioLote = tamanioLote;
+        this.emailsPorLlamada = Math.max(1, emailsPorLlamada);
+    }
+
+    @Scheduled(fixedDelayString = "${email.outbox.intervalo-ms:5000}")
+    public void despacharPendientes() {
+        List<EmailPendiente> lote;
+        // Seguimos mientras vengan lotes llenos, así un pico de emails no espera al próximo tick
+        do {
+            lote = reclamarLote();
+            if (lote == null || lote.isEmpty()) return;
+            despacharLote(lote);
+        } while (lote.size() == tamanioLote);
+    }
+
+    private List<EmailPendiente> reclamarLote() {
+        return transactionTemplate.execute(status -> {
+            List<EmailPendiente> reclamados = emailPendienteRepository.reclamarParaEnvio(LocalDateTime.now(), tamanioLote);
+            // Entidades administradas: el cambio se guarda al confirmar, junto con la liberación de los locks
+            LocalDateTime reservadoHasta = LocalDateTime.now().plusMinutes(RESERVA_MINUTOS);
+            reclamados.forEach(email -> email.setProximoIntento(reservadoHasta));
+            return reclamados;
+        });
+    }
+
+    void despacharLote(List<EmailPendiente> lote) {
+        List<Callable<List<EmailPendiente>>> envios = new ArrayList<>();
+        for (int i = 0; i < lote.size(); i += emailsPorLlamada) {
+            List<EmailPendiente> grupo = lote.subList(i, Math.min(i + emailsPorLlamada, lote.size()));
+            envios.add(() -> enviar(grupo));
+        }
+
+        try {
+            executor.invokeAll(envios);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        emailPendienteRepository.saveAll(lote);
+    }
+
+    // Una llamada a Brevo con todo el grupo: se envían todos o fallan todos
+    private List<EmailPendiente> enviar(List<EmailPendiente> grupo) {
+        try {
+            limitador.adquirir();
+        } catch (InterruptedException e) {
+            // Nos están apagando: quedan pendientes (se retoman al vencer la reserva), sin contar como intento
+            Thread.currentThread().interrupt();
+            return grupo;
+        }
+
+        try {
+            emailService.enviarLote(grupo);
+            LocalDateTime enviadoEn = LocalDateTime.now();
+            for (EmailPendiente email : grupo) {
+                email.setEstado(EstadoEmail.ENVIADO);
+                email.setEnviadoEn(enviadoEn);
+                email.setUltimoError(null);
+            }
+        } catch (Exception e) {
+            grupo.forEach(email -> registrarFallo(email, e));
+        }
+        return grupo;
+    }
+
+    private void registrarFallo(EmailPendiente email, Exception e) {
+        int intentos = email.getIntentos() + 1;
+        email.setIntentos(intentos);
+        email.setUltimoError(recortar(e.getMessage()));
+
+        if (intentos >= MAXIMO_INTENTOS) {
+            email.setEstado(EstadoEmail.FALLIDO);
+            System.err.println("❌ Email a " + email.getDestinatario() + " descartado tras " + intentos + " intentos: " + e.getMessage());
+        } else {
+            long espera = Math.min(BACKOFF_BASE_SEGUNDOS << (intentos - 1), BACKOFF_MAXIMO_SEGUNDOS);
+            email.setProximoIntento(LocalDateTime.now().plusSeconds(espera));
+            System.err.println("⚠️ Falló el email a " + email.getDestinatario() + " (intento " + intentos + "), reintento en " + espera + "s");
+        }
+    }
+
+    private String recortar(String mensaje) {
+        if (mensaje == null) return null;
+        return mensaje.length() > 500 ? mensaje.substring(0, 500) : mensaje;
+    }
+
+    @PreDestroy
+    public void cerrar() {
+        executor.shutdown();
+    }
+}
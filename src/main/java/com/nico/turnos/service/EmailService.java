@@ -1,10 +1,13 @@
 package com.nico.turnos.service;
 
+import com.nico.turnos.entity.EmailPendiente;
+import com.nico.turnos.repository.EmailPendienteRepository;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestClient;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
@@ -18,36 +21,90 @@ public class EmailService {
     private String senderEmail;
 
     private final RestClient restClient;
+    private final EmailPendienteRepository emailPendienteRepository;
 
-    public EmailService(RestClient.Builder builder) {
-        this.restClient = builder.baseUrl("https://api.brevo.com/v3").build();
+    public EmailService(RestClient.Builder builder,
+                        ClientesHttpExternos clientesHttp,
+                        EmailPendienteRepository emailPendienteRepository,
+                        @Value("${brevo.api.url:https://api.brevo.com/v3}") String brevoUrl) {
+        // Conexiones, timeouts, límite de llamadas y circuit breaker hacia Brevo (http.externo.brevo.*).
+        // Con el circuito abierto enviar() falla enseguida y el dispatcher lo reintenta más tarde.
+        this.restClient = clientesHttp.cliente("brevo").restClient(builder, brevoUrl);
+        this.emailPendienteRepository = emailPendienteRepository;
     }
 
+    // Ya no llama a Brevo en el momento: deja el email en el outbox (dentro de la transacción
+    // del que lo llama, si hay una) y EmailDispatcherService lo manda en segundo plano.
     public void sendEmail(String to, String subject, String content) {
-        try {
-            // Convertimos los saltos de línea a formato HTML para que se vea lindo
-            String htmlContent = "<p>" + content.replace("\n", "<br>") + "</p>";
-
-            Map<String, Object> requestBody = Map.of(
-                "sender", Map.of("name", "Clínica Integral", "email", senderEmail),
-                "to", List.of(Map.of("email", to)),
-                "subject", subject,
-                "htmlContent", htmlContent
-            );
-
-            restClient.post()
-                .uri("/smtp/email")
-                .header("api-key", apiKey)
-                .header("accept", "application/json")
-                .contentType(MediaType.APPLICATION_JSON)
-                .body(requestBody)
-                .retrieve()
-                .toBodilessEntity();
-
-            System.out.println("✅ ÉXITO: Email enviado a " + to + " vía Brevo API");
-
-        } catch (Exception e) {
-            System.err.println("❌ ERROR AL ENVIAR EMAIL a " + to + ": " + e.getMessage());
+        emailPendienteRepository.save(new EmailPendiente(to, subject, content));
+    }
+
+    // Encola varios emails de una vez (una página de recordatorios, por ejemplo)
+    public void sendEmails(List<EmailPendiente> emails) {
+        emailPendienteRepository.saveAll(emails);
+    }
+
+    // Envío real contra la API de Brevo. Lanza excepción si falla para que el dispatcher reintente.
+    public void enviar(String to, String subject, String content) {
+        Map<String, Object> requestBody = Map.of(
+            "sender", remitente(),
+            "to", List.of(Map.of("email", to)),
+            "subject", subject,
+            "htmlContent", html(content)
+        );
+
+        llamarBrevo(requestBody);
+
+        System.out.println("✅ ÉXITO: Email enviado a " + to + " vía Brevo API");
+    }
+
+    // Varios emails distintos en una sola llamada: cada uno va como una "messageVersion" con su destinatario,
+    // asunto y contenido. Brevo acepta o rechaza la llamada entera, así que si falla se reintentan todos.
+    public void enviarLote(List<EmailPendiente> emails) {
+        if (emails.size() == 1) {
+            EmailPendiente email = emails.get(0);
+            enviar(email.getDestinatario(), email.getAsunto(), email.getContenido());
+            return;
+        }
+
+        List<Map<String, Object>> versiones = new ArrayList<>();
+        for (EmailPendiente email : emails) {
+            versiones.add(Map.of(
+                "to", List.of(Map.of("email", email.getDestinatario())),
+                "subject", email.getAsunto(),
+                "htmlContent", html(email.getContenido())
+            ));
         }
+        // El asunto y el contenido de afuera son obligatorios; cada versión los reemplaza con los suyos
+        Map<String, Object> requestBody = Map.of(
+            "sender", remitente(),
+            "subject", emails.get(0).getAsunto(),
+            "htmlContent", html(emails.get(0).getContenido()),
+            "messageVersions", versiones
+        );
+
+        llamarBrevo(requestBody);
+
+        System.out.println("✅ ÉXITO: " + emails.size() + " emails enviados en un lote vía Brevo API");
+    }
+
+    private Map<String, String> remitente() {
+        return Map.of("name", "Clínica Integral", "email", senderEmail);
+    }
+
+    // Convertimos los saltos de línea a formato HTML para que se vea lindo
+    private static String html(String content) {
+        return "<p>" + content.replace("\n", "<br>") + "</p>";
+    }
+
+    private void llamarBrevo(Map<String, Object> requestBody) {
+        restClient.post()
+            .uri("/smtp/email")
+            .header("api-key", apiKey)
+            .header("accept", "application/json")
+            .contentType(MediaType.APPLICATION_JSON)
+            .body(requestBody)
+            .retrieve()
+            .toBodilessEntity();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,168 @@
+package com.nico.turnos.service;
+
+import com.nico.turnos.dto.PuntoSerieDTO;
+import com.nico.turnos.entity.CambioEstadistica;
+import com.nico.turnos.entity.Turno;
+import com.nico.turnos.repository.CambioEstadisticaRepository;
+import com.nico.turnos.repository.EstadisticaDiariaRepository;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+// Series de tiempo (reservas, asistencias, cancelaciones) sobre la tabla de resumen estadistica_diaria.
+// TurnoService anota cada cambio de turno en estadistica_cambio (un INSERT suelto, sin tocar filas compartidas);
+// un job periódico recalcula solo los días anotados contra turno, suma las cancelaciones y los vuelca con un
+// upsert. Las consultas del dashboard leen el resumen, nunca turno.
+@Service
+public class EstadisticaDiariaService {
+
+    public enum Granularidad { DIA, SEMANA, MES }
+
+    private static final int CAMBIOS_POR_LOTE = 500;
+    // Clave del advisory lock de Postgres que toma el job (cualquier número fijo que no use otro lock)
+    private static final long CLAVE_LOCK_JOB = 2_025_031_001L;
+    private static final int DIAS_MAXIMOS_SERIE = 3 * 366;
+
+    private final EstadisticaDiariaRepository estadisticaDiariaRepository;
+    private final CambioEstadisticaRepository cambioRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    private volatile boolean inicializado;
+
+    public EstadisticaDiariaService(EstadisticaDiariaRepository estadisticaDiariaRepository,
+                                    CambioEstadisticaRepository cambioRepository,
+                                    PlatformTransactionManager transactionManager) {
+        this.estadisticaDiariaRepository = estadisticaDiariaRepository;
+        this.cambioRepository = cambioRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    // --- Marcas (dentro de la transacción de TurnoService) ---
+    // Solo insertan una fila nueva: no esperan a otras reservas del mismo día ni al job, y no pueden
+    // trabarse entre sí aunque un turno se mueva de un día a otro.
+
+    public void marcarDia(LocalDate dia) {
+        cambioRepository.save(new CambioEstadistica(dia));
+    }
+
+    public void registrarCancelacion(Turno turno) {
+        cambioRepository.save(new CambioEstadistica(turno.getFechaHora().toLocalDate(), turno.getMedicoId(),
+                turno.getEspecialidad() != null ? turno.getEspecialidad() : ""));
+    }
+
+    // --- Job incremental ---
+
+    @Scheduled(fixedDelayString = "${estadisticas.rollup.intervalo-ms:60000}")
+    public void procesarPendientes() {
+        if (!inicializado) {
+            // Primera vez con la tabla vacía: hay que volcar toda la historia
+            transactionTemplate.executeWithoutResult(status -> {
+                if (estadisticaDiariaRepository.count() == 0) {
+                    int dias = cambioRepository.marcarTodosLosDias();
+                    System.out.println("📊 Carga inicial de estadísticas: " + dias + " días pendientes");
+                }
+            });
+            inicializado = true;
+        }
+
+        Integer procesados;
+        do {
+            procesados = transactionTemplate.execute(status -> procesarLote());
+        } while (procesados != null && procesados == CAMBIOS_POR_LOTE);
+    }
+
+    // Si otro nodo está procesando no hace nada: lo que quede lo toma él o la próxima vuelta
+    private int procesarLote() {
+        if (!cambioRepository.tomarLockDelJob(CLAVE_LOCK_JOB)) {
+            return 0;
+        }
+        List<CambioEstadistica> cambios = cambioRepository.reclamar(CAMBIOS_POR_LOTE);
+
+        Map<ClaveCancelacion, Long> cancelaciones = cambios.stream()
+                .filter(CambioEstadistica::isCancelacion)
+                .collect(Collectors.groupingBy(
+                        c -> new ClaveCancelacion(c.getFecha(), c.getMedicoId(), c.getEspecialidad()),
+                        Collectors.counting()));
+        cancelaciones.forEach((clave, cantidad) -> estadisticaDiariaRepository.sumarCancelaciones(
+                clave.fecha(), clave.medicoId(), clave.especialidad(), cantidad));
+
+        Set<LocalDate> dias = new TreeSet<>();
+        cambios.forEach(c -> dias.add(c.getFecha()));
+        for (LocalDate dia : dias) {
+            estadisticaDiariaRepository.reiniciarDia(dia);
+            estadisticaDiariaRepository.recalcularRango(dia.atStartOfDay(), dia.plusDays(1).atStartOfDay());
+        }
+        // Solo los leídos: los que se confirmaron mientras tanto quedan para la vuelta siguiente
+        cambioRepository.deleteAllInBatch(cambios);
+        return cambios.size();
+    }
+
+    private record ClaveCancelacion(LocalDate fecha, Long medicoId, String especialidad) {}
+
+    // --- Consultas ---
+
+    public static Granularidad granularidad(String valor) {
+        try {
+            return Granularidad.valueOf(valor.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException("Granularidad inválida: usá dia, semana o mes.");
+        }
+    }
+
+    // Serie con un punto por período (incluye los períodos vacíos, para que el gráfico no tenga huecos)
+    public List<PuntoSerieDTO> serie(Granularidad granularidad, LocalDate desde, LocalDate hasta, Long medicoId, String especialidad) {
+        if (hasta.isBefore(desde)) {
+            throw new RuntimeException("La fecha 'hasta' no puede ser anterior a 'desde'.");
+        }
+        if (ChronoUnit.DAYS.between(desde, hasta) > DIAS_MAXIMOS_SERIE) {
+            throw new RuntimeException("El rango no puede superar los " + DIAS_MAXIMOS_SERIE + " días.");
+        }
+
+        Map<LocalDate, long[]> acumulado = new LinkedHashMap<>();
+        for (LocalDate periodo = inicioPeriodo(desde, granularidad); !periodo.isAfter(hasta); periodo = siguiente(periodo, granularidad)) {
+            acumulado.put(periodo, new long[3]);
+        }
+
+        String filtroEspecialidad = especialidad == null || especialidad.isBlank() ? null : especialidad;
+        for (PuntoSerieDTO dia : estadisticaDiariaRepository.totalesPorDia(desde, hasta, medicoId, filtroEspecialidad)) {
+            long[] totales = acumulado.get(inicioPeriodo(dia.periodo(), granularidad));
+            totales[0] += dia.reservas();
+            totales[1] += dia.asistencias();
+            totales[2] += dia.cancelaciones();
+        }
+
+        List<PuntoSerieDTO> serie = new ArrayList<>(acumulado.size());
+        acumulado.forEach((periodo, t) -> serie.add(new PuntoSerieDTO(periodo, t[0], t[1], t[2])));
+        return serie;
+    }
+
+    private static LocalDate inicioPeriodo(LocalDate dia, Granularidad granularidad) {
+        return switch (granularidad) {
+            case DIA -> dia;
+            case SEMANA -> dia.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            case MES -> dia.withDayOfMonth(1);
+        };
+    }
+
+    private static LocalDate siguiente(LocalDate periodo, Granularidad granularidad) {
+        return switch (granularidad) {
+            case DIA -> periodo.plusDays(1);
+            case SEMANA -> periodo.plusWeeks(1);
+            case MES -> periodo.plusMonths(1);
+        };
+    }
+}
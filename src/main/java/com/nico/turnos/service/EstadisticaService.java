@@ -0,0 +1,205 @@
+package com.nico.turnos.service;
+
+import com.nico.turnos.dto.ConteoTurnosDTO;
+import com.nico.turnos.dto.EstadisticaDTO;
+import com.nico.turnos.dto.ProfesionalDTO;
+import com.nico.turnos.dto.TotalesResumenDTO;
+import com.nico.turnos.entity.Turno;
+import com.nico.turnos.repository.EstadisticaDiariaRepository;
+import com.nico.turnos.repository.TurnoRepository;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Contadores del dashboard en memoria (por especialidad, asistencia, médico y día).
+// TurnoService los ajusta en cada alta / cambio / baja confirmada, así que leer el dashboard no toca la base.
+// Por día solo se guardan los últimos DIAS_POR_DIA (y los que vienen); los anteriores solo suman en los totales.
+// Cada tanto se recalculan enteros para corregir cualquier desvío (cambios hechos a mano en la base, otro nodo,
+// o un incremento que cayó justo mientras se reconciliaba): los días viejos salen de la tabla de resumen
+// estadistica_diaria y solo los de la ventana se agrupan sobre turno.
+@Service
+public class EstadisticaService {
+
+    // Días hacia atrás (contando hoy) que se cuentan uno por uno: los que muestra el dashboard
+    public static final int DIAS_POR_DIA = 14;
+
+    private static final String ASISTIO = "Asistió";
+    private static final String PENDIENTE = "Pendiente";
+
+    // Lo que cuenta de un turno para las estadísticas. TurnoService la toma antes de modificar la entidad.
+    public record ClaveTurno(String especialidad, boolean asistio, Long medicoId, LocalDate dia) {
+        public static ClaveTurno de(Turno turno) {
+            return new ClaveTurno(turno.getEspecialidad(), turno.isAsistio(), turno.getMedicoId(),
+                    turno.getFechaHora() != null ? turno.getFechaHora().toLocalDate() : null);
+        }
+    }
+
+    private static final class Contadores {
+        // Primer día que se guarda en porDia
+        final LocalDate inicioVentana;
+        final Map<String, LongAdder> porEspecialidad = new ConcurrentHashMap<>();
+        final Map<Boolean, LongAdder> porAsistencia = new ConcurrentHashMap<>();
+        final Map<Long, LongAdder> porMedico = new ConcurrentHashMap<>();
+        final Map<LocalDate, LongAdder> porDia = new ConcurrentHashMap<>();
+
+        Contadores(LocalDate inicioVentana) {
+            this.inicioVentana = inicioVentana;
+        }
+
+        void sumar(ClaveTurno clave, long delta) {
+            // Igual que el GROUP BY original: los turnos sin especialidad no cuentan en ese gráfico
+            if (clave.especialidad() != null) sumar(porEspecialidad, clave.especialidad(), delta);
+            sumar(porAsistencia, clave.asistio(), delta);
+            if (clave.medicoId() != null) sumar(porMedico, clave.medicoId(), delta);
+            if (clave.dia() != null && !clave.dia().isBefore(inicioVentana)) sumar(porDia, clave.dia(), delta);
+        }
+
+        private static <K> void sumar(Map<K, LongAdder> mapa, K clave, long delta) {
+            mapa.computeIfAbsent(clave, k -> new LongAdder()).add(delta);
+        }
+    }
+
+    private final TurnoRepository turnoRepository;
+    private final EstadisticaDiariaRepository estadisticaDiariaRepository;
+    private final CatalogoMedicosService catalogoMedicosService;
+
+    // null hasta la primera carga; la reconciliación reemplaza el objeto entero
+    private volatile Contadores contadores;
+    // Lock y no synchronized: la primera carga consulta la base, y un hilo virtual bloqueado adentro de un
+    // synchronized queda "pinneado" a su hilo de plataforma
+    private final ReentrantLock cargaInicial = new ReentrantLock();
+
+    public EstadisticaService(TurnoRepository turnoRepository,
+                              EstadisticaDiariaRepository estadisticaDiariaRepository,
+                              CatalogoMedicosService catalogoMedicosService) {
+        this.turnoRepository = turnoRepository;
+        this.estadisticaDiariaRepository = estadisticaDiariaRepository;
+        this.catalogoMedicosService = catalogoMedicosService;
+    }
+
+    // --- Actualizaciones (se llaman después del commit) ---
+
+    public void registrarAlta(ClaveTurno clave) {
+        Contadores actuales = contadores;
+        // Si todavía no se cargó, la primera carga ya va a leer este turno de la base
+        if (actuales != null) actuales.sumar(clave, 1);
+    }
+
+    public void registrarBaja(ClaveTurno clave) {
+        Contadores actuales = contadores;
+        if (actuales != null) actuales.sumar(clave, -1);
+    }
+
+    public void registrarCambio(ClaveTurno antes, ClaveTurno despues) {
+        if (antes.equals(despues)) return;
+        Contadores actuales = contadores;
+        if (actuales != null) {
+            actuales.sumar(antes, -1);
+            actuales.sumar(despues, 1);
+        }
+    }
+
+    // --- Lecturas ---
+
+    public List<EstadisticaDTO> conteoPorEspecialidad() {
+        return aLista(cargados().porEspecialidad);
+    }
+
+    public List<EstadisticaDTO> conteoPorAsistencia() {
+        List<EstadisticaDTO> resultado = new ArrayList<>();
+        cargados().porAsistencia.forEach((asistio, cantidad) -> {
+            long valor = cantidad.sum();
+            if (valor > 0) resultado.add(new EstadisticaDTO(asistio ? ASISTIO : PENDIENTE, valor));
+        });
+        return resultado;
+    }
+
+    // Por nombre del médico (sale del catálogo en memoria); si ya no está en el catálogo, por id
+    public List<EstadisticaDTO> conteoPorMedico() {
+        Map<Long, String> nombres = new HashMap<>();
+        for (ProfesionalDTO profesional : catalogoMedicosService.profesionales().datos()) {
+            nombres.put(profesional.id(), profesional.nombreCompleto());
+        }
+        List<EstadisticaDTO> resultado = new ArrayList<>();
+        cargados().porMedico.forEach((medicoId, cantidad) -> {
+            long valor = cantidad.sum();
+            String nombre = nombres.get(medicoId);
+            if (valor > 0) resultado.add(new EstadisticaDTO(nombre != null ? nombre : "Médico " + medicoId, valor));
+        });
+        return resultado;
+    }
+
+    // Turnos por día en [desde, hasta], incluyendo los días sin turnos.
+    // Solo cubre los últimos DIAS_POR_DIA días (los anteriores dan 0); para rangos más largos está /api/stats/series.
+    public List<EstadisticaDTO> conteoPorDia(LocalDate desde, LocalDate hasta) {
+        Map<LocalDate, LongAdder> porDia = cargados().porDia;
+        List<EstadisticaDTO> resultado = new ArrayList<>();
+        for (LocalDate dia = desde; !dia.isAfter(hasta); dia = dia.plusDays(1)) {
+            LongAdder cantidad = porDia.get(dia);
+            resultado.add(new EstadisticaDTO(dia.toString(), cantidad != null ? cantidad.sum() : 0L));
+        }
+        return resultado;
+    }
+
+    // --- Reconciliación ---
+
+    @Scheduled(fixedDelayString = "${estadisticas.reconciliacion-ms:900000}",
+               initialDelayString = "${estadisticas.reconciliacion-ms:900000}")
+    public void reconciliar() {
+        contadores = cargarDeLaBase();
+    }
+
+    private Contadores cargados() {
+        Contadores actuales = contadores;
+        if (actuales == null) {
+            cargaInicial.lock();
+            try {
+                actuales = contadores;
+                if (actuales == null) {
+                    actuales = cargarDeLaBase();
+                    contadores = actuales;
+                }
+            } finally {
+                cargaInicial.unlock();
+            }
+        }
+        return actuales;
+    }
+
+    private Contadores cargarDeLaBase() {
+        LocalDate inicioVentana = LocalDate.now().minusDays(DIAS_POR_DIA - 1);
+        Contadores nuevos = new Contadores(inicioVentana);
+        // Antes de la ventana: lo que ya tiene el resumen (puede atrasarse un minuto en un día que se acaba de
+        // tocar; lo corrige la próxima reconciliación). En el resumen los turnos sin especialidad quedan con ''.
+        for (TotalesResumenDTO fila : estadisticaDiariaRepository.totalesAntesDe(inicioVentana)) {
+            String especialidad = fila.especialidad() == null || fila.especialidad().isEmpty() ? null : fila.especialidad();
+            long asistencias = fila.asistencias() != null ? fila.asistencias() : 0L;
+            long reservas = fila.reservas() != null ? fila.reservas() : 0L;
+            nuevos.sumar(new ClaveTurno(especialidad, true, fila.medicoId(), null), asistencias);
+            nuevos.sumar(new ClaveTurno(especialidad, false, fila.medicoId(), null), reservas - asistencias);
+        }
+        // La ventana (y los turnos futuros) se cuentan sobre turno: es un rango del índice por fecha
+        for (ConteoTurnosDTO fila : turnoRepository.conteoAgrupadoDesde(inicioVentana.atStartOfDay())) {
+            ClaveTurno clave = new ClaveTurno(fila.especialidad(), Boolean.TRUE.equals(fila.asistio()), fila.medicoId(), fila.dia());
+            nuevos.sumar(clave, fila.cantidad());
+        }
+        return nuevos;
+    }
+
+    private static <K> List<EstadisticaDTO> aLista(Map<K, LongAdder> mapa) {
+        List<EstadisticaDTO> resultado = new ArrayList<>();
+        mapa.forEach((clave, cantidad) -> {
+            long valor = cantidad.sum();
+            if (valor > 0) resultado.add(new EstadisticaDTO(String.valueOf(clave), valor));
+        });
+        return resultado;
+    }
+}
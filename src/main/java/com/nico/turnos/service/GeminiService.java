@@ -1,24 +1,59 @@
 package com.nico.turnos.service;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestClient;
 
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.function.Consumer;
 
 @Service
-public class GeminiService { 
+public class GeminiService {
+
+    private static final String MODELO = "llama-3.1-8b-instant";
+    public static final String SIN_RESPUESTA = "Sin respuesta del modelo.";
+    public static final String NO_DISPONIBLE = "El asistente virtual no está disponible en este momento.";
 
     @Value("${spring.ai.google.ai.api-key}")
     private String apiKey;
 
     private final RestClient restClient;
+    private final String groqUrl;
+    // Conexiones, timeouts, límite de llamadas simultáneas y circuit breaker hacia Groq (http.externo.groq.*).
+    // Si Groq anda mal el chat falla rápido en lugar de dejar hilos colgados.
+    private final ClienteHttpExterno groq;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    // Respuestas a preguntas sueltas (las de FAQ se repiten mucho). Es por instancia.
+    private final CacheDeRespuestasChat cacheRespuestas;
+
+    public GeminiService(RestClient.Builder builder,
+                         ClientesHttpExternos clientesHttp,
+                         @Value("${groq.api.url:https://api.groq.com/openai/v1}") String groqUrl,
+                         @Value("${chat.cache.maximo-entradas:500}") int cacheMaximoEntradas,
+                         @Value("${chat.cache.ttl-ms:3600000}") long cacheTtlMs) {
+        this.groq = clientesHttp.cliente("groq");
+        this.restClient = groq.restClient(builder, groqUrl);
+        this.groqUrl = groqUrl;
+        this.cacheRespuestas = new CacheDeRespuestasChat(cacheMaximoEntradas, cacheTtlMs);
+    }
+
+    public CacheDeRespuestasChat getCacheRespuestas() {
+        return cacheRespuestas;
+    }
 
-    public GeminiService(RestClient.Builder builder) {
-        this.restClient = builder.baseUrl("https://api.groq.com/openai/v1").build();
+    public ClienteHttpExterno.Metricas getMetricasGroq() {
+        return groq.getMetricas();
     }
 
     // Método 1: Para el reporte PDF (Le armamos un historial falso de 1 solo mensaje)
@@ -29,24 +64,15 @@ public class GeminiService {
 
     // Método 2: Para el Chatbot (Recibe el historial completo)
     public String preguntarAGemini(List<Map<String, String>> historial, String contexto) {
-        
-        String systemPrompt = "Sos el asistente virtual de la Clínica Integral. Respondé de forma amable, natural, corta y útil en español. " +
-                              "INFORMACIÓN IMPORTANTE PARA RESPONDER AL PACIENTE: " + contexto;
-
-        // Armamos la lista de mensajes dinámica
-        List<Map<String, String>> messages = new ArrayList<>();
-        
-        // 1. Siempre ponemos las reglas del sistema primero
-        messages.add(Map.of("role", "system", "content", systemPrompt));
-        
-        // 2. Agregamos todos los mensajes anteriores y el actual
-        if (historial != null) {
-            messages.addAll(historial);
+        String clave = claveDeCache(historial, contexto);
+        if (clave != null) {
+            String guardada = cacheRespuestas.obtener(clave);
+            if (guardada != null) return guardada;
         }
 
         var requestBody = Map.of(
-            "model", "llama-3.1-8b-instant", 
-            "messages", messages
+            "model", MODELO,
+            "messages", armarMensajes(historial, contexto)
         );
 
         try {
@@ -62,13 +88,214 @@ public class GeminiService {
                 List<Map<String, Object>> choices = (List<Map<String, Object>>) response.get("choices");
                 if (!choices.isEmpty()) {
                     Map<String, Object> message = (Map<String, Object>) choices.get(0).get("message");
-                    return (String) message.get("content");
+                    String respuesta = (String) message.get("content");
+                    // Solo se guardan respuestas reales, nunca los mensajes de error de acá abajo
+                    if (clave != null && respuesta != null) cacheRespuestas.guardar(clave, respuesta);
+                    return respuesta;
                 }
             }
-            return "Sin respuesta del modelo.";
+            return SIN_RESPUESTA;
         } catch (Exception e) {
             System.err.println("❌ Error en Groq: " + e.getMessage());
-            return "El asistente virtual no está disponible en este momento.";
+            return NO_DISPONIBLE;
+        }
+    }
+
+    // false para los mensajes de error que devuelve preguntarAGemini en lugar de una respuesta del modelo
+    public static boolean esRespuestaDelModelo(String respuesta) {
+        return respuesta != null && !respuesta.equals(SIN_RESPUESTA) && !respuesta.equals(NO_DISPONIBLE);
+    }
+
+    // Método 3: Para el chat en streaming. Pide la respuesta con "stream": true y llama a alFragmento con cada
+    // pedazo de texto apenas llega. El future se completa con el texto entero al terminar, o con el error.
+    // Si alFragmento tira una excepción (ej: el cliente cerró la conexión) o el future se cancela o se completa
+    // con error desde afuera (ej: un timeout) se corta la descarga y se cierra la conexión con Groq.
+    // Un timeout cuenta como falla de Groq para el circuit breaker; una cancelación no cuenta ni para un lado ni
+    // para el otro.
+    // Si la respuesta está en la cache se entrega entera como un único fragmento.
+    // Usa el cliente HTTP del JDK, que entrega la respuesta de a líneas a medida que llega, sin dejar un hilo
+    // esperando mientras el modelo genera. El lugar en el límite de Groq se ocupa hasta que termina el stream.
+    public CompletableFuture<String> preguntarEnStreaming(List<Map<String, String>> historial, String contexto,
+                                                          Consumer<String> alFragmento) {
+        String clave = claveDeCache(historial, contexto);
+        if (clave != null) {
+            String guardada = cacheRespuestas.obtener(clave);
+            if (guardada != null) {
+                try {
+                    alFragmento.accept(guardada);
+                    return CompletableFuture.completedFuture(guardada);
+                } catch (RuntimeException e) {
+                    return CompletableFuture.failedFuture(e);
+                }
+            }
+        }
+
+        byte[] cuerpo;
+        try {
+            cuerpo = objectMapper.writeValueAsBytes(Map.of(
+                    "model", MODELO,
+                    "messages", armarMensajes(historial, contexto),
+                    "stream", true));
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        ClienteHttpExterno.Permiso permiso;
+        try {
+            permiso = groq.entrar();
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        HttpRequest request = HttpRequest.newBuilder(URI.create(groqUrl + "/chat/completions"))
+                .timeout(groq.getTimeoutLectura()) // Hasta que llegan los headers; el cuerpo puede tardar más
+                .header("Authorization", "Bearer " + apiKey)
+                .header("Content-Type", MediaType.APPLICATION_JSON_VALUE)
+                .header("Accept", MediaType.TEXT_EVENT_STREAM_VALUE)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(cuerpo))
+                .build();
+
+        LectorDeEventos lector = new LectorDeEventos(alFragmento, clave);
+        CompletableFuture<HttpResponse<Void>> envio =
+                groq.getHttpClient().sendAsync(request, HttpResponse.BodyHandlers.fromLineSubscriber(lector));
+        envio.whenComplete((respuesta, error) -> {
+            permiso.terminar(error == null && !ClienteHttpExterno.esFallaDelDestino(respuesta.statusCode()));
+            if (error != null) {
+                lector.resultado.completeExceptionally(error);
+            } else if (respuesta.statusCode() >= 300) {
+                lector.resultado.completeExceptionally(
+                        new RuntimeException("Groq respondió HTTP " + respuesta.statusCode()));
+            } else {
+                // Sin "[DONE]" (el servidor cortó antes): damos por bueno lo que llegó
+                lector.terminar();
+            }
+        });
+        // Si el resultado se completa antes que el envío ("[DONE]", cancelado o vencido desde afuera, error leyendo)
+        // se libera el lugar ya y, si no terminó bien, se corta el intercambio: un Groq colgado que no manda
+        // más líneas no se queda con la conexión abierta.
+        lector.resultado.whenComplete((texto, error) -> {
+            if (error == null) {
+                permiso.terminar(true);
+                return;
+            }
+            if (error instanceof CancellationException || lector.consumidorCerrado) {
+                permiso.cancelar();
+            } else {
+                permiso.terminar(false);
+            }
+            lector.cortar();
+            envio.cancel(true);
+        });
+        return lector.resultado;
+    }
+
+    // Solo se cachea una pregunta suelta del usuario: con conversación previa la respuesta depende de todo el
+    // historial y casi nunca se repite. null = no usar la cache.
+    private String claveDeCache(List<Map<String, String>> historial, String contexto) {
+        if (historial == null || historial.size() != 1 || !"user".equals(historial.get(0).get("role"))) {
+            cacheRespuestas.registrarOmitida();
+            return null;
+        }
+        return CacheDeRespuestasChat.clave(historial.get(0).get("content"), contexto);
+    }
+
+    private List<Map<String, String>> armarMensajes(List<Map<String, String>> historial, String contexto) {
+        String systemPrompt = "Sos el asistente virtual de la Clínica Integral. Respondé de forma amable, natural, corta y útil en español. " +
+                              "INFORMACIÓN IMPORTANTE PARA RESPONDER AL PACIENTE: " + contexto;
+
+        // Armamos la lista de mensajes dinámica
+        List<Map<String, String>> messages = new ArrayList<>();
+
+        // 1. Siempre ponemos las reglas del sistema primero
+        messages.add(Map.of("role", "system", "content", systemPrompt));
+
+        // 2. Agregamos todos los mensajes anteriores y el actual
+        if (historial != null) {
+            messages.addAll(historial);
+        }
+        return messages;
+    }
+
+    // Lee el stream de eventos de /chat/completions: líneas "data: {json}" con el pedazo de texto en
+    // choices[0].delta.content, y "data: [DONE]" al final. Las llamadas llegan en orden desde el HttpClient.
+    private class LectorDeEventos implements Flow.Subscriber<String> {
+
+        private final Consumer<String> alFragmento;
+        private final String claveCache;
+        private final StringBuilder texto = new StringBuilder();
+        private final CompletableFuture<String> resultado = new CompletableFuture<>();
+        private volatile Flow.Subscription subscription;
+        // El que recibía los fragmentos dejó de aceptarlos: el corte es nuestro, no de Groq
+        private volatile boolean consumidorCerrado;
+
+        LectorDeEventos(Consumer<String> alFragmento, String claveCache) {
+            this.alFragmento = alFragmento;
+            this.claveCache = claveCache;
+        }
+
+        // Se guarda en la cache antes de completar, así el que espera el resultado ya la encuentra cargada
+        void terminar() {
+            if (resultado.isDone()) return;
+            String completo = texto.toString();
+            if (claveCache != null && !completo.isEmpty()) cacheRespuestas.guardar(claveCache, completo);
+            resultado.complete(completo);
+        }
+
+        // Deja de leer y libera la conexión (si todavía no llegaron los headers lo corta envio.cancel)
+        void cortar() {
+            Flow.Subscription actual = subscription;
+            if (actual != null) actual.cancel();
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            if (resultado.isDone() && resultado.isCompletedExceptionally()) {
+                subscription.cancel();
+                return;
+            }
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(String linea) {
+            if (resultado.isCompletedExceptionally()) {
+                subscription.cancel(); // El que pidió la respuesta ya no la quiere (timeout, cliente desconectado)
+                return;
+            }
+            if (resultado.isDone() || !linea.startsWith("data:")) {
+                return; // Líneas vacías (separan eventos) y comentarios ": keep-alive"
+            }
+            String datos = linea.substring(5).trim();
+            try {
+                if ("[DONE]".equals(datos)) {
+                    terminar();
+                    return;
+                }
+                JsonNode fragmento = objectMapper.readTree(datos).path("choices").path(0).path("delta").path("content");
+                if (fragmento.isTextual() && !fragmento.asText().isEmpty()) {
+                    texto.append(fragmento.asText());
+                    try {
+                        alFragmento.accept(fragmento.asText());
+                    } catch (RuntimeException e) {
+                        consumidorCerrado = true;
+                        throw e;
+                    }
+                }
+            } catch (Exception e) {
+                resultado.completeExceptionally(e);
+                subscription.cancel();
+            }
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            resultado.completeExceptionally(error);
+        }
+
+        @Override
+        public void onComplete() {
+            // El resultado lo completa sendAsync, que además conoce el status de la respuesta
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,38 @@
+package com.nico.turnos.service;
+
+import java.util.concurrent.TimeUnit;
+
+// Token bucket simple: deja pasar hasta "porSegundo" operaciones por segundo, con ráfagas de hasta
+// "capacidad". Cada hilo reserva su token adentro del lock y duerme afuera, así no bloquea a los demás.
+public class LimitadorDeTasa {
+
+    private final double capacidad;
+    private final double tokensPorNano;
+    private double tokens;
+    private long ultimaRecarga;
+
+    public LimitadorDeTasa(double porSegundo, double capacidad) {
+        if (porSegundo <= 0 || capacidad < 1) {
+            throw new IllegalArgumentException("La tasa y la capacidad deben ser positivas");
+        }
+        this.capacidad = capacidad;
+        this.tokensPorNano = porSegundo / TimeUnit.SECONDS.toNanos(1);
+        this.tokens = capacidad;
+        this.ultimaRecarga = System.nanoTime();
+    }
+
+    public void adquirir() throws InterruptedException {
+        long espera;
+        synchronized (this) {
+            long ahora = System.nanoTime();
+            tokens = Math.min(capacidad, tokens + (ahora - ultimaRecarga) * tokensPorNano);
+            ultimaRecarga = ahora;
+            // Si queda negativo es una "deuda": el hilo espera lo que tarda en reponerse
+            tokens -= 1;
+            espera = tokens >= 0 ? 0 : (long) Math.ceil(-tokens / tokensPorNano);
+        }
+        if (espera > 0) {
+            TimeUnit.NANOSECONDS.sleep(espera);
+        }
+    }
+}
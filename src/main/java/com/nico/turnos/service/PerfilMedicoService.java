@@ -0,0 +1,56 @@
+package com.nico.turnos.service;
+
+import com.nico.turnos.entity.Usuario;
+import com.nico.turnos.repository.UsuarioRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Nombre y especialidad de cada médico, que se copian en cada turno al reservar.
+// Cambian muy poco, así que los guardamos un rato en memoria en vez de leer el Usuario en cada reserva.
+// UsuarioController invalida la entrada cuando el admin edita o borra al usuario.
+@Service
+public class PerfilMedicoService {
+
+    public record PerfilMedico(Long id, String nombreCompleto, String especialidad) {}
+
+    private record Entrada(PerfilMedico perfil, long venceEn) {}
+
+    private static final int MAXIMO_ENTRADAS = 1000;
+
+    private final UsuarioRepository usuarioRepository;
+    private final long ttlMs;
+    private final Map<Long, Entrada> perfiles = new ConcurrentHashMap<>();
+
+    public PerfilMedicoService(UsuarioRepository usuarioRepository,
+                               @Value("${medicos.perfil.ttl-ms:300000}") long ttlMs) {
+        this.usuarioRepository = usuarioRepository;
+        this.ttlMs = ttlMs;
+    }
+
+    public PerfilMedico obtener(Long medicoId) {
+        long ahora = System.currentTimeMillis();
+        Entrada entrada = perfiles.get(medicoId);
+        if (entrada != null && entrada.venceEn() > ahora) {
+            return entrada.perfil();
+        }
+
+        Usuario medico = usuarioRepository.findById(medicoId)
+                .orElseThrow(() -> new RuntimeException("Médico no encontrado"));
+        PerfilMedico perfil = new PerfilMedico(medico.getId(), medico.getNombreCompleto(), medico.getEspecialidad());
+
+        if (perfiles.size() >= MAXIMO_ENTRADAS) {
+            perfiles.values().removeIf(e -> e.venceEn() <= ahora);
+        }
+        if (perfiles.size() < MAXIMO_ENTRADAS) {
+            perfiles.put(medicoId, new Entrada(perfil, ahora + ttlMs));
+        }
+        return perfil;
+    }
+
+    public void invalidar(Long medicoId) {
+        perfiles.remove(medicoId);
+    }
+}
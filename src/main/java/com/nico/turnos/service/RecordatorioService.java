@@ -1,63 +1,141 @@
 package com.nico.turnos.service;
 
+import com.nico.turnos.dto.ResultadoRecordatoriosDTO;
+import com.nico.turnos.entity.EmailPendiente;
+import com.nico.turnos.entity.RegistroRecordatorio;
+import com.nico.turnos.entity.TipoRecordatorio;
 import com.nico.turnos.entity.Turno;
+import com.nico.turnos.repository.RegistroRecordatorioRepository;
 import com.nico.turnos.repository.TurnoRepository;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 @Service
 public class RecordatorioService {
 
+    private static final int TAMANIO_PAGINA = 200;
+
     private final TurnoRepository turnoRepository;
+    private final RegistroRecordatorioRepository registroRecordatorioRepository;
     private final EmailService emailService;
+    private final TransactionTemplate transactionTemplate;
+
+    // La última corrida que procesó algo (o tuvo lotes fallidos). Las repeticiones cada 30 min casi nunca encuentran
+    // nada y no la pisan, así las métricas muestran la corrida que hizo el trabajo del día.
+    private volatile ResultadoRecordatoriosDTO ultimaEjecucion;
 
-    public RecordatorioService(TurnoRepository turnoRepository, EmailService emailService) {
+    public RecordatorioService(TurnoRepository turnoRepository,
+                               RegistroRecordatorioRepository registroRecordatorioRepository,
+                               EmailService emailService,
+                               PlatformTransactionManager transactionManager) {
         this.turnoRepository = turnoRepository;
+        this.registroRecordatorioRepository = registroRecordatorioRepository;
         this.emailService = emailService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
 
-    // 👇 AHORA SE EJECUTA SOLO UNA VEZ AL DÍA A LAS 8:00 AM
-    @Scheduled(cron = "0 0 8 * * ?") 
+    // 👇 ARRANCA A LAS 8:00 AM Y SE REPITE CADA 30 MIN HASTA LAS 20:30.
+    // Como cada turno queda registrado al procesarse, las repeticiones solo toman lo que quedó
+    // pendiente (por ejemplo, si la app se reinició a mitad de la corrida de las 8).
+    @Scheduled(cron = "0 0/30 8-20 * * ?")
     public void enviarRecordatoriosDiarios() {
-        System.out.println("⏳ [CRON] Ejecutando tarea diaria de recordatorios (8:00 AM)...");
+        System.out.println("⏳ [CRON] Ejecutando tarea de recordatorios...");
+        ResultadoRecordatoriosDTO resultado = procesarRecordatorios(LocalDate.now().plusDays(1));
+        if (resultado.turnos() > 0 || resultado.lotesFallidos() > 0) {
+            ultimaEjecucion = resultado;
+        }
+    }
 
-        LocalDate manana = LocalDate.now().plusDays(1);
-        LocalDateTime inicioDia = manana.atStartOfDay();
-        LocalDateTime finDia = manana.atTime(LocalTime.MAX);
+    // Reclama los turnos del día de a lotes y deja los recordatorios en el outbox.
+    // Cada lote es una transacción: reclamar (FOR UPDATE SKIP LOCKED) + registrar + encolar.
+    // Si la app se cae a mitad, lo confirmado queda registrado y lo demás se retoma en la próxima corrida.
+    // El envío real (en paralelo y respetando la cuota de Brevo) lo hace EmailDispatcherService.
+    public ResultadoRecordatoriosDTO procesarRecordatorios(LocalDate dia) {
+        LocalDateTime inicio = LocalDateTime.now();
+        long t0 = System.currentTimeMillis();
+        LocalDateTime inicioDia = dia.atStartOfDay();
+        LocalDateTime finDia = dia.atTime(LocalTime.MAX);
+
+        int turnos = 0, encolados = 0, lotesFallidos = 0;
+
+        while (true) {
+            Lote lote;
+            try {
+                lote = transactionTemplate.execute(status -> procesarLote(inicioDia, finDia, dia));
+            } catch (Exception e) {
+                // El lote se deshizo entero: lo retoma la próxima corrida
+                lotesFallidos++;
+                System.err.println("❌ Error procesando un lote de recordatorios: " + e.getMessage());
+                break;
+            }
+            turnos += lote.procesados();
+            encolados += lote.encolados();
+            if (lote.reclamados() < TAMANIO_PAGINA) break;
+        }
 
-        List<Turno> turnosManana = turnoRepository.findByFechaHoraBetween(inicioDia, finDia);
+        ResultadoRecordatoriosDTO resultado = new ResultadoRecordatoriosDTO(
+                dia, inicio, turnos, encolados, turnos - encolados, lotesFallidos, System.currentTimeMillis() - t0);
 
-        if (turnosManana.isEmpty()) {
-            System.out.println("💤 No hay turnos para mañana. Sigo durmiendo.");
-            return;
+        if (turnos == 0 && lotesFallidos == 0) {
+            System.out.println("💤 No hay recordatorios pendientes para " + dia + ". Sigo durmiendo.");
+        } else {
+            System.out.printf("✅ Recordatorios para %s: %d turnos, %d encolados, %d omitidos, %d lotes fallidos en %d ms (%.1f/s)%n",
+                    dia, turnos, encolados, turnos - encolados, lotesFallidos, resultado.duracionMs(), resultado.porSegundo());
         }
+        return resultado;
+    }
+
+    private record Lote(int reclamados, int procesados, int encolados) {}
 
-        for (Turno turno : turnosManana) {
-            if (turno.getPacienteUsername() != null && !turno.getPacienteUsername().isEmpty() && turno.getPacienteUsername().contains("@")) {
-                
-                String emailPaciente = turno.getPacienteUsername();
-                String asunto = "⏰ Recordatorio de Turno - Clínica Integral";
-                String horaTurno = turno.getFechaHora().toLocalTime().toString();
-                String mensaje = "Hola " + turno.getCliente() + ",\n\n"
-                        + "Te recordamos que tenés un turno mañana (" + manana + ") a las " + horaTurno + " hs "
-                        + "con el Dr./Dra. " + turno.getNombreMedico() + ".\n\n"
-                        + "Especialidad: " + turno.getEspecialidad() + "\n"
-                        + "Motivo: " + turno.getDescripcion() + "\n\n"
-                        + "Por favor, recordá asistir 10 minutos antes a la clínica.\n\n"
-                        + "Saludos,\nClínica Integral.";
-
-                try {
-                    emailService.sendEmail(emailPaciente, asunto, mensaje);
-                    System.out.println("✅ Recordatorio enviado con éxito a: " + emailPaciente);
-                } catch (Exception e) {
-                    System.err.println("❌ Error enviando correo a " + emailPaciente + ": " + e.getMessage());
-                }
+    private Lote procesarLote(LocalDateTime inicioDia, LocalDateTime finDia, LocalDate dia) {
+        List<Turno> lote = turnoRepository.reclamarParaRecordatorio(
+                inicioDia, finDia, TipoRecordatorio.DIA_ANTERIOR.name(), TAMANIO_PAGINA);
+        // El NOT EXISTS de la consulta mira el registro como estaba cuando arrancó. Si otro nodo confirmó uno de
+        // estos turnos justo antes de que lo bloqueáramos, el lock ya está libre pero su registro no se vio:
+        // ya con los locks tomados se vuelve a preguntar (lo confirmado antes de soltar el lock ahora se ve).
+        Set<Long> yaRegistrados = lote.isEmpty() ? Set.of() : new HashSet<>(registroRecordatorioRepository.findTurnoIdsRegistrados(
+                lote.stream().map(Turno::getId).toList(), TipoRecordatorio.DIA_ANTERIOR));
+
+        List<EmailPendiente> emails = new ArrayList<>();
+        List<RegistroRecordatorio> registros = new ArrayList<>();
+        for (Turno turno : lote) {
+            if (yaRegistrados.contains(turno.getId())) continue;
+            boolean tieneEmail = turno.getPacienteUsername() != null && turno.getPacienteUsername().contains("@");
+            if (tieneEmail) {
+                emails.add(armarRecordatorio(turno, dia));
             }
+            registros.add(new RegistroRecordatorio(turno.getId(), TipoRecordatorio.DIA_ANTERIOR, tieneEmail));
         }
+
+        registroRecordatorioRepository.saveAll(registros);
+        emailService.sendEmails(emails);
+        return new Lote(lote.size(), registros.size(), emails.size());
+    }
+
+    public ResultadoRecordatoriosDTO getUltimaEjecucion() {
+        return ultimaEjecucion;
+    }
+
+    private EmailPendiente armarRecordatorio(Turno turno, LocalDate dia) {
+        String asunto = "⏰ Recordatorio de Turno - Clínica Integral";
+        String horaTurno = turno.getFechaHora().toLocalTime().toString();
+        String mensaje = "Hola " + turno.getCliente() + ",\n\n"
+                + "Te recordamos que tenés un turno mañana (" + dia + ") a las " + horaTurno + " hs "
+                + "con el Dr./Dra. " + turno.getNombreMedico() + ".\n\n"
+                + "Especialidad: " + turno.getEspecialidad() + "\n"
+                + "Motivo: " + turno.getDescripcion() + "\n\n"
+                + "Por favor, recordá asistir 10 minutos antes a la clínica.\n\n"
+                + "Saludos,\nClínica Integral.";
+        return new EmailPendiente(turno.getPacienteUsername(), asunto, mensaje);
     }
-}
\ No newline at end of file
+}
@@ -12,49 +12,178 @@ import com.lowagie.text.pdf.PdfWriter;
 import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Sheet;
-import org.apache.poi.ss.usermodel.Workbook;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 
 import com.nico.turnos.entity.Turno;
 import com.nico.turnos.entity.Usuario;
 import com.nico.turnos.repository.TurnoRepository;
 import com.nico.turnos.repository.UsuarioRepository;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.io.ByteArrayInputStream;
+import java.io.BufferedWriter;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 @Service
 public class ReporteService {
 
+    // Filas que SXSSF mantiene en memoria por hoja
+    private static final int VENTANA_FILAS = 100;
+
+    private static final int BUFFER_CSV = 64 * 1024;
+
+    // Signo y después solo dígitos, espacios, puntos, guiones y paréntesis: sin letras no hay función que llamar
+    private static final Pattern NUMERO_O_TELEFONO = Pattern.compile("[+-][0-9][0-9 .()-]*");
+
+    // Recursos del PDF que no cambian entre reportes: se crean una sola vez
+    private static final Font FUENTE_TITULO = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 20);
+    private static final DateTimeFormatter FORMATO_FECHA_PDF = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
+
+    // Subir este número cuando cambie el diseño del PDF, así no se sirven reportes viejos de la cache
+    private static final String VERSION_PLANTILLA_PDF = "1";
+
+    private static final DateTimeFormatter FORMATO_NOMBRE_PDF = DateTimeFormatter.ofPattern("yyyyMMdd_HHmm");
+
+    private final CacheDePdf cachePdf;
+    // Pool acotado para renderizar PDFs de un lote en paralelo (compartido entre todas las descargas)
+    private final ExecutorService executorPdf;
+    private final int ventanaPdf;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
     private final GeminiService geminiService;
     private final UsuarioRepository usuarioRepository;
     private final TurnoRepository turnoRepository;
 
-    public ReporteService(GeminiService geminiService, UsuarioRepository usuarioRepository, TurnoRepository turnoRepository) {
+    public ReporteService(GeminiService geminiService, UsuarioRepository usuarioRepository, TurnoRepository turnoRepository,
+                          @Value("${reportes.pdf.cache-max-bytes:33554432}") long cachePdfMaximoBytes,
+                          @Value("${reportes.pdf.hilos:4}") int hilosPdf) {
         this.geminiService = geminiService;
         this.usuarioRepository = usuarioRepository;
         this.turnoRepository = turnoRepository;
+        this.cachePdf = new CacheDePdf(cachePdfMaximoBytes);
+        this.executorPdf = Executors.newFixedThreadPool(hilosPdf);
+        this.ventanaPdf = hilosPdf * 2;
     }
 
     // --- 1. GENERAR PDF LIMPIO (Sin IA y con fecha formateada) ---
+    // Si ya generamos este mismo contenido lo devolvemos de la cache, si no lo renderizamos y lo guardamos.
     public byte[] generarReporteTurno(Turno turno) {
+        String huella = huellaReporte(turno);
+        byte[] pdf = cachePdf.obtener(huella);
+        if (pdf == null) {
+            pdf = renderizarReporteTurno(turno);
+            cachePdf.guardar(huella, pdf);
+        }
+        return pdf;
+    }
+
+    // Huella (SHA-256) de todo lo que se imprime en el PDF. Si cualquier dato del turno cambia, cambia la huella:
+    // sirve de clave para la cache y de ETag para el navegador.
+    public String huellaReporte(Turno turno) {
+        try {
+            MessageDigest sha = MessageDigest.getInstance("SHA-256");
+            for (Object campo : new Object[]{VERSION_PLANTILLA_PDF, turno.getId(), turno.getCliente(), turno.getNombreMedico(),
+                    turno.getFechaHora(), turno.getDescripcion(), turno.isAsistio(), turno.getDiagnostico()}) {
+                sha.update(String.valueOf(campo).getBytes(StandardCharsets.UTF_8));
+                sha.update((byte) 0); // separador, para que ("ab","c") no choque con ("a","bc")
+            }
+            return HexFormat.of().formatHex(sha.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+
+    public CacheDePdf getCachePdf() {
+        return cachePdf;
+    }
+
+    // Escribe un zip con el PDF de cada turno, en el mismo orden de la lista.
+    // Los PDFs se generan en paralelo, pero nunca hay más de "ventanaPdf" en memoria esperando a ser escritos:
+    // cuando sale uno por el zip entra el siguiente a la cola.
+    public void escribirZipReportes(List<Turno> turnos, OutputStream out) throws IOException {
+        Deque<Future<byte[]>> enCurso = new ArrayDeque<>();
+        int siguiente = 0;
+
+        try (ZipOutputStream zip = new ZipOutputStream(out)) {
+            // Los PDF ya vienen comprimidos por dentro: comprimir más es gastar CPU para nada
+            zip.setLevel(Deflater.BEST_SPEED);
+
+            for (Turno turno : turnos) {
+                while (siguiente < turnos.size() && enCurso.size() < ventanaPdf) {
+                    Turno pendiente = turnos.get(siguiente++);
+                    enCurso.add(executorPdf.submit(() -> generarReporteTurno(pendiente)));
+                }
+
+                byte[] pdf = esperar(enCurso.poll());
+                zip.putNextEntry(new ZipEntry("turno_" + turno.getId() + "_" + turno.getFechaHora().format(FORMATO_NOMBRE_PDF) + ".pdf"));
+                zip.write(pdf);
+                zip.closeEntry();
+            }
+        } finally {
+            // Si el cliente cortó la descarga, no seguimos generando PDFs que nadie va a leer
+            enCurso.forEach(f -> f.cancel(true));
+        }
+    }
+
+    private byte[] esperar(Future<byte[]> futuro) throws IOException {
+        try {
+            return futuro.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Generación de PDFs interrumpida", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Error al generar PDF", e.getCause());
+        }
+    }
+
+    @PreDestroy
+    public void cerrar() {
+        executorPdf.shutdownNow();
+    }
+
+    private byte[] renderizarReporteTurno(Turno turno) {
         try (ByteArrayOutputStream out = new ByteArrayOutputStream()) {
             Document document = new Document(PageSize.A4);
             PdfWriter.getInstance(document, out);
             document.open();
 
-            Font fontTitulo = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 20);
-            Paragraph titulo = new Paragraph("CLÍNICA INTEGRAL - Reporte Médico", fontTitulo);
+            Paragraph titulo = new Paragraph("CLÍNICA INTEGRAL - Reporte Médico", FUENTE_TITULO);
             titulo.setAlignment(Element.ALIGN_CENTER);
             document.add(titulo);
             document.add(new Paragraph("\n"));
 
             // Formatear la fecha para sacar la 'T'
-            String fechaFormateada = turno.getFechaHora().format(DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm"));
+            String fechaFormateada = turno.getFechaHora().format(FORMATO_FECHA_PDF);
 
             document.add(new Paragraph("Paciente: " + turno.getCliente()));
             document.add(new Paragraph("Médico: Dr. " + turno.getNombreMedico()));
@@ -78,13 +207,17 @@ public class ReporteService {
         }
     }
 
-    // --- 2. GENERAR EXCEL ---
-    public ByteArrayInputStream generarExcelCompleto() throws IOException {
+    // --- 2. GENERAR EXCEL (STREAMING) ---
+    // Lee usuarios y turnos con un cursor y escribe con SXSSF (solo VENTANA_FILAS filas en memoria,
+    // el resto va a un archivo temporal), directo al OutputStream de la respuesta.
+    // Tiene que correr dentro de una transacción para que el cursor de Postgres siga abierto.
+    @Transactional(readOnly = true)
+    public void escribirExcelCompleto(OutputStream out) throws IOException {
         String[] columnasUsuarios = {"ID", "Nombre Completo", "DNI", "Rol", "Email"};
         String[] columnasTurnos = {"ID", "Fecha y Hora", "Paciente", "Médico", "Motivo", "Asistio"};
 
-        try (Workbook workbook = new XSSFWorkbook(); ByteArrayOutputStream out = new ByteArrayOutputStream()) {
-            
+        SXSSFWorkbook workbook = new SXSSFWorkbook(VENTANA_FILAS);
+        try {
             // --- PESTAÑA 1: USUARIOS ---
             Sheet sheetUsuarios = workbook.createSheet("Pacientes y Medicos");
             Row headerRow = sheetUsuarios.createRow(0);
@@ -94,15 +227,18 @@ public class ReporteService {
                 cell.setCellValue(columnasUsuarios[i]);
             }
 
-            List<Usuario> usuarios = usuarioRepository.findAll();
-            int rowIdx = 1;
-            for (Usuario u : usuarios) {
-                Row row = sheetUsuarios.createRow(rowIdx++);
-                row.createCell(0).setCellValue(u.getId());
-                row.createCell(1).setCellValue(u.getNombreCompleto() != null ? u.getNombreCompleto() : "");
-                row.createCell(2).setCellValue(u.getDni() != null ? u.getDni() : "");
-                row.createCell(3).setCellValue(u.getRol() != null ? u.getRol().name() : "");
-                row.createCell(4).setCellValue(u.getUsername() != null ? u.getUsername() : "");
+            try (Stream<Usuario> usuarios = usuarioRepository.streamTodos()) {
+                int[] rowIdx = {1};
+                usuarios.forEach(u -> {
+                    Row row = sheetUsuarios.createRow(rowIdx[0]++);
+                    row.createCell(0).setCellValue(u.getId());
+                    row.createCell(1).setCellValue(u.getNombreCompleto() != null ? u.getNombreCompleto() : "");
+                    row.createCell(2).setCellValue(u.getDni() != null ? u.getDni() : "");
+                    row.createCell(3).setCellValue(u.getRol() != null ? u.getRol().name() : "");
+                    row.createCell(4).setCellValue(u.getUsername() != null ? u.getUsername() : "");
+                    // Soltamos la entidad para que el contexto de persistencia no crezca con cada fila
+                    entityManager.detach(u);
+                });
             }
 
             // --- PESTAÑA 2: TURNOS ---
@@ -113,21 +249,108 @@ public class ReporteService {
                 cell.setCellValue(columnasTurnos[i]);
             }
 
-            List<Turno> turnos = turnoRepository.findAll();
-            rowIdx = 1;
-            for (Turno t : turnos) {
-                Row row = sheetTurnos.createRow(rowIdx++);
-                row.createCell(0).setCellValue(t.getId());
-                row.createCell(1).setCellValue(t.getFechaHora() != null ? t.getFechaHora().toString() : "");
-                row.createCell(2).setCellValue(t.getCliente() != null ? t.getCliente() : "");
-                row.createCell(3).setCellValue(t.getNombreMedico() != null ? t.getNombreMedico() : "");
-                row.createCell(4).setCellValue(t.getDescripcion() != null ? t.getDescripcion() : "");
-                // 👇 CORREGIDO: Usamos isAsistio()
-                row.createCell(5).setCellValue(t.isAsistio() ? "Sí" : "No");
+            try (Stream<Turno> turnos = turnoRepository.streamTodos()) {
+                int[] rowIdx = {1};
+                turnos.forEach(t -> {
+                    Row row = sheetTurnos.createRow(rowIdx[0]++);
+                    row.createCell(0).setCellValue(t.getId());
+                    row.createCell(1).setCellValue(t.getFechaHora() != null ? t.getFechaHora().toString() : "");
+                    row.createCell(2).setCellValue(t.getCliente() != null ? t.getCliente() : "");
+                    row.createCell(3).setCellValue(t.getNombreMedico() != null ? t.getNombreMedico() : "");
+                    row.createCell(4).setCellValue(t.getDescripcion() != null ? t.getDescripcion() : "");
+                    // 👇 CORREGIDO: Usamos isAsistio()
+                    row.createCell(5).setCellValue(t.isAsistio() ? "Sí" : "No");
+                    entityManager.detach(t);
+                });
             }
 
             workbook.write(out);
-            return new ByteArrayInputStream(out.toByteArray());
+        } finally {
+            // Borra los archivos temporales que usa SXSSF
+            workbook.dispose();
+            workbook.close();
+        }
+    }
+
+    // --- 3. EXPORTAR CSV (STREAMING) ---
+    // Mucho más barato que el Excel: no hay POI ni archivos temporales, cada fila del cursor
+    // se escribe y se olvida. Con gzip=true la salida va comprimida (.csv.gz).
+    @Transactional(readOnly = true)
+    public void escribirCsvTurnos(OutputStream out, LocalDateTime desde, LocalDateTime hasta, boolean gzip) throws IOException {
+        try (Writer writer = abrirCsv(out, gzip); Stream<Turno> turnos = turnoRepository.streamPorRango(desde, hasta)) {
+            writer.write("id,fecha_hora,medico_id,medico,especialidad,paciente,paciente_email,motivo,asistio\n");
+            turnos.forEach(t -> {
+                escribirFila(writer,
+                        String.valueOf(t.getId()),
+                        t.getFechaHora() != null ? t.getFechaHora().toString() : "",
+                        String.valueOf(t.getMedicoId()),
+                        t.getNombreMedico(),
+                        t.getEspecialidad(),
+                        t.getCliente(),
+                        t.getPacienteUsername(),
+                        t.getDescripcion(),
+                        t.isAsistio() ? "true" : "false");
+                entityManager.detach(t);
+            });
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public void escribirCsvUsuarios(OutputStream out, boolean gzip) throws IOException {
+        try (Writer writer = abrirCsv(out, gzip); Stream<Usuario> usuarios = usuarioRepository.streamTodos()) {
+            writer.write("id,nombre_completo,dni,telefono,rol,especialidad,email,habilitado\n");
+            usuarios.forEach(u -> {
+                escribirFila(writer,
+                        String.valueOf(u.getId()),
+                        u.getNombreCompleto(),
+                        u.getDni(),
+                        u.getTelefono(),
+                        u.getRol() != null ? u.getRol().name() : "",
+                        u.getEspecialidad(),
+                        u.getUsername(),
+                        u.isEnabled() ? "true" : "false");
+                entityManager.detach(u);
+            });
         }
     }
-}
\ No newline at end of file
+
+    private Writer abrirCsv(OutputStream out, boolean gzip) throws IOException {
+        OutputStream destino = gzip ? new GZIPOutputStream(out, BUFFER_CSV) : out;
+        return new BufferedWriter(new OutputStreamWriter(destino, StandardCharsets.UTF_8), BUFFER_CSV);
+    }
+
+    private void escribirFila(Writer writer, String... campos) {
+        try {
+            for (int i = 0; i < campos.length; i++) {
+                if (i > 0) writer.write(',');
+                writer.write(campoCsv(campos[i]));
+            }
+            writer.write('\n');
+        } catch (IOException e) {
+            // El cliente cortó la descarga: cortamos el stream de la base también
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Escapa según RFC 4180 y neutraliza fórmulas para que Excel no las ejecute al abrir el archivo:
+    // un valor que empieza con =, @, tab o CR, o con + / - seguido de algo que no es un número.
+    // Teléfonos (+54 9 11 1234-5678) y números negativos (-12.5) quedan como están.
+    static String campoCsv(String valor) {
+        if (valor == null || valor.isEmpty()) return "";
+        if (esFormula(valor)) {
+            valor = "'" + valor;
+        }
+        if (valor.indexOf(',') >= 0 || valor.indexOf('"') >= 0 || valor.indexOf('\n') >= 0 || valor.indexOf('\r') >= 0) {
+            return '"' + valor.replace("\"", "\"\"") + '"';
+        }
+        return valor;
+    }
+
+    private static boolean esFormula(String valor) {
+        return switch (valor.charAt(0)) {
+            case '=', '@', '\t', '\r' -> true;
+            case '+', '-' -> !NUMERO_O_TELEFONO.matcher(valor).matches();
+            default -> false;
+        };
+    }
+}
@@ -0,0 +1,132 @@
+package com.nico.turnos.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+// Conversaciones del chatbot guardadas en el servidor: el navegador manda solo el mensaje nuevo y el id de sesión.
+// A cada sesión se le guarda el historial hasta un presupuesto de tokens; lo más viejo se descarta, así el pedido
+// al modelo tiene un tamaño acotado por más larga que sea la charla.
+// Es por instancia y en memoria (acotada en cantidad de sesiones y con vencimiento por inactividad).
+@Service
+public class SesionChatService {
+
+    public static final int MAXIMO_CARACTERES_MENSAJE = 2000;
+
+    // Historial listo para mandar al modelo, con el id de la sesión (nuevo si no existía o había vencido)
+    public record Conversacion(String sesionId, List<Map<String, String>> historial) {}
+
+    private static final class Sesion {
+        final Deque<Map<String, String>> mensajes = new ArrayDeque<>();
+        int tokens;
+        volatile long ultimoUso;
+    }
+
+    private final int presupuestoTokens;
+    private final long ttlMs;
+    private final int maximoSesiones;
+    // accessOrder = true: la primera es la que hace más tiempo que no se usa
+    private final LinkedHashMap<String, Sesion> sesiones;
+
+    public SesionChatService(@Value("${chat.sesiones.presupuesto-tokens:1500}") int presupuestoTokens,
+                             @Value("${chat.sesiones.ttl-ms:1800000}") long ttlMs,
+                             @Value("${chat.sesiones.maximo:5000}") int maximoSesiones) {
+        this.presupuestoTokens = presupuestoTokens;
+        this.ttlMs = ttlMs;
+        this.maximoSesiones = maximoSesiones;
+        this.sesiones = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Sesion> eldest) {
+                return size() > SesionChatService.this.maximoSesiones;
+            }
+        };
+    }
+
+    // Agrega la pregunta del usuario y devuelve el historial recortado al presupuesto
+    public Conversacion agregarPregunta(String sesionId, String mensaje) {
+        if (mensaje == null || mensaje.isBlank()) {
+            throw new RuntimeException("El mensaje no puede estar vacío.");
+        }
+        if (mensaje.length() > MAXIMO_CARACTERES_MENSAJE) {
+            throw new RuntimeException("El mensaje no puede superar los " + MAXIMO_CARACTERES_MENSAJE + " caracteres.");
+        }
+
+        String id = sesionId;
+        Sesion sesion = id != null ? vigente(id) : null;
+        if (sesion == null) {
+            id = UUID.randomUUID().toString();
+            sesion = new Sesion();
+            synchronized (this) {
+                sesiones.put(id, sesion);
+            }
+        }
+
+        synchronized (sesion) {
+            sesion.ultimoUso = System.currentTimeMillis();
+            agregar(sesion, "user", mensaje);
+            return new Conversacion(id, List.copyOf(sesion.mensajes));
+        }
+    }
+
+    public void agregarRespuesta(String sesionId, String respuesta) {
+        Sesion sesion = vigente(sesionId);
+        if (sesion == null || respuesta == null) return;
+        synchronized (sesion) {
+            agregar(sesion, "assistant", respuesta);
+        }
+    }
+
+    public synchronized void cerrar(String sesionId) {
+        sesiones.remove(sesionId);
+    }
+
+    public synchronized int getCantidad() {
+        return sesiones.size();
+    }
+
+    @Scheduled(fixedDelay = 5 * 60 * 1000)
+    public synchronized void limpiarVencidas() {
+        long limite = System.currentTimeMillis() - ttlMs;
+        sesiones.values().removeIf(sesion -> sesion.ultimoUso <= limite);
+    }
+
+    // Estimación gruesa (~4 caracteres por token más lo que ocupa el rol); alcanza para acotar el tamaño
+    static int estimarTokens(String texto) {
+        return 4 + (texto.length() + 3) / 4;
+    }
+
+    private synchronized Sesion vigente(String sesionId) {
+        Sesion sesion = sesiones.get(sesionId);
+        if (sesion != null && sesion.ultimoUso <= System.currentTimeMillis() - ttlMs) {
+            sesiones.remove(sesionId);
+            return null;
+        }
+        return sesion;
+    }
+
+    // Se llama con el lock de la sesión tomado
+    private void agregar(Sesion sesion, String rol, String contenido) {
+        sesion.mensajes.addLast(Map.of("role", rol, "content", contenido));
+        sesion.tokens += estimarTokens(contenido);
+
+        // Se descartan los mensajes más viejos, pero nunca el último
+        while (sesion.tokens > presupuestoTokens && sesion.mensajes.size() > 1) {
+            quitarPrimero(sesion);
+        }
+        // El historial que recibe el modelo tiene que empezar con un mensaje del usuario
+        while (sesion.mensajes.size() > 1 && !"user".equals(sesion.mensajes.peekFirst().get("role"))) {
+            quitarPrimero(sesion);
+        }
+    }
+
+    private void quitarPrimero(Sesion sesion) {
+        sesion.tokens -= estimarTokens(sesion.mensajes.removeFirst().get("content"));
+    }
+}
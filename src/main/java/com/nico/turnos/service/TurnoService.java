@@ -1,5 +1,6 @@
 package com.nico.turnos.service;
 
+import com.nico.turnos.dto.TurnoPaginaResponse;
 import com.nico.turnos.dto.TurnoRequest;
 import com.nico.turnos.dto.TurnoResponse;
 import com.nico.turnos.entity.Rol;
@@ -8,140 +9,366 @@ import com.nico.turnos.entity.Usuario;
 import com.nico.turnos.exception.TurnoConflictException;
 import com.nico.turnos.mapper.TurnoMapper;
 import com.nico.turnos.repository.TurnoRepository;
-import com.nico.turnos.repository.UsuarioRepository;
-import org.springframework.security.core.context.SecurityContextHolder;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.security.access.AccessDeniedException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.Base64;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Service
 public class TurnoService {
 
+    static final int TAMANIO_PAGINA_DEFECTO = 50;
+    private static final int TAMANIO_PAGINA_MAXIMO = 200;
+
+    // Máximo de PDFs en una descarga por lote
+    private static final int MAXIMO_TURNOS_LOTE_PDF = 200;
+
+    // Restricciones de la base que deciden quién se queda con el horario: el índice único (medico_id, fecha_hora)
+    // de la migración V2 y el EXCLUDE de intervalos solapados de la V3
+    static final String RESTRICCION_HORARIO = "uk_turno_medico_fecha_hora";
+    static final String RESTRICCION_SOLAPAMIENTO = "ex_turno_medico_solapado";
+    // SQLState de Postgres para una violación de EXCLUDE (Hibernate no extrae el nombre de la restricción)
+    private static final String SQLSTATE_EXCLUSION = "23P01";
+
+    private static final int DURACION_MINIMA = 5;
+    private static final int DURACION_MAXIMA = 240;
+    private static final int HORA_CIERRE = 19;
+
+    // Límites usados cuando el filtro de fechas viene vacío
+    private static final LocalDateTime FECHA_MINIMA = LocalDateTime.of(1900, 1, 1, 0, 0);
+    private static final LocalDateTime FECHA_MAXIMA = LocalDateTime.of(3000, 1, 1, 0, 0);
+
     private final TurnoRepository turnoRepository;
     private final TurnoMapper turnoMapper;
-    private final UsuarioRepository usuarioRepository;
+    private final UsuarioActual usuarioActual;
+    private final PerfilMedicoService perfilMedicoService;
     private final EmailService emailService;
+    private final DisponibilidadService disponibilidadService;
+    private final EstadisticaService estadisticaService;
+    private final EstadisticaDiariaService estadisticaDiariaService;
 
     public TurnoService(TurnoRepository turnoRepository, 
                         TurnoMapper turnoMapper, 
-                        UsuarioRepository usuarioRepository,
-                        EmailService emailService) {
+                        UsuarioActual usuarioActual,
+                        PerfilMedicoService perfilMedicoService,
+                        EmailService emailService,
+                        DisponibilidadService disponibilidadService,
+                        EstadisticaService estadisticaService,
+                        EstadisticaDiariaService estadisticaDiariaService) {
         this.turnoRepository = turnoRepository;
         this.turnoMapper = turnoMapper;
-        this.usuarioRepository = usuarioRepository;
+        this.usuarioActual = usuarioActual;
+        this.perfilMedicoService = perfilMedicoService;
         this.emailService = emailService;
+        this.disponibilidadService = disponibilidadService;
+        this.estadisticaService = estadisticaService;
+        this.estadisticaDiariaService = estadisticaDiariaService;
     }
 
-    public List<TurnoResponse> listar() {
-        String username = SecurityContextHolder.getContext().getAuthentication().getName();
-        Usuario usuario = usuarioRepository.findByUsername(username)
-                .orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
+    // Médicos y pacientes reciben todos sus turnos, como siempre (son pocos y el frontend los espera completos).
+    // El admin ya no trae la tabla entera: recibe la primera página (los más recientes) y el token para seguir
+    // en /turnos/pagina; con años de historial la respuesta no crece.
+    public TurnoPaginaResponse listar() {
+        if (usuarioActual.getRol() == Rol.ADMIN) {
+            return paginar(null, null, null, null, null, null);
+        }
 
         List<Turno> turnos;
-
-        if (usuario.getRol() == Rol.ADMIN) {
-            turnos = turnoRepository.findAll();
-        } else if (usuario.getRol() == Rol.MEDICO) {
-            turnos = turnoRepository.findByMedicoId(usuario.getId());
+        if (usuarioActual.getRol() == Rol.MEDICO) {
+            turnos = turnoRepository.findByMedicoId(usuarioActual.getId());
         } else {
-            turnos = turnoRepository.findByPacienteUsername(username);
+            turnos = turnoRepository.findByPacienteUsername(usuarioActual.getUsername());
         }
 
-        return turnos.stream()
+        List<TurnoResponse> contenido = turnos.stream()
                 .map(turnoMapper::toResponse)
                 .collect(Collectors.toList());
+        return new TurnoPaginaResponse(contenido, null);
     }
 
-    public TurnoResponse crear(TurnoRequest request) {
-        String username = SecurityContextHolder.getContext().getAuthentication().getName();
-        Usuario paciente = usuarioRepository.findByUsername(username)
-                .orElseThrow(() -> new RuntimeException("Paciente no encontrado"));
+    // Listado paginado por cursor (keyset), del más reciente al más antiguo.
+    // Médicos y pacientes solo ven sus propios turnos, sin importar los filtros que manden.
+    public TurnoPaginaResponse listarPagina(LocalDateTime desde, LocalDateTime hasta, Long medicoId,
+                                            String especialidad, String token, Integer size) {
+        return paginar(desde, hasta, medicoId, especialidad, token, size);
+    }
+
+    private TurnoPaginaResponse paginar(LocalDateTime desde, LocalDateTime hasta, Long medicoId,
+                                        String especialidad, String token, Integer size) {
+        String pacienteUsername = null;
+        if (usuarioActual.getRol() == Rol.MEDICO) {
+            medicoId = usuarioActual.getId();
+        } else if (usuarioActual.getRol() == Rol.PACIENTE) {
+            pacienteUsername = usuarioActual.getUsername();
+        }
+
+        int limite = size == null ? TAMANIO_PAGINA_DEFECTO : Math.max(1, Math.min(size, TAMANIO_PAGINA_MAXIMO));
+        LocalDateTime inicio = desde != null ? desde : FECHA_MINIMA;
+
+        LocalDateTime cursorFecha = hasta != null ? hasta : FECHA_MAXIMA;
+        Long cursorId = 0L;
+        if (token != null && !token.isBlank()) {
+            String[] cursor = decodificarToken(token);
+            LocalDateTime fechaToken = LocalDateTime.parse(cursor[0]);
+            // Si cambió el filtro "hasta" entre páginas, respetamos el más restrictivo
+            if (fechaToken.isBefore(cursorFecha)) {
+                cursorFecha = fechaToken;
+                cursorId = Long.parseLong(cursor[1]);
+            }
+        }
+
+        // Pedimos uno de más para saber si existe una página siguiente sin hacer un COUNT
+        List<Turno> turnos = turnoRepository.buscarPagina(inicio, cursorFecha, cursorId, medicoId,
+                blankANull(especialidad), pacienteUsername, PageRequest.of(0, limite + 1));
 
-        if (paciente.getRol() != Rol.PACIENTE) {
+        String siguienteToken = null;
+        if (turnos.size() > limite) {
+            turnos = turnos.subList(0, limite);
+            Turno ultimo = turnos.get(limite - 1);
+            siguienteToken = codificarToken(ultimo.getFechaHora(), ultimo.getId());
+        }
+
+        List<TurnoResponse> contenido = turnos.stream()
+                .map(turnoMapper::toResponse)
+                .collect(Collectors.toList());
+        return new TurnoPaginaResponse(contenido, siguienteToken);
+    }
+
+    // Turnos de un médico entre dos días (inclusive) para descargar todos los PDFs juntos.
+    // Un médico solo puede bajar los suyos; el admin tiene que elegir el médico.
+    public List<Turno> turnosParaLotePdf(Long medicoId, LocalDate desde, LocalDate hasta) {
+        if (usuarioActual.getRol() == Rol.MEDICO) {
+            medicoId = usuarioActual.getId();
+        } else if (usuarioActual.getRol() != Rol.ADMIN) {
+            throw new AccessDeniedException("No tienes permiso para descargar reportes por lote.");
+        } else if (medicoId == null) {
+            throw new RuntimeException("Indicá el médico.");
+        }
+
+        LocalDate fin = hasta != null ? hasta : desde;
+        if (fin.isBefore(desde)) {
+            throw new RuntimeException("La fecha 'hasta' no puede ser anterior a 'desde'.");
+        }
+
+        List<Turno> turnos = turnoRepository.findParaLote(medicoId, desde.atStartOfDay(), fin.plusDays(1).atStartOfDay(),
+                PageRequest.of(0, MAXIMO_TURNOS_LOTE_PDF + 1));
+        if (turnos.size() > MAXIMO_TURNOS_LOTE_PDF) {
+            throw new RuntimeException("Hay más de " + MAXIMO_TURNOS_LOTE_PDF + " turnos en ese rango, elegí uno más corto.");
+        }
+        return turnos;
+    }
+
+    // Transaccional: el turno y su email de confirmación (outbox) se guardan juntos o no se guarda nada.
+    // El rol sale del token y los datos del médico de la cache: la única lectura es el nombre del paciente.
+    @Transactional
+    public TurnoResponse crear(TurnoRequest request) {
+        if (usuarioActual.getRol() != Rol.PACIENTE) {
             throw new RuntimeException("Solo los pacientes pueden reservar turnos.");
         }
 
-        validarHorarioNegocio(request.getFechaHora());
+        if (request.getFechaHora() == null) {
+            throw new RuntimeException("La fecha y hora del turno es obligatoria.");
+        }
+        int duracion = request.getDuracionMinutos() != null ? request.getDuracionMinutos() : Turno.DURACION_POR_DEFECTO;
+        validarHorarioNegocio(request.getFechaHora(), duracion);
 
-        if (turnoRepository.existsByMedicoIdAndFechaHora(request.getMedicoId(), request.getFechaHora())) {
-            throw new TurnoConflictException("Este médico ya tiene un turno a esa hora.");
+        // El índice en memoria corta rápido los choques (solapamientos) de esta instancia, sin consultar la base.
+        // La que manda es la restricción de la base: si otro nodo ganó el horario, el insert falla y se traduce a conflicto.
+        if (!disponibilidadService.reservar(request.getMedicoId(), request.getFechaHora(), duracion)) {
+            throw new TurnoConflictException("Este médico ya tiene un turno en ese horario.");
         }
+        // Si la transacción no llega a confirmarse, devolvemos el horario. Si la base lo rechazó, lo que hay en
+        // memoria no coincide con lo guardado (el turno que ganó puede tener otra duración): se recarga el día.
+        AtomicBoolean ocupadoEnBase = new AtomicBoolean();
+        alTerminarTransaccion(confirmada -> {
+            if (confirmada) return;
+            if (ocupadoEnBase.get()) disponibilidadService.descartarDia(request.getMedicoId(), request.getFechaHora().toLocalDate());
+            else disponibilidadService.liberar(request.getMedicoId(), request.getFechaHora());
+        });
 
-        Usuario medico = usuarioRepository.findById(request.getMedicoId())
-                .orElseThrow(() -> new RuntimeException("Médico no encontrado"));
+        PerfilMedicoService.PerfilMedico medico = perfilMedicoService.obtener(request.getMedicoId());
+        Usuario paciente = usuarioActual.getUsuario();
 
         Turno turno = turnoMapper.toEntity(request);
         
         turno.setCliente(paciente.getNombreCompleto());
         turno.setPacienteUsername(paciente.getUsername());
-        turno.setMedicoId(medico.getId()); 
-        turno.setNombreMedico(medico.getNombreCompleto());
-        turno.setEspecialidad(medico.getEspecialidad()); 
+        turno.setMedicoId(medico.id()); 
+        turno.setNombreMedico(medico.nombreCompleto());
+        turno.setEspecialidad(medico.especialidad()); 
 
-        Turno turnoGuardado = turnoRepository.save(turno);
+        Turno turnoGuardado = guardarControlandoHorario(turno, ocupadoEnBase, "Este médico ya tiene un turno en ese horario.");
+        estadisticaDiariaService.marcarDia(turnoGuardado.getFechaHora().toLocalDate());
+        EstadisticaService.ClaveTurno clave = EstadisticaService.ClaveTurno.de(turnoGuardado);
+        alTerminarTransaccion(confirmada -> {
+            if (confirmada) estadisticaService.registrarAlta(clave);
+        });
         
         enviarEmailConfirmacion(paciente.getUsername(), turnoGuardado);
 
         return turnoMapper.toResponse(turnoGuardado);
     }
 
+    @Transactional
     public TurnoResponse actualizar(Long id, TurnoRequest request) {
         Turno turnoExistente = turnoRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Turno no encontrado con id: " + id));
 
-        if (request.getFechaHora() != null && !turnoExistente.getFechaHora().equals(request.getFechaHora())) {
-             validarHorarioNegocio(request.getFechaHora());
-             
-             Long idMedico = request.getMedicoId() != null ? request.getMedicoId() : turnoExistente.getMedicoId();
-             
-             if (turnoRepository.existsByMedicoIdAndFechaHoraAndIdNot(idMedico, request.getFechaHora(), id)) {
+        // El mapper no cambia el médico, así que la agenda que se toca es siempre la del turno existente
+        Long idMedico = turnoExistente.getMedicoId();
+        LocalDateTime fechaAnterior = turnoExistente.getFechaHora();
+        LocalDateTime fechaNueva = request.getFechaHora() != null ? request.getFechaHora() : fechaAnterior;
+        int duracionNueva = request.getDuracionMinutos() != null ? request.getDuracionMinutos() : turnoExistente.getDuracionMinutos();
+        boolean cambiaHorario = !fechaAnterior.equals(fechaNueva);
+        boolean mismoDia = fechaAnterior.toLocalDate().equals(fechaNueva.toLocalDate());
+        AtomicBoolean ocupadoEnBase = new AtomicBoolean();
+
+        if (cambiaHorario || duracionNueva != turnoExistente.getDuracionMinutos()) {
+             validarHorarioNegocio(fechaNueva, duracionNueva);
+
+             if (!disponibilidadService.reprogramar(idMedico, fechaAnterior, fechaNueva, duracionNueva)) {
                  throw new TurnoConflictException("El médico ya tiene ocupado ese horario.");
              }
+             // Con commit se libera el horario viejo si quedó en otro día (en el mismo día ya se movió).
+             // Con rollback, el día nuevo se recarga de la base: deshacer el movimiento a mano podría pisar
+             // una reserva que entró mientras tanto.
+             alTerminarTransaccion(confirmada -> {
+                 if (confirmada) {
+                     if (!mismoDia) disponibilidadService.liberar(idMedico, fechaAnterior);
+                 } else if (mismoDia || ocupadoEnBase.get()) {
+                     disponibilidadService.descartarDia(idMedico, fechaNueva.toLocalDate());
+                 } else {
+                     disponibilidadService.liberar(idMedico, fechaNueva);
+                 }
+             });
         }
 
+        EstadisticaService.ClaveTurno antes = EstadisticaService.ClaveTurno.de(turnoExistente);
         turnoMapper.actualizarTurno(turnoExistente, request);
-        return turnoMapper.toResponse(turnoRepository.save(turnoExistente));
+        Turno turnoGuardado = guardarControlandoHorario(turnoExistente, ocupadoEnBase, "El médico ya tiene ocupado ese horario.");
+        estadisticaDiariaService.marcarDia(turnoGuardado.getFechaHora().toLocalDate());
+        if (cambiaHorario && !fechaAnterior.toLocalDate().equals(turnoGuardado.getFechaHora().toLocalDate())) {
+            estadisticaDiariaService.marcarDia(fechaAnterior.toLocalDate());
+        }
+
+        EstadisticaService.ClaveTurno despues = EstadisticaService.ClaveTurno.de(turnoGuardado);
+        alTerminarTransaccion(confirmada -> {
+            if (confirmada) estadisticaService.registrarCambio(antes, despues);
+        });
+        return turnoMapper.toResponse(turnoGuardado);
     }
 
     // ELIMINAR CON SEGURIDAD Y AVISO POR CORREO
+    @Transactional
     public void eliminar(Long id) {
-        String username = SecurityContextHolder.getContext().getAuthentication().getName();
-        Usuario usuarioLogueado = usuarioRepository.findByUsername(username)
-                .orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
-
         Turno turno = turnoRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Turno no encontrado"));
 
-        if (usuarioLogueado.getRol() == Rol.PACIENTE) {
-            if (!turno.getPacienteUsername().equals(usuarioLogueado.getUsername())) {
+        if (usuarioActual.getRol() == Rol.PACIENTE) {
+            if (!turno.getPacienteUsername().equals(usuarioActual.getUsername())) {
                 throw new RuntimeException("No tienes permiso para cancelar el turno de otro paciente.");
             }
         }
 
         turnoRepository.deleteById(id);
+        estadisticaDiariaService.registrarCancelacion(turno);
+        EstadisticaService.ClaveTurno clave = EstadisticaService.ClaveTurno.de(turno);
+        alTerminarTransaccion(confirmada -> {
+            if (confirmada) {
+                disponibilidadService.liberar(turno.getMedicoId(), turno.getFechaHora());
+                estadisticaService.registrarBaja(clave);
+            }
+        });
+
+        // El email va al outbox en esta misma transacción: si no se puede guardar, la cancelación tampoco se confirma
+        String fechaStr = turno.getFechaHora().format(DateTimeFormatter.ofPattern("dd/MM/yyyy"));
+        String horaStr = turno.getFechaHora().format(DateTimeFormatter.ofPattern("HH:mm"));
 
+        String asunto = "Turno Cancelado - Clínica Integral";
+        String mensaje = String.format(
+            "Hola %s,\n\nTe confirmamos que tu turno ha sido CANCELADO exitosamente.\n\n" +
+            "Detalles del turno cancelado:\n📅 Fecha: %s\n⏰ Hora: %s\n👨‍⚕️ Médico: %s\n\n" +
+            "Esperamos verte pronto.\nSaludos,\nClínica Integral.",
+            turno.getCliente(), fechaStr, horaStr, turno.getNombreMedico()
+        );
+
+        emailService.sendEmail(turno.getPacienteUsername(), asunto, mensaje);
+        System.out.println("🗑️ Turno cancelado y email encolado para: " + turno.getPacienteUsername());
+    }
+
+    // saveAndFlush para que el índice único salte acá y no en el commit, donde ya no se puede traducir.
+    // Si el horario lo tomó otro turno (otro nodo, o uno que el índice en memoria no conocía), es un conflicto.
+    private Turno guardarControlandoHorario(Turno turno, AtomicBoolean ocupadoEnBase, String mensajeConflicto) {
         try {
-            String fechaStr = turno.getFechaHora().format(DateTimeFormatter.ofPattern("dd/MM/yyyy"));
-            String horaStr = turno.getFechaHora().format(DateTimeFormatter.ofPattern("HH:mm"));
-            
-            String asunto = "Turno Cancelado - Clínica Integral";
-            String mensaje = String.format(
-                "Hola %s,\n\nTe confirmamos que tu turno ha sido CANCELADO exitosamente.\n\n" +
-                "Detalles del turno cancelado:\n📅 Fecha: %s\n⏰ Hora: %s\n👨‍⚕️ Médico: %s\n\n" +
-                "Esperamos verte pronto.\nSaludos,\nClínica Integral.",
-                turno.getCliente(), fechaStr, horaStr, turno.getNombreMedico()
-            );
+            return turnoRepository.saveAndFlush(turno);
+        } catch (DataIntegrityViolationException e) {
+            if (!violaRestriccionHorario(e)) throw e;
+            ocupadoEnBase.set(true);
+            throw new TurnoConflictException(mensajeConflicto);
+        }
+    }
+
+    static boolean violaRestriccionHorario(DataIntegrityViolationException e) {
+        for (Throwable causa = e; causa != null; causa = causa.getCause()) {
+            if (causa instanceof ConstraintViolationException violacion) {
+                String nombre = violacion.getConstraintName() != null ? violacion.getConstraintName().toLowerCase() : "";
+                if (nombre.contains(RESTRICCION_HORARIO) || nombre.contains(RESTRICCION_SOLAPAMIENTO)
+                        || SQLSTATE_EXCLUSION.equals(violacion.getSQLState())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // Corre la acción cuando termina la transacción actual, con true si hizo commit.
+    // Así el índice en memoria y los contadores solo cambian cuando sabemos qué quedó en la base.
+    private void alTerminarTransaccion(Consumer<Boolean> accion) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                accion.accept(status == STATUS_COMMITTED);
+            }
+        });
+    }
+
+    private String codificarToken(LocalDateTime fechaHora, Long id) {
+        String cursor = fechaHora + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(cursor.getBytes(StandardCharsets.UTF_8));
+    }
 
-            emailService.sendEmail(turno.getPacienteUsername(), asunto, mensaje);
-            System.out.println("🗑️ Turno cancelado y email enviado a: " + turno.getPacienteUsername());
-        } catch (Exception e) {
-            System.err.println("Error enviando email de cancelación: " + e.getMessage());
+    private String[] decodificarToken(String token) {
+        try {
+            String cursor = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] partes = cursor.split("\\|");
+            if (partes.length != 2) throw new IllegalArgumentException();
+            LocalDateTime.parse(partes[0]);
+            Long.parseLong(partes[1]);
+            return partes;
+        } catch (RuntimeException e) {
+            throw new RuntimeException("Token de página inválido.");
         }
     }
 
-    private void validarHorarioNegocio(java.time.LocalDateTime fecha) {
+    private String blankANull(String valor) {
+        return valor == null || valor.isBlank() ? null : valor;
+    }
+
+    private void validarHorarioNegocio(java.time.LocalDateTime fecha, int duracionMinutos) {
         if (fecha == null) return;
         
         if (fecha.getDayOfWeek() == java.time.DayOfWeek.SUNDAY) {
@@ -152,24 +379,29 @@ public class TurnoService {
         if (hora < 8 || hora > 18) {
             throw new RuntimeException("El horario de atención es de 08:00 a 18:00.");
         }
+
+        if (duracionMinutos < DURACION_MINIMA || duracionMinutos > DURACION_MAXIMA) {
+            throw new RuntimeException("La duración del turno tiene que estar entre " + DURACION_MINIMA + " y " + DURACION_MAXIMA + " minutos.");
+        }
+        if (fecha.plusMinutes(duracionMinutos).isAfter(fecha.toLocalDate().atTime(HORA_CIERRE, 0))) {
+            throw new RuntimeException("El turno tiene que terminar antes de las " + HORA_CIERRE + ":00.");
+        }
     }
 
+    // Se llama dentro de la transacción de crear(). Sin try/catch a propósito: si el insert en el outbox falla,
+    // la transacción ya quedó marcada para rollback y tragarse el error terminaría en UnexpectedRollbackException
     private void enviarEmailConfirmacion(String emailDestino, Turno turno) {
-        try {
-            String fechaStr = turno.getFechaHora().format(DateTimeFormatter.ofPattern("dd/MM/yyyy"));
-            String horaStr = turno.getFechaHora().format(DateTimeFormatter.ofPattern("HH:mm"));
+        String fechaStr = turno.getFechaHora().format(DateTimeFormatter.ofPattern("dd/MM/yyyy"));
+        String horaStr = turno.getFechaHora().format(DateTimeFormatter.ofPattern("HH:mm"));
 
-            String asunto = "Confirmación de Turno - Clínica Integral";
-            String mensaje = String.format(
-                "Hola %s,\n\nTu turno ha sido reservado con éxito.\n\n" +
-                "📅 Fecha: %s\n⏰ Hora: %s\n👨‍⚕️ Médico: %s\n🏥 Motivo: %s\n\n" +
-                "Por favor, recuerda asistir 10 minutos antes.\nSaludos,\nClínica Integral.",
-                turno.getCliente(), fechaStr, horaStr, turno.getNombreMedico(), turno.getDescripcion()
-            );
+        String asunto = "Confirmación de Turno - Clínica Integral";
+        String mensaje = String.format(
+            "Hola %s,\n\nTu turno ha sido reservado con éxito.\n\n" +
+            "📅 Fecha: %s\n⏰ Hora: %s\n👨‍⚕️ Médico: %s\n🏥 Motivo: %s\n\n" +
+            "Por favor, recuerda asistir 10 minutos antes.\nSaludos,\nClínica Integral.",
+            turno.getCliente(), fechaStr, horaStr, turno.getNombreMedico(), turno.getDescripcion()
+        );
 
-            emailService.sendEmail(emailDestino, asunto, mensaje);
-        } catch (Exception e) {
-            System.err.println("Error enviando email de confirmación: " + e.getMessage());
-        }
+        emailService.sendEmail(emailDestino, asunto, mensaje);
     }
 } 
\ No newline at end of file
@@ -0,0 +1,61 @@
+package com.nico.turnos.service;
+
+import com.nico.turnos.config.UsuarioAutenticado;
+import com.nico.turnos.entity.Rol;
+import com.nico.turnos.entity.Usuario;
+import com.nico.turnos.repository.UsuarioRepository;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.annotation.RequestScope;
+
+// El usuario logueado en la request actual.
+// Id, email y rol salen del principal que armó el filtro JWT (sin query). La entidad completa se busca
+// solo si alguien la pide, y a lo sumo una vez por request aunque la pidan varios servicios.
+@Component
+@RequestScope
+public class UsuarioActual {
+
+    private final UsuarioRepository usuarioRepository;
+    private Usuario usuario;
+
+    public UsuarioActual(UsuarioRepository usuarioRepository) {
+        this.usuarioRepository = usuarioRepository;
+    }
+
+    public String getUsername() {
+        return autenticacion().getName();
+    }
+
+    public Rol getRol() {
+        Object principal = autenticacion().getPrincipal();
+        if (principal instanceof UsuarioAutenticado autenticado) return autenticado.getRol();
+        return getUsuario().getRol();
+    }
+
+    public Long getId() {
+        Object principal = autenticacion().getPrincipal();
+        if (principal instanceof UsuarioAutenticado autenticado) return autenticado.getId();
+        return getUsuario().getId();
+    }
+
+    public Usuario getUsuario() {
+        if (usuario == null) {
+            Object principal = autenticacion().getPrincipal();
+            // Con jwt.stateless-principal=false el filtro ya cargó la entidad: la reusamos
+            usuario = principal instanceof Usuario cargado
+                    ? cargado
+                    : usuarioRepository.findByUsername(getUsername())
+                            .orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
+        }
+        return usuario;
+    }
+
+    private Authentication autenticacion() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null) {
+            throw new RuntimeException("No hay un usuario logueado");
+        }
+        return authentication;
+    }
+}
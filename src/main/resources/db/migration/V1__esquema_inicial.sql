@@ -0,0 +1,40 @@
+-- Esquema tal como lo dejaba ddl-auto=update antes de pasar a migraciones.
+-- En una base que ya existe no se ejecuta: spring.flyway.baseline-on-migrate la marca como versión 1.
+-- Por eso acá van solo las tablas que ya tenía cualquier instalación; las que se agregaron después
+-- van en migraciones nuevas.
+
+CREATE TABLE IF NOT EXISTS usuario (
+    id                 BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    username           VARCHAR(255) NOT NULL UNIQUE,
+    password           VARCHAR(255),
+    nombre_completo    VARCHAR(255),
+    dni                VARCHAR(255),
+    telefono           VARCHAR(255),
+    especialidad       VARCHAR(255),
+    foto_perfil        VARCHAR(255),
+    rol                VARCHAR(255) CHECK (rol IN ('ADMIN', 'MEDICO', 'PACIENTE')),
+    enabled            BOOLEAN NOT NULL,
+    verification_code  VARCHAR(255),
+    reset_token        VARCHAR(255),
+    reset_token_expiry TIMESTAMP(6)
+);
+
+CREATE TABLE IF NOT EXISTS medico (
+    id           BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    nombre       VARCHAR(255),
+    especialidad VARCHAR(255),
+    email        VARCHAR(255)
+);
+
+CREATE TABLE IF NOT EXISTS turno (
+    id                BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    fecha_hora        TIMESTAMP(6) NOT NULL,
+    medico_id         BIGINT NOT NULL,
+    nombre_medico     VARCHAR(255),
+    especialidad      VARCHAR(255),
+    cliente           VARCHAR(255),
+    paciente_username VARCHAR(255),
+    descripcion       VARCHAR(255),
+    diagnostico       VARCHAR(255),
+    asistio           BOOLEAN NOT NULL
+);
@@ -0,0 +1,20 @@
+-- Índices para las consultas más usadas. Con ddl-auto=update la tabla turno solo tenía la clave primaria
+-- y todas estas búsquedas recorrían la tabla entera.
+
+-- Un médico no puede tener dos turnos a la misma hora. El índice único también sirve para
+-- findByMedicoId / existsByMedicoIdAndFechaHora y la agenda del médico (medico_id primero, ordenado por fecha),
+-- así que no hace falta otro índice no único sobre las mismas columnas.
+-- Si la base ya tiene turnos duplicados esta migración falla; para encontrarlos:
+--   SELECT medico_id, fecha_hora, count(*) FROM turno GROUP BY medico_id, fecha_hora HAVING count(*) > 1;
+CREATE UNIQUE INDEX IF NOT EXISTS uk_turno_medico_fecha_hora ON turno (medico_id, fecha_hora);
+
+-- "Mis turnos" del paciente, ordenados por fecha
+CREATE INDEX IF NOT EXISTS idx_turno_paciente_fecha_hora ON turno (paciente_username, fecha_hora);
+
+-- Rangos de fechas sin médico: recordatorios, reportes, rollup de estadísticas
+CREATE INDEX IF NOT EXISTS idx_turno_fecha_hora ON turno (fecha_hora);
+
+-- Búsqueda por token de verificación y de recuperación de contraseña.
+-- verification_code no es único: también guarda los códigos de 6 dígitos del cambio de contraseña.
+CREATE INDEX IF NOT EXISTS idx_usuario_verification_code ON usuario (verification_code);
+CREATE UNIQUE INDEX IF NOT EXISTS uk_usuario_reset_token ON usuario (reset_token);
@@ -0,0 +1,16 @@
+-- Turnos con duración. Los que ya existen quedan de 30 minutos, como se venían dando.
+ALTER TABLE turno ADD COLUMN IF NOT EXISTS duracion_minutos INTEGER NOT NULL DEFAULT 30;
+
+-- Un médico no puede tener dos turnos que se pisen (ej: 10:00 de 30 min y 10:15). El índice GiST sobre
+-- (medico_id, rango del turno) resuelve el chequeo sin recorrer la agenda. btree_gist hace falta para
+-- poder combinar el "=" de medico_id con el "&&" de los rangos en el mismo índice.
+-- Si ya hay turnos solapados esta migración falla; para encontrarlos:
+--   SELECT a.id, b.id FROM turno a JOIN turno b ON a.medico_id = b.medico_id AND a.id < b.id
+--    AND tsrange(a.fecha_hora, a.fecha_hora + a.duracion_minutos * INTERVAL '1 minute')
+--     && tsrange(b.fecha_hora, b.fecha_hora + b.duracion_minutos * INTERVAL '1 minute');
+CREATE EXTENSION IF NOT EXISTS btree_gist;
+
+ALTER TABLE turno ADD CONSTRAINT ex_turno_medico_solapado EXCLUDE USING gist (
+    medico_id WITH =,
+    tsrange(fecha_hora, fecha_hora + duracion_minutos * INTERVAL '1 minute') WITH &&
+);
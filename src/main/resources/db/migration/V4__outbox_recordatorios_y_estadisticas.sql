@@ -0,0 +1,39 @@
+-- Tablas del outbox de emails, del registro de recordatorios y del resumen de estadísticas.
+-- IF NOT EXISTS: una base que ya las tenía creadas por ddl-auto=update las deja como están.
+
+CREATE TABLE IF NOT EXISTS email_pendiente (
+    id              BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    destinatario    VARCHAR(255) NOT NULL,
+    asunto          VARCHAR(255) NOT NULL,
+    contenido       TEXT NOT NULL,
+    estado          VARCHAR(255) NOT NULL CHECK (estado IN ('PENDIENTE', 'ENVIADO', 'FALLIDO')),
+    intentos        INTEGER NOT NULL,
+    proximo_intento TIMESTAMP(6) NOT NULL,
+    creado_en       TIMESTAMP(6) NOT NULL,
+    enviado_en      TIMESTAMP(6),
+    ultimo_error    VARCHAR(500)
+);
+
+CREATE TABLE IF NOT EXISTS registro_recordatorio (
+    id           BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    turno_id     BIGINT NOT NULL,
+    tipo         VARCHAR(255) NOT NULL CHECK (tipo IN ('DIA_ANTERIOR')),
+    encolado     BOOLEAN NOT NULL,
+    procesado_en TIMESTAMP(6) NOT NULL,
+    CONSTRAINT uk_registro_recordatorio_turno_tipo UNIQUE (turno_id, tipo)
+);
+
+CREATE TABLE IF NOT EXISTS estadistica_diaria (
+    id            BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    fecha         DATE NOT NULL,
+    medico_id     BIGINT NOT NULL,
+    especialidad  VARCHAR(255) NOT NULL,
+    reservas      BIGINT NOT NULL,
+    asistencias   BIGINT NOT NULL,
+    cancelaciones BIGINT NOT NULL,
+    CONSTRAINT uk_estadistica_diaria_fecha_medico_especialidad UNIQUE (fecha, medico_id, especialidad)
+);
+
+CREATE TABLE IF NOT EXISTS estadistica_dia_pendiente (
+    fecha DATE PRIMARY KEY
+);
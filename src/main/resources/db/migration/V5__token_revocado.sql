@@ -0,0 +1,9 @@
+-- Revocaciones de tokens JWT (usuario borrado o con el rol/email cambiado), compartidas entre nodos
+-- y que sobreviven a un reinicio. Una fila por usuario con la última revocación.
+
+CREATE TABLE IF NOT EXISTS token_revocado (
+    username    VARCHAR(255) PRIMARY KEY,
+    revocado_en TIMESTAMP(6) NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_token_revocado_revocado_en ON token_revocado (revocado_en);
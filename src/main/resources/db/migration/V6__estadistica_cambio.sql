@@ -0,0 +1,16 @@
+-- Las marcas de días a recalcular pasan a ser un registro de cambios de solo inserción: una fila por cambio
+-- de turno en lugar de una fila compartida por día, así una reserva nunca espera el lock de otra reserva
+-- ni el del job que recalcula el día. Las cancelaciones viajan en el mismo registro y las suma el job.
+
+CREATE TABLE IF NOT EXISTS estadistica_cambio (
+    id           BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    fecha        DATE NOT NULL,
+    medico_id    BIGINT,
+    especialidad VARCHAR(255),
+    cancelacion  BOOLEAN NOT NULL
+);
+
+INSERT INTO estadistica_cambio (fecha, cancelacion)
+SELECT fecha, FALSE FROM estadistica_dia_pendiente;
+
+DROP TABLE estadistica_dia_pendiente;
@@ -0,0 +1,134 @@
+package com.nico.turnos.config;
+
+import com.nico.turnos.entity.Rol;
+import com.nico.turnos.entity.TokenRevocado;
+import com.nico.turnos.entity.Usuario;
+import com.nico.turnos.repository.TokenRevocadoRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetailsService;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class JwtAuthenticationFilterTest {
+
+    private static final String SECRET_KEY = "dGVzdC1zZWNyZXQtcGFyYS1sb3MtdGVzdHMtZGUtand0LXNlcnZpY2UtMTIzNDU2";
+
+    private JwtService jwtService;
+    private UserDetailsService userDetailsService;
+    private TokenRevocadoRepository tokenRevocadoRepository;
+    private RevocacionTokens revocacionTokens;
+    private JwtAuthenticationFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        jwtService = new JwtService(SECRET_KEY, 100);
+        userDetailsService = Mockito.mock(UserDetailsService.class);
+        tokenRevocadoRepository = Mockito.mock(TokenRevocadoRepository.class);
+        revocacionTokens = new RevocacionTokens(tokenRevocadoRepository);
+        revocacionTokens.sincronizar();
+        filter = new JwtAuthenticationFilter(jwtService, userDetailsService, revocacionTokens, true);
+        SecurityContextHolder.clearContext();
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    @DisplayName("Should build the principal from token claims without loading the user")
+    void tokenConClaims_noConsultaLaBase() throws Exception {
+        String token = jwtService.generateToken(Map.of(JwtService.CLAIM_ID, 7L, JwtService.CLAIM_ROL, "MEDICO"), usuario("doc@clinica.com"));
+
+        Authentication auth = filtrar(token);
+
+        assertNotNull(auth);
+        UsuarioAutenticado principal = assertInstanceOf(UsuarioAutenticado.class, auth.getPrincipal());
+        assertEquals(7L, principal.getId());
+        assertEquals(Rol.MEDICO, principal.getRol());
+        assertEquals("doc@clinica.com", auth.getName());
+        assertEquals("MEDICO", auth.getAuthorities().iterator().next().getAuthority());
+        verifyNoInteractions(userDetailsService);
+    }
+
+    @Test
+    @DisplayName("Should fall back to the database for tokens issued without id and role claims")
+    void tokenViejo_buscaEnLaBase() throws Exception {
+        Usuario usuario = usuario("viejo@clinica.com");
+        when(userDetailsService.loadUserByUsername("viejo@clinica.com")).thenReturn(usuario);
+
+        Authentication auth = filtrar(jwtService.generateToken(usuario));
+
+        assertNotNull(auth);
+        assertSame(usuario, auth.getPrincipal());
+    }
+
+    @Test
+    @DisplayName("Should reject tokens of a user revoked after they were issued")
+    void usuarioRevocado_quedaSinAutenticar() throws Exception {
+        String token = jwtService.generateToken(Map.of(JwtService.CLAIM_ID, 9L, JwtService.CLAIM_ROL, "PACIENTE"), usuario("baja@clinica.com"));
+        revocacionTokens.revocar("baja@clinica.com");
+
+        assertNull(filtrar(token));
+        verifyNoInteractions(userDetailsService);
+        verify(tokenRevocadoRepository).save(any(TokenRevocado.class));
+    }
+
+    @Test
+    @DisplayName("Should reject tokens revoked on another node once the revocations are synced from the database")
+    void revocadoEnOtroNodo_seAplicaAlSincronizar() throws Exception {
+        String token = jwtService.generateToken(Map.of(JwtService.CLAIM_ID, 3L, JwtService.CLAIM_ROL, "ADMIN"), usuario("exadmin@clinica.com"));
+        when(tokenRevocadoRepository.findByRevocadoEnAfter(any()))
+                .thenReturn(List.of(new TokenRevocado("exadmin@clinica.com", LocalDateTime.now().plusSeconds(1))));
+
+        revocacionTokens.sincronizar();
+
+        assertNull(filtrar(token));
+        verifyNoInteractions(userDetailsService);
+    }
+
+    @Test
+    @DisplayName("Should load the user from the database while the revocation list has not been synced")
+    void revocacionesSinSincronizar_buscaEnLaBase() throws Exception {
+        filter = new JwtAuthenticationFilter(jwtService, userDetailsService,
+                new RevocacionTokens(tokenRevocadoRepository), true);
+        Usuario usuario = usuario("doc@clinica.com");
+        when(userDetailsService.loadUserByUsername("doc@clinica.com")).thenReturn(usuario);
+
+        Authentication auth = filtrar(jwtService.generateToken(
+                Map.of(JwtService.CLAIM_ID, 7L, JwtService.CLAIM_ROL, "ADMIN"), usuario));
+
+        assertSame(usuario, auth.getPrincipal());
+        assertEquals("PACIENTE", auth.getAuthorities().iterator().next().getAuthority());
+    }
+
+    private Authentication filtrar(String token) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/turnos");
+        request.setServletPath("/turnos");
+        request.addHeader("Authorization", "Bearer " + token);
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+
+    private Usuario usuario(String username) {
+        Usuario usuario = new Usuario();
+        usuario.setUsername(username);
+        usuario.setRol(Rol.PACIENTE);
+        return usuario;
+    }
+}
@@ -11,7 +11,6 @@ import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 import org.springframework.security.core.userdetails.UserDetails;
 
-import java.lang.reflect.Field;
 import java.security.Key;
 import java.util.Date;
 import java.util.HashMap;
@@ -22,23 +21,19 @@ import static org.mockito.Mockito.when;
 
 class JwtServiceTest {
 
+    // Clave de prueba (256 bits en base64); en la app viene de jwt.secret
+    private static final String SECRET_KEY = "dGVzdC1zZWNyZXQtcGFyYS1sb3MtdGVzdHMtZGUtand0LXNlcnZpY2UtMTIzNDU2";
+
     private JwtService jwtService;
 
     @BeforeEach
     void setUp() {
-        jwtService = new JwtService();
+        jwtService = new JwtService(SECRET_KEY, 100);
     }
 
     private Key getSigningKeyViaReflection() {
-        try {
-            Field secretField = JwtService.class.getDeclaredField("SECRET_KEY");
-            secretField.setAccessible(true);
-            String secret = (String) secretField.get(null);
-            byte[] keyBytes = Decoders.BASE64.decode(secret);
-            return Keys.hmacShaKeyFor(keyBytes);
-        } catch (Exception e) {
-            throw new RuntimeException(e);
-        }
+        byte[] keyBytes = Decoders.BASE64.decode(SECRET_KEY);
+        return Keys.hmacShaKeyFor(keyBytes);
     }
 
     private UserDetails mockUser(String username) {
@@ -217,4 +212,42 @@ class JwtServiceTest {
         String malformed = "abc.def"; // only 2 parts
         assertThrows(RuntimeException.class, () -> jwtService.extractUsername(malformed));
     }
+
+    @Test
+    @DisplayName("Should verify a token once and serve later lookups from the cache")
+    void extractAllClaims_cachesVerifiedTokens() {
+        UserDetails user = mockUser("mario");
+        String token = jwtService.generateToken(user);
+
+        Claims first = jwtService.extractAllClaims(token);
+        Claims second = jwtService.extractAllClaims(token);
+
+        assertSame(first, second);
+        assertEquals(1, jwtService.getTokensEnCache());
+    }
+
+    @Test
+    @DisplayName("Should keep the cache bounded and still validate tokens once it is full")
+    void extractAllClaims_cacheIsBounded() {
+        JwtService small = new JwtService(SECRET_KEY, 2);
+        for (String name : new String[]{"n1", "n2", "n3"}) {
+            UserDetails user = mockUser(name);
+            assertTrue(small.isTokenValid(small.generateToken(user), user));
+        }
+        assertEquals(2, small.getTokensEnCache());
+    }
+
+    @Test
+    @DisplayName("Should evict a single entry to cache a new token when the cache is full of valid tokens")
+    void extractAllClaims_fullCache_evictsOneEntry() {
+        JwtService small = new JwtService(SECRET_KEY, 2);
+        small.extractAllClaims(small.generateToken(mockUser("o1")));
+        small.extractAllClaims(small.generateToken(mockUser("o2")));
+        String nuevo = small.generateToken(mockUser("o3"));
+
+        Claims first = small.extractAllClaims(nuevo);
+
+        assertSame(first, small.extractAllClaims(nuevo));
+        assertEquals(2, small.getTokensEnCache());
+    }
 }
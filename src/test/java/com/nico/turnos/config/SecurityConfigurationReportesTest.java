@@ -0,0 +1,65 @@
+package com.nico.turnos.config;
+
+import com.nico.turnos.controller.ReporteController;
+import com.nico.turnos.service.ReporteService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Con la SecurityConfiguration real (la de SecurityConfigurationTest no se carga en @WebMvcTest)
+@WebMvcTest(controllers = ReporteController.class)
+@Import(SecurityConfiguration.class)
+class SecurityConfigurationReportesTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private ReporteService reporteService;
+
+    @MockBean
+    private AuthenticationProvider authenticationProvider;
+
+    @MockBean
+    private JwtService jwtService;
+
+    @MockBean
+    private UserDetailsService userDetailsService;
+
+    @MockBean
+    private RevocacionTokens revocacionTokens;
+
+    @Test
+    @WithMockUser(authorities = "PACIENTE")
+    @DisplayName("Should forbid a patient from exporting the clinic-wide appointments CSV")
+    void turnosCsv_paciente_prohibido() throws Exception {
+        mockMvc.perform(get("/api/reportes/turnos.csv"))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    @WithMockUser(authorities = "MEDICO")
+    @DisplayName("Should forbid a doctor from exporting the users CSV")
+    void usuariosCsv_medico_prohibido() throws Exception {
+        mockMvc.perform(get("/api/reportes/usuarios.csv"))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    @WithMockUser(authorities = "ADMIN")
+    @DisplayName("Should let an admin export the appointments CSV")
+    void turnosCsv_admin_permitido() throws Exception {
+        mockMvc.perform(get("/api/reportes/turnos.csv"))
+                .andExpect(status().isOk());
+    }
+}
@@ -2,6 +2,7 @@ package com.nico.turnos.config;
 
 import com.nico.turnos.controller.ChatController;
 import com.nico.turnos.service.GeminiService;
+import com.nico.turnos.service.SesionChatService;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
@@ -35,6 +36,9 @@ class SecurityConfigurationTest {
     @MockBean
     private GeminiService geminiService;
 
+    @MockBean
+    private SesionChatService sesionChatService;
+
     @MockBean
     private JwtAuthenticationFilter jwtAuthenticationFilter; // to assert it's skipped on /chat
 
@@ -0,0 +1,65 @@
+package com.nico.turnos.controller;
+
+import com.nico.turnos.service.GeminiService;
+import com.nico.turnos.service.SesionChatService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class ChatControllerTest {
+
+    private GeminiService geminiService;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        geminiService = Mockito.mock(GeminiService.class);
+        ChatController chatController = new ChatController(geminiService, new SesionChatService(300, 60_000, 100));
+        mockMvc = MockMvcBuilders.standaloneSetup(chatController).build();
+    }
+
+    @Test
+    @DisplayName("Should answer a blank streaming question with an error event instead of a 500")
+    void preguntarEnStreaming_mensajeVacio_eventoError() throws Exception {
+        MvcResult resultado = mockMvc.perform(post("/chat/stream")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"mensaje\": \"   \"}"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(resultado))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("event:error")))
+                .andExpect(content().string(containsString("El mensaje no puede estar vac")));
+        verify(geminiService, never()).preguntarEnStreaming(any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("Should answer a streaming question whose history is not a list with an error event")
+    void preguntarEnStreaming_historialInvalido_eventoError() throws Exception {
+        MvcResult resultado = mockMvc.perform(post("/chat/stream")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"historial\": \"hola\"}"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(resultado))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("event:error")));
+        verify(geminiService, never()).preguntarEnStreaming(any(), any(), any());
+    }
+}
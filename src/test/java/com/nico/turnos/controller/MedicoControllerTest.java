@@ -1,13 +1,18 @@
 package com.nico.turnos.controller;
 
+import com.nico.turnos.dto.HorarioOcupadoDTO;
 import com.nico.turnos.entity.Medico;
 import com.nico.turnos.repository.MedicoRepository;
 import com.nico.turnos.repository.TurnoRepository;
+import com.nico.turnos.repository.UsuarioRepository;
+import com.nico.turnos.service.CatalogoMedicosService;
+import com.nico.turnos.service.DisponibilidadService;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
@@ -27,6 +32,7 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @WebMvcTest(MedicoController.class)
+@Import({DisponibilidadService.class, CatalogoMedicosService.class})
 class MedicoControllerTest {
 
     @Autowired
@@ -38,6 +44,9 @@ class MedicoControllerTest {
     @MockBean
     private TurnoRepository turnoRepository;
 
+    @MockBean
+    private UsuarioRepository usuarioRepository;
+
     @Test
     @WithMockUser
     @DisplayName("Should create a doctor via POST /medicos and return persisted entity")
@@ -103,10 +112,10 @@ class MedicoControllerTest {
     void disponibilidad_excludesOccupied() throws Exception {
         Long medicoId = 7L;
         String fecha = "2025-02-01";
-        List<LocalDateTime> ocupados = Arrays.asList(
-                LocalDateTime.of(2025, 2, 1, 9, 0),
-                LocalDateTime.of(2025, 2, 1, 10, 30),
-                LocalDateTime.of(2025, 2, 1, 16, 30)
+        List<HorarioOcupadoDTO> ocupados = Arrays.asList(
+                new HorarioOcupadoDTO(medicoId, LocalDateTime.of(2025, 2, 1, 9, 0)),
+                new HorarioOcupadoDTO(medicoId, LocalDateTime.of(2025, 2, 1, 10, 30)),
+                new HorarioOcupadoDTO(medicoId, LocalDateTime.of(2025, 2, 1, 16, 30))
         );
         given(turnoRepository.findHorariosOcupados(eq(medicoId), eq(LocalDate.parse(fecha))))
                 .willReturn(ocupados);
@@ -0,0 +1,88 @@
+package com.nico.turnos.controller;
+
+import com.nico.turnos.entity.Turno;
+import com.nico.turnos.repository.TurnoRepository;
+import com.nico.turnos.service.ReporteService;
+import com.nico.turnos.service.TurnoService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class TurnoControllerTest {
+
+    private static final LocalDate DESDE = LocalDate.of(2030, 3, 11);
+
+    private TurnoService turnoService;
+    private ReporteService reporteService;
+    private TurnoController turnoController;
+
+    @BeforeEach
+    void setUp() {
+        turnoService = Mockito.mock(TurnoService.class);
+        reporteService = Mockito.mock(ReporteService.class);
+        turnoController = new TurnoController(turnoService, reporteService, Mockito.mock(TurnoRepository.class));
+    }
+
+    @Test
+    @DisplayName("Should stream the zip of the resolved appointments")
+    void descargarPdfLote_devuelveElZip() throws IOException {
+        List<Turno> turnos = List.of(new Turno());
+        when(turnoService.turnosParaLotePdf(9L, DESDE, null)).thenReturn(turnos);
+
+        ResponseEntity<StreamingResponseBody> respuesta = turnoController.descargarPdfLote(9L, DESDE, null);
+        escribir(respuesta);
+
+        assertEquals(HttpStatus.OK, respuesta.getStatusCode());
+        assertEquals("attachment; filename=turnos_2030-03-11.zip", respuesta.getHeaders().getFirst(HttpHeaders.CONTENT_DISPOSITION));
+        verify(reporteService).escribirZipReportes(eq(turnos), any());
+    }
+
+    @Test
+    @DisplayName("Should answer 403 when the user may not download batch reports")
+    void descargarPdfLote_sinPermiso_403() throws IOException {
+        when(turnoService.turnosParaLotePdf(any(), any(), any()))
+                .thenThrow(new AccessDeniedException("No tienes permiso para descargar reportes por lote."));
+
+        ResponseEntity<StreamingResponseBody> respuesta = turnoController.descargarPdfLote(9L, DESDE, null);
+
+        assertEquals(HttpStatus.FORBIDDEN, respuesta.getStatusCode());
+        assertEquals("No tienes permiso para descargar reportes por lote.", escribir(respuesta));
+        verifyNoInteractions(reporteService);
+    }
+
+    @Test
+    @DisplayName("Should answer 400 with the message when the request is invalid")
+    void descargarPdfLote_pedidoInvalido_400() throws IOException {
+        when(turnoService.turnosParaLotePdf(null, DESDE, DESDE.minusDays(1)))
+                .thenThrow(new RuntimeException("La fecha 'hasta' no puede ser anterior a 'desde'."));
+
+        ResponseEntity<StreamingResponseBody> respuesta = turnoController.descargarPdfLote(null, DESDE, DESDE.minusDays(1));
+
+        assertEquals(HttpStatus.BAD_REQUEST, respuesta.getStatusCode());
+        assertEquals("La fecha 'hasta' no puede ser anterior a 'desde'.", escribir(respuesta));
+        verifyNoInteractions(reporteService);
+    }
+
+    private static String escribir(ResponseEntity<StreamingResponseBody> respuesta) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        respuesta.getBody().writeTo(out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,47 @@
+package com.nico.turnos.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CacheDePdfTest {
+
+    @Test
+    @DisplayName("Should evict the least recently used PDF once the byte limit is exceeded")
+    void guardar_superaElTamanio_desalojaLaMenosUsada() {
+        CacheDePdf cache = new CacheDePdf(10);
+        cache.guardar("a", new byte[4]);
+        cache.guardar("b", new byte[4]);
+        cache.obtener("a"); // "a" pasa a ser la más reciente
+
+        cache.guardar("c", new byte[4]);
+
+        assertNotNull(cache.obtener("a"));
+        assertNull(cache.obtener("b"));
+        assertNotNull(cache.obtener("c"));
+        assertEquals(8, cache.getBytesActuales());
+    }
+
+    @Test
+    @DisplayName("Should not store a PDF larger than the whole cache nor evict others for it")
+    void guardar_pdfMasGrandeQueLaCache_noSeGuarda() {
+        CacheDePdf cache = new CacheDePdf(10);
+        cache.guardar("a", new byte[4]);
+        cache.guardar("enorme", new byte[11]);
+
+        assertNull(cache.obtener("enorme"));
+        assertNotNull(cache.obtener("a"));
+    }
+
+    @Test
+    @DisplayName("Should update the byte count when an entry is replaced")
+    void guardar_reemplazaEntrada_actualizaLosBytes() {
+        CacheDePdf cache = new CacheDePdf(10);
+        cache.guardar("a", new byte[4]);
+        cache.guardar("a", new byte[6]);
+
+        assertEquals(1, cache.getCantidad());
+        assertEquals(6, cache.getBytesActuales());
+    }
+}
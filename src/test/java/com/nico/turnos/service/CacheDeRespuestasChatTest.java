@@ -0,0 +1,51 @@
+package com.nico.turnos.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CacheDeRespuestasChatTest {
+
+    @Test
+    @DisplayName("Should treat questions differing only in case, accents and punctuation as the same key")
+    void clave_normalizaLaPregunta() {
+        assertEquals(CacheDeRespuestasChat.clave("¿Qué horario tienen?", "ctx"),
+                CacheDeRespuestasChat.clave("  que HORARIO   tienen ", "ctx"));
+        assertNotEquals(CacheDeRespuestasChat.clave("¿Qué horario tienen?", "ctx"),
+                CacheDeRespuestasChat.clave("¿Qué horario tienen?", "otro paciente"));
+    }
+
+    @Test
+    @DisplayName("Should expire entries after the TTL and count hits and misses")
+    void obtener_respetaElVencimiento() {
+        AtomicLong ahora = new AtomicLong(1_000);
+        CacheDeRespuestasChat cache = new CacheDeRespuestasChat(10, 500, ahora::get);
+
+        cache.guardar("a", "respuesta");
+        assertEquals("respuesta", cache.obtener("a"));
+        ahora.addAndGet(500);
+        assertNull(cache.obtener("a"));
+
+        assertEquals(1, cache.getAciertos());
+        assertEquals(1, cache.getFallos());
+        assertEquals(0, cache.getCantidad());
+    }
+
+    @Test
+    @DisplayName("Should evict the least recently used entry when full")
+    void guardar_desalojaLaMenosUsada() {
+        CacheDeRespuestasChat cache = new CacheDeRespuestasChat(2, 60_000);
+
+        cache.guardar("a", "1");
+        cache.guardar("b", "2");
+        cache.obtener("a"); // "b" pasa a ser la menos usada
+        cache.guardar("c", "3");
+
+        assertEquals("1", cache.obtener("a"));
+        assertNull(cache.obtener("b"));
+        assertEquals("3", cache.obtener("c"));
+    }
+}
@@ -0,0 +1,44 @@
+package com.nico.turnos.service;
+
+import com.nico.turnos.entity.Medico;
+import com.nico.turnos.repository.MedicoRepository;
+import com.nico.turnos.repository.UsuarioRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class CatalogoMedicosServiceTest {
+
+    private MedicoRepository medicoRepository;
+    private CatalogoMedicosService catalogoMedicosService;
+
+    @BeforeEach
+    void setUp() {
+        medicoRepository = Mockito.mock(MedicoRepository.class);
+        catalogoMedicosService = new CatalogoMedicosService(medicoRepository, Mockito.mock(UsuarioRepository.class), 60_000);
+        when(medicoRepository.findAll()).thenReturn(List.of(new Medico("Dr. A", "Cardiología", "a@ex.com")));
+    }
+
+    @Test
+    @DisplayName("Should load the catalog once and keep the same ETag until it is invalidated")
+    void medicos_cacheHastaInvalidar() {
+        CatalogoMedicosService.Catalogo<Medico> primero = catalogoMedicosService.medicos();
+        CatalogoMedicosService.Catalogo<Medico> segundo = catalogoMedicosService.medicos();
+
+        assertEquals(primero.etag(), segundo.etag());
+        assertEquals(1, segundo.datos().size());
+        verify(medicoRepository, times(1)).findAll();
+
+        catalogoMedicosService.invalidarMedicos();
+        CatalogoMedicosService.Catalogo<Medico> tercero = catalogoMedicosService.medicos();
+
+        assertNotEquals(primero.etag(), tercero.etag());
+        verify(medicoRepository, times(2)).findAll();
+    }
+}
@@ -0,0 +1,133 @@
+package com.nico.turnos.service;
+
+import com.nico.turnos.exception.ServicioExternoNoDisponibleException;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.RestClient;
+
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClienteHttpExternoTest {
+
+    private static final ClienteHttpExterno.Configuracion CONFIGURACION = new ClienteHttpExterno.Configuracion(
+            Duration.ofSeconds(2), Duration.ofSeconds(2), 2, 3, Duration.ofSeconds(30));
+
+    private HttpServer destinoFalso;
+    private final AtomicInteger recibidos = new AtomicInteger();
+    private final AtomicInteger respuestaHttp = new AtomicInteger(200);
+    private final AtomicLong ahora = new AtomicLong(1_000_000);
+
+    private ClienteHttpExterno cliente;
+    private RestClient restClient;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        destinoFalso = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        destinoFalso.createContext("/api", exchange -> {
+            recibidos.incrementAndGet();
+            exchange.sendResponseHeaders(respuestaHttp.get(), -1);
+            exchange.close();
+        });
+        destinoFalso.start();
+
+        cliente = new ClienteHttpExterno("destino", CONFIGURACION, ahora::get);
+        restClient = cliente.restClient(RestClient.builder(), "http://localhost:" + destinoFalso.getAddress().getPort());
+    }
+
+    @AfterEach
+    void tearDown() {
+        destinoFalso.stop(0);
+    }
+
+    @Test
+    @DisplayName("Should open the circuit after consecutive server errors and fail fast without calling the upstream")
+    void llamar_fallasSeguidas_abreElCircuito() {
+        respuestaHttp.set(503);
+        for (int i = 0; i < 3; i++) {
+            assertThrows(HttpServerErrorException.class, this::llamar);
+        }
+
+        assertThrows(ServicioExternoNoDisponibleException.class, this::llamar);
+        assertEquals(3, recibidos.get());
+
+        // Pasado el tiempo abierto, una llamada de prueba que sale bien lo vuelve a cerrar
+        respuestaHttp.set(200);
+        ahora.addAndGet(30_000);
+        llamar();
+        llamar();
+
+        ClienteHttpExterno.Metricas metricas = cliente.getMetricas();
+        assertEquals("CERRADO", metricas.circuito());
+        assertEquals(5, metricas.llamadas());
+        assertEquals(3, metricas.fallos());
+        assertEquals(1, metricas.rechazadasPorCircuito());
+        assertEquals(1, metricas.aperturas());
+        assertEquals(0, metricas.enCurso());
+    }
+
+    @Test
+    @DisplayName("Should not count client errors against the circuit")
+    void llamar_errores4xx_noAbrenElCircuito() {
+        respuestaHttp.set(400);
+        for (int i = 0; i < 5; i++) {
+            assertThrows(HttpClientErrorException.class, this::llamar);
+        }
+
+        assertEquals(5, recibidos.get());
+        assertEquals("CERRADO", cliente.getMetricas().circuito());
+    }
+
+    @Test
+    @DisplayName("Should reject calls beyond the concurrency limit and allow a single probe while half-open")
+    void entrar_limiteYPrueba() {
+        ClienteHttpExterno.Permiso primero = cliente.entrar();
+        ClienteHttpExterno.Permiso segundo = cliente.entrar();
+        assertThrows(ServicioExternoNoDisponibleException.class, cliente::entrar);
+        primero.terminar(false);
+        primero.terminar(true); // Solo cuenta la primera vez
+        segundo.terminar(false);
+        cliente.entrar().terminar(false);
+        assertEquals("ABIERTO", cliente.getMetricas().circuito());
+
+        ahora.addAndGet(30_000);
+        ClienteHttpExterno.Permiso prueba = cliente.entrar();
+        assertThrows(ServicioExternoNoDisponibleException.class, cliente::entrar);
+        prueba.terminar(false);
+
+        assertEquals("ABIERTO", cliente.getMetricas().circuito());
+        assertEquals(2, cliente.getMetricas().aperturas());
+        assertEquals(1, cliente.getMetricas().rechazadasPorLimite());
+        assertEquals(0, cliente.getMetricas().enCurso());
+    }
+
+    @Test
+    @DisplayName("Should let another probe through when the half-open probe is cancelled, without closing the circuit")
+    void cancelar_pruebaSemiabierta_noCierraElCircuito() {
+        for (int i = 0; i < 3; i++) {
+            cliente.entrar().terminar(false);
+        }
+        ahora.addAndGet(30_000);
+
+        cliente.entrar().cancelar();
+        ClienteHttpExterno.Permiso otraPrueba = cliente.entrar();
+
+        assertEquals("SEMIABIERTO", cliente.getMetricas().circuito());
+        assertEquals(1, cliente.getMetricas().canceladas());
+        otraPrueba.terminar(true);
+        assertEquals("CERRADO", cliente.getMetricas().circuito());
+    }
+
+    private void llamar() {
+        restClient.get().uri("/api").retrieve().toBodilessEntity();
+    }
+}
@@ -0,0 +1,237 @@
+package com.nico.turnos.service;
+
+import com.nico.turnos.dto.HorarioOcupadoDTO;
+import com.nico.turnos.dto.SlotDisponibleDTO;
+import com.nico.turnos.entity.Rol;
+import com.nico.turnos.entity.Usuario;
+import com.nico.turnos.repository.TurnoRepository;
+import com.nico.turnos.repository.UsuarioRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.temporal.TemporalAdjusters;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class DisponibilidadServiceTest {
+
+    private static final LocalDate FECHA = LocalDate.of(2025, 3, 10);
+
+    private TurnoRepository turnoRepository;
+    private UsuarioRepository usuarioRepository;
+    private DisponibilidadService disponibilidadService;
+
+    @BeforeEach
+    void setUp() {
+        turnoRepository = Mockito.mock(TurnoRepository.class);
+        usuarioRepository = Mockito.mock(UsuarioRepository.class);
+        disponibilidadService = new DisponibilidadService(turnoRepository, usuarioRepository);
+    }
+
+    @Test
+    @DisplayName("Should load the day once from the repository and answer later lookups from memory")
+    void horariosDisponibles_cargaElDiaUnaSolaVez() {
+        when(turnoRepository.findHorariosOcupados(1L, FECHA))
+                .thenReturn(List.of(new HorarioOcupadoDTO(1L, FECHA.atTime(9, 0)), new HorarioOcupadoDTO(1L, FECHA.atTime(16, 30))));
+
+        List<LocalTime> libres = disponibilidadService.horariosDisponibles(1L, FECHA);
+        disponibilidadService.horariosDisponibles(1L, FECHA);
+
+        assertEquals(14, libres.size());
+        assertFalse(libres.contains(LocalTime.of(9, 0)));
+        assertFalse(libres.contains(LocalTime.of(16, 30)));
+        verify(turnoRepository, times(1)).findHorariosOcupados(1L, FECHA);
+    }
+
+    @Test
+    @DisplayName("Should reject a second reservation of the same aligned slot without querying existence")
+    void reservar_mismoSlotDosVeces() {
+        when(turnoRepository.findHorariosOcupados(eq(1L), any())).thenReturn(Collections.emptyList());
+        LocalDateTime slot = FECHA.atTime(10, 30);
+
+        assertTrue(disponibilidadService.reservar(1L, slot));
+        assertFalse(disponibilidadService.reservar(1L, slot));
+        assertFalse(disponibilidadService.horariosDisponibles(1L, FECHA).contains(LocalTime.of(10, 30)));
+        verify(turnoRepository, never()).existsByMedicoIdAndFechaHora(any(), any());
+    }
+
+    @Test
+    @DisplayName("Should free the slot again after liberar")
+    void liberar_devuelveElSlot() {
+        when(turnoRepository.findHorariosOcupados(eq(1L), any())).thenReturn(Collections.emptyList());
+        LocalDateTime slot = FECHA.atTime(11, 0);
+
+        disponibilidadService.reservar(1L, slot);
+        disponibilidadService.liberar(1L, slot);
+
+        assertTrue(disponibilidadService.horariosDisponibles(1L, FECHA).contains(LocalTime.of(11, 0)));
+        assertTrue(disponibilidadService.reservar(1L, slot));
+    }
+
+    @Test
+    @DisplayName("Should leave the exact conflict check of times not aligned to a 30-minute slot to the database")
+    void reservar_horarioNoAlineado() {
+        when(turnoRepository.findHorariosOcupados(eq(1L), any())).thenReturn(Collections.emptyList());
+        LocalDateTime raro = FECHA.atTime(10, 15);
+
+        assertTrue(disponibilidadService.reservar(1L, raro));
+        assertFalse(disponibilidadService.horariosDisponibles(1L, FECHA).contains(LocalTime.of(10, 0)));
+        verify(turnoRepository, never()).existsByMedicoIdAndFechaHora(any(), any());
+    }
+
+    @Test
+    @DisplayName("Should detect overlaps between appointments of different durations")
+    void reservar_detectaSolapamientos() {
+        when(turnoRepository.findHorariosOcupados(1L, FECHA))
+                .thenReturn(List.of(new HorarioOcupadoDTO(1L, FECHA.atTime(10, 0), 60)));
+
+        assertFalse(disponibilidadService.reservar(1L, FECHA.atTime(10, 15)));
+        assertFalse(disponibilidadService.reservar(1L, FECHA.atTime(9, 45), 20));
+        assertTrue(disponibilidadService.reservar(1L, FECHA.atTime(9, 30)));
+        assertTrue(disponibilidadService.reservar(1L, FECHA.atTime(11, 0), 45));
+        assertFalse(disponibilidadService.horariosDisponibles(1L, FECHA).contains(LocalTime.of(10, 30)));
+        assertFalse(disponibilidadService.horariosDisponibles(1L, FECHA).contains(LocalTime.of(11, 30)));
+        assertTrue(disponibilidadService.horariosDisponibles(1L, FECHA).contains(LocalTime.of(12, 0)));
+    }
+
+    @Test
+    @DisplayName("Should only offer start times where the whole consultation fits")
+    void horariosDisponibles_conDuracion() {
+        when(turnoRepository.findHorariosOcupados(1L, FECHA))
+                .thenReturn(List.of(new HorarioOcupadoDTO(1L, FECHA.atTime(10, 0))));
+
+        List<LocalTime> libres = disponibilidadService.horariosDisponibles(1L, FECHA, 60);
+
+        assertTrue(libres.contains(LocalTime.of(9, 0)));
+        assertFalse(libres.contains(LocalTime.of(9, 30)));
+        assertTrue(libres.contains(LocalTime.of(10, 30)));
+        assertTrue(libres.contains(LocalTime.of(16, 0)));
+        assertFalse(libres.contains(LocalTime.of(16, 30)));
+    }
+
+    @Test
+    @DisplayName("Should let an appointment grow over its own time but not over a neighbour")
+    void reprogramar_mismoDia() {
+        when(turnoRepository.findHorariosOcupados(1L, FECHA)).thenReturn(List.of(
+                new HorarioOcupadoDTO(1L, FECHA.atTime(10, 0)),
+                new HorarioOcupadoDTO(1L, FECHA.atTime(11, 0))));
+
+        assertTrue(disponibilidadService.reprogramar(1L, FECHA.atTime(10, 0), FECHA.atTime(10, 0), 60));
+        assertFalse(disponibilidadService.reprogramar(1L, FECHA.atTime(10, 0), FECHA.atTime(10, 30), 60));
+        // El intento fallido deja el turno como estaba
+        assertFalse(disponibilidadService.horariosDisponibles(1L, FECHA).contains(LocalTime.of(10, 30)));
+        assertTrue(disponibilidadService.reservar(1L, FECHA.atTime(11, 30)));
+    }
+
+    @Test
+    @DisplayName("Should return the earliest free slots across all doctors of a specialty with a single range query")
+    void buscarProximosLibres_recorreMedicosEnOrden() {
+        LocalDate lunes = LocalDate.now().plusWeeks(1).with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+        Usuario ana = medico(1L, "Ana");
+        Usuario beto = medico(2L, "Beto");
+        when(usuarioRepository.findByRolAndEspecialidad(Rol.MEDICO, "Cardiología")).thenReturn(List.of(beto, ana));
+        when(turnoRepository.findOcupadosPorMedicos(any(), any(), any())).thenReturn(List.of(
+                new HorarioOcupadoDTO(1L, lunes.atTime(9, 0)),
+                new HorarioOcupadoDTO(2L, lunes.atTime(9, 0))));
+
+        List<SlotDisponibleDTO> libres = disponibilidadService.buscarProximosLibres("Cardiología", lunes, lunes.plusDays(13), 3);
+
+        assertEquals(3, libres.size());
+        assertEquals(new SlotDisponibleDTO(1L, "Ana", "Cardiología", lunes.atTime(9, 30)), libres.get(0));
+        assertEquals(new SlotDisponibleDTO(2L, "Beto", "Cardiología", lunes.atTime(9, 30)), libres.get(1));
+        assertEquals(lunes.atTime(10, 0), libres.get(2).fechaHora());
+        verify(turnoRepository, times(1)).findOcupadosPorMedicos(any(), any(), any());
+        verify(turnoRepository, never()).findHorariosOcupados(any(), any());
+    }
+
+    @Test
+    @DisplayName("Should accept a search window of exactly the maximum number of days and reject one day more")
+    void buscarProximosLibres_limiteDeDias() {
+        LocalDate desde = LocalDate.now().plusDays(1);
+        LocalDate ultimoPermitido = desde.plusDays(DisponibilidadService.DIAS_MAXIMOS_BUSQUEDA - 1);
+        when(usuarioRepository.findByRolAndEspecialidad(Rol.MEDICO, "Cardiología")).thenReturn(List.of());
+
+        assertEquals(List.of(), disponibilidadService.buscarProximosLibres("Cardiología", desde, ultimoPermitido, 3));
+        assertThrows(RuntimeException.class, () ->
+                disponibilidadService.buscarProximosLibres("Cardiología", desde, ultimoPermitido.plusDays(1), 3));
+    }
+
+    @Test
+    @DisplayName("Should keep at most the configured number of days in memory, evicting the least recently used one")
+    void horariosDisponibles_respetaElTopeDeDias() {
+        for (long medicoId = 0; medicoId <= DisponibilidadService.MAXIMO_DIAS_EN_MEMORIA; medicoId++) {
+            disponibilidadService.horariosDisponibles(medicoId, FECHA);
+        }
+
+        assertEquals(DisponibilidadService.MAXIMO_DIAS_EN_MEMORIA, disponibilidadService.getDiasEnMemoria());
+        // El primero fue el descartado: se vuelve a cargar; el último sigue en memoria
+        disponibilidadService.horariosDisponibles(0L, FECHA);
+        disponibilidadService.horariosDisponibles((long) DisponibilidadService.MAXIMO_DIAS_EN_MEMORIA, FECHA);
+        verify(turnoRepository, times(2)).findHorariosOcupados(0L, FECHA);
+        verify(turnoRepository, times(1)).findHorariosOcupados((long) DisponibilidadService.MAXIMO_DIAS_EN_MEMORIA, FECHA);
+    }
+
+    @Test
+    @DisplayName("Should reload the day before rejecting a booking when the slot was freed on another node")
+    void reservar_liberadoEnOtroNodo_recargaAntesDeRechazar() {
+        when(turnoRepository.findHorariosOcupados(1L, FECHA))
+                .thenReturn(List.of(new HorarioOcupadoDTO(1L, FECHA.atTime(10, 0))))
+                .thenReturn(Collections.emptyList());
+        assertFalse(disponibilidadService.horariosDisponibles(1L, FECHA).contains(LocalTime.of(10, 0)));
+
+        assertTrue(disponibilidadService.reservar(1L, FECHA.atTime(10, 0)));
+        verify(turnoRepository, times(2)).findHorariosOcupados(1L, FECHA);
+    }
+
+    @Test
+    @DisplayName("Should read a cached day again from the repository once it is older than its validity")
+    void horariosDisponibles_diaVencido_seRecarga() {
+        AtomicLong ahora = new AtomicLong(1_000_000);
+        DisponibilidadService servicio = new DisponibilidadService(turnoRepository, usuarioRepository, ahora::get);
+        when(turnoRepository.findHorariosOcupados(1L, FECHA))
+                .thenReturn(List.of(new HorarioOcupadoDTO(1L, FECHA.atTime(10, 0))))
+                .thenReturn(Collections.emptyList());
+        assertFalse(servicio.horariosDisponibles(1L, FECHA).contains(LocalTime.of(10, 0)));
+
+        ahora.addAndGet(DisponibilidadService.VIGENCIA_DIA_MS - 1);
+        assertFalse(servicio.horariosDisponibles(1L, FECHA).contains(LocalTime.of(10, 0)));
+        ahora.addAndGet(1);
+        assertTrue(servicio.horariosDisponibles(1L, FECHA).contains(LocalTime.of(10, 0)));
+    }
+
+    @Test
+    @DisplayName("Should keep only recent local bookings when the day is reloaded")
+    void reservar_recargaConservaSoloLasReservasEnCurso() {
+        AtomicLong ahora = new AtomicLong(1_000_000);
+        DisponibilidadService servicio = new DisponibilidadService(turnoRepository, usuarioRepository, ahora::get);
+        when(turnoRepository.findHorariosOcupados(eq(1L), any())).thenReturn(Collections.emptyList());
+        assertTrue(servicio.reservar(1L, FECHA.atTime(10, 0)));
+
+        // Recién hecha: puede no estar confirmada todavía, la recarga no la pierde
+        assertFalse(servicio.reservar(1L, FECHA.atTime(10, 0)));
+        // Vieja y sin fila en la base (se canceló en otro nodo): la recarga la descarta
+        ahora.addAndGet(DisponibilidadService.RESERVA_EN_CURSO_MS + 1);
+        assertTrue(servicio.reservar(1L, FECHA.atTime(10, 0)));
+    }
+
+    private Usuario medico(Long id, String nombre) {
+        Usuario usuario = new Usuario();
+        usuario.setId(id);
+        usuario.setNombreCompleto(nombre);
+        usuario.setEspecialidad("Cardiología");
+        usuario.setRol(Rol.MEDICO);
+        return usuario;
+    }
+}
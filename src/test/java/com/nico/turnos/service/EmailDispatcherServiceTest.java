@@ -0,0 +1,168 @@
+package com.nico.turnos.service;
+
+import com.nico.turnos.entity.EmailPendiente;
+import com.nico.turnos.entity.EstadoEmail;
+import com.nico.turnos.repository.EmailPendienteRepository;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.web.client.RestClient;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class EmailDispatcherServiceTest {
+
+    private HttpServer brevoFalso;
+    private final Queue<String> recibidos = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger respuestaHttp = new AtomicInteger(201);
+
+    private EmailPendienteRepository repository;
+    private EmailService emailService;
+    private PlatformTransactionManager transactionManager;
+    private EmailDispatcherService dispatcher;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        // Servidor HTTP local que hace de Brevo
+        brevoFalso = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        brevoFalso.createContext("/v3/smtp/email", exchange -> {
+            recibidos.add(exchange.getRequestHeaders().getFirst("api-key") + " "
+                    + new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+            exchange.sendResponseHeaders(respuestaHttp.get(), -1);
+            exchange.close();
+        });
+        brevoFalso.start();
+
+        repository = Mockito.mock(EmailPendienteRepository.class);
+        emailService = new EmailService(RestClient.builder(), new ClientesHttpExternos(new MockEnvironment()), repository,
+                "http://localhost:" + brevoFalso.getAddress().getPort() + "/v3");
+        ReflectionTestUtils.setField(emailService, "apiKey", "clave-test");
+        ReflectionTestUtils.setField(emailService, "senderEmail", "clinica@test.com");
+        transactionManager = Mockito.mock(PlatformTransactionManager.class);
+        dispatcher = new EmailDispatcherService(repository, emailService, transactionManager, 4, 50, 10, 100);
+    }
+
+    @AfterEach
+    void tearDown() {
+        dispatcher.cerrar();
+        brevoFalso.stop(0);
+    }
+
+    @Test
+    @DisplayName("sendEmail should only enqueue in the outbox, never calling the provider inline")
+    void sendEmail_soloEncola() {
+        emailService.sendEmail("ana@test.com", "Hola", "Texto");
+
+        verify(repository).save(any(EmailPendiente.class));
+        assertTrue(recibidos.isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should send the pending emails of the batch in a single provider call and mark them as ENVIADO")
+    void despacharPendientes_enviaElLote() {
+        List<EmailPendiente> lote = List.of(
+                new EmailPendiente("a@test.com", "Uno", "Linea 1\nLinea 2"),
+                new EmailPendiente("b@test.com", "Dos", "Texto"),
+                new EmailPendiente("c@test.com", "Tres", "Texto"));
+        when(repository.reclamarParaEnvio(any(), anyInt())).thenReturn(lote);
+
+        dispatcher.despacharPendientes();
+
+        assertEquals(1, recibidos.size());
+        String pedido = recibidos.poll();
+        assertTrue(pedido.startsWith("clave-test "));
+        assertTrue(pedido.contains("messageVersions"));
+        assertTrue(pedido.contains("Linea 1<br>Linea 2"));
+        assertTrue(pedido.contains("b@test.com") && pedido.contains("c@test.com") && pedido.contains("\"Tres\""));
+        lote.forEach(email -> {
+            assertEquals(EstadoEmail.ENVIADO, email.getEstado());
+            assertNotNull(email.getEnviadoEn());
+        });
+        verify(repository).saveAll(lote);
+    }
+
+    @Test
+    @DisplayName("Should push the claimed emails' next attempt forward before committing the claim, so other nodes skip them")
+    void despacharPendientes_reservaElLoteAlReclamar() {
+        List<EmailPendiente> lote = List.of(new EmailPendiente("a@test.com", "Uno", "Texto"));
+        when(repository.reclamarParaEnvio(any(), anyInt())).thenReturn(lote);
+        List<LocalDateTime> reservadoAlConfirmar = new ArrayList<>();
+        doAnswer(inv -> {
+            reservadoAlConfirmar.add(lote.get(0).getProximoIntento());
+            return null;
+        }).when(transactionManager).commit(any());
+
+        dispatcher.despacharPendientes();
+
+        // El reclamo se confirmó (soltando los locks) antes de mandar, con la reserva ya puesta
+        assertEquals(1, reservadoAlConfirmar.size());
+        assertTrue(reservadoAlConfirmar.get(0).isAfter(LocalDateTime.now().plusMinutes(4)));
+        assertEquals(1, recibidos.size());
+        assertEquals(EstadoEmail.ENVIADO, lote.get(0).getEstado());
+        verify(repository).reclamarParaEnvio(any(), eq(50));
+    }
+
+    @Test
+    @DisplayName("Should split the batch into provider calls of the configured size and retry a whole failed call")
+    void despacharLote_agrupaPorLlamada() {
+        EmailDispatcherService dePares = new EmailDispatcherService(repository, emailService, transactionManager, 1, 50, 2, 100);
+        List<EmailPendiente> lote = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            lote.add(new EmailPendiente("p" + i + "@test.com", "Asunto " + i, "Texto"));
+        }
+        respuestaHttp.set(500);
+
+        try {
+            dePares.despacharLote(lote);
+        } finally {
+            dePares.cerrar();
+        }
+
+        // 2 + 2 + 1; con un circuito que abre a las 5 fallas, las tres llegan a Brevo
+        assertEquals(3, recibidos.size());
+        lote.forEach(email -> {
+            assertEquals(EstadoEmail.PENDIENTE, email.getEstado());
+            assertEquals(1, email.getIntentos());
+        });
+    }
+
+    @Test
+    @DisplayName("Should keep failed emails pending with exponential backoff and give up after the max attempts")
+    void despacharLote_reintentaConBackoff() {
+        respuestaHttp.set(500);
+        EmailPendiente email = new EmailPendiente("a@test.com", "Uno", "Texto");
+
+        dispatcher.despacharLote(List.of(email));
+
+        assertEquals(EstadoEmail.PENDIENTE, email.getEstado());
+        assertEquals(1, email.getIntentos());
+        assertTrue(email.getProximoIntento().isAfter(LocalDateTime.now().plusSeconds(20)));
+        assertNotNull(email.getUltimoError());
+
+        email.setIntentos(5);
+        dispatcher.despacharLote(List.of(email));
+
+        assertEquals(EstadoEmail.FALLIDO, email.getEstado());
+    }
+}
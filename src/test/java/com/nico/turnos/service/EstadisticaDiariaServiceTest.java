@@ -0,0 +1,152 @@
+package com.nico.turnos.service;
+
+import com.nico.turnos.dto.PuntoSerieDTO;
+import com.nico.turnos.entity.CambioEstadistica;
+import com.nico.turnos.entity.Turno;
+import com.nico.turnos.repository.CambioEstadisticaRepository;
+import com.nico.turnos.repository.EstadisticaDiariaRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+class EstadisticaDiariaServiceTest {
+
+    private EstadisticaDiariaRepository estadisticaDiariaRepository;
+    private CambioEstadisticaRepository cambioRepository;
+    private EstadisticaDiariaService estadisticaDiariaService;
+
+    @BeforeEach
+    void setUp() {
+        estadisticaDiariaRepository = Mockito.mock(EstadisticaDiariaRepository.class);
+        cambioRepository = Mockito.mock(CambioEstadisticaRepository.class);
+        estadisticaDiariaService = new EstadisticaDiariaService(estadisticaDiariaRepository,
+                cambioRepository, Mockito.mock(PlatformTransactionManager.class));
+    }
+
+    @Test
+    @DisplayName("Should group daily rows into weeks starting on Monday and fill empty weeks with zeros")
+    void serie_agrupaPorSemana() {
+        // 2025-03-10 y 2025-03-12 caen en la misma semana; la del 17 no tiene datos
+        LocalDate desde = LocalDate.of(2025, 3, 10);
+        LocalDate hasta = LocalDate.of(2025, 3, 30);
+        when(estadisticaDiariaRepository.totalesPorDia(desde, hasta, null, null)).thenReturn(List.of(
+                new PuntoSerieDTO(LocalDate.of(2025, 3, 10), 4L, 2L, 1L),
+                new PuntoSerieDTO(LocalDate.of(2025, 3, 12), 4L, 4L, 0L),
+                new PuntoSerieDTO(LocalDate.of(2025, 3, 25), 2L, 0L, 3L)));
+
+        List<PuntoSerieDTO> serie = estadisticaDiariaService.serie(EstadisticaDiariaService.Granularidad.SEMANA, desde, hasta, null, " ");
+
+        assertEquals(List.of(
+                new PuntoSerieDTO(LocalDate.of(2025, 3, 10), 8L, 6L, 1L),
+                new PuntoSerieDTO(LocalDate.of(2025, 3, 17), 0L, 0L, 0L),
+                new PuntoSerieDTO(LocalDate.of(2025, 3, 24), 2L, 0L, 3L)), serie);
+        assertEquals(0.75, serie.get(0).tasaAsistencia());
+    }
+
+    @Test
+    @DisplayName("Should reject unknown granularities and inverted ranges")
+    void serie_validaParametros() {
+        assertEquals(EstadisticaDiariaService.Granularidad.MES, EstadisticaDiariaService.granularidad("Mes"));
+        assertThrows(RuntimeException.class, () -> EstadisticaDiariaService.granularidad("anio"));
+        assertThrows(RuntimeException.class, () -> estadisticaDiariaService.serie(
+                EstadisticaDiariaService.Granularidad.DIA, LocalDate.of(2025, 3, 10), LocalDate.of(2025, 3, 1), null, null));
+    }
+
+    @Test
+    @DisplayName("Should keep a change recorded while the rollup job is recomputing its day")
+    void procesarPendientes_cambioDuranteElRecalculo_noSePierde() {
+        LocalDate dia = LocalDate.of(2025, 3, 10);
+        List<CambioEstadistica> tabla = tablaDeCambios();
+        estadisticaDiariaService.marcarDia(dia);
+
+        // Mientras el job recalcula el día (sin ver todavía el turno nuevo), una reserva anota el mismo día
+        doAnswer(inv -> {
+            if (tabla.size() == 1) estadisticaDiariaService.marcarDia(dia);
+            return null;
+        }).when(estadisticaDiariaRepository).recalcularRango(any(), any());
+
+        estadisticaDiariaService.procesarPendientes();
+
+        // El job borró solo lo que leyó: la próxima vuelta recalcula el día con el turno nuevo
+        assertEquals(1, tabla.size());
+        assertEquals(dia, tabla.get(0).getFecha());
+    }
+
+    @Test
+    @DisplayName("Should sum the recorded cancellations and recompute each changed day once")
+    void procesarPendientes_sumaCancelacionesYRecalculaCadaDiaUnaVez() {
+        LocalDate dia = LocalDate.of(2025, 3, 10);
+        List<CambioEstadistica> tabla = tablaDeCambios();
+        estadisticaDiariaService.marcarDia(dia);
+        estadisticaDiariaService.registrarCancelacion(turno(dia, 7L, null));
+        estadisticaDiariaService.registrarCancelacion(turno(dia, 7L, null));
+        estadisticaDiariaService.registrarCancelacion(turno(dia.plusDays(1), 8L, "Cardiología"));
+
+        estadisticaDiariaService.procesarPendientes();
+
+        verify(estadisticaDiariaRepository).sumarCancelaciones(dia, 7L, "", 2L);
+        verify(estadisticaDiariaRepository).sumarCancelaciones(dia.plusDays(1), 8L, "Cardiología", 1L);
+        verify(estadisticaDiariaRepository).reiniciarDia(dia);
+        verify(estadisticaDiariaRepository).reiniciarDia(dia.plusDays(1));
+        verify(estadisticaDiariaRepository, times(2)).recalcularRango(any(), any());
+        assertTrue(tabla.isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should leave the changes alone while another node holds the rollup lock")
+    void procesarPendientes_otroNodoTieneElLock_noHaceNada() {
+        List<CambioEstadistica> tabla = tablaDeCambios();
+        estadisticaDiariaService.marcarDia(LocalDate.of(2025, 3, 10));
+        when(cambioRepository.tomarLockDelJob(anyLong())).thenReturn(false);
+
+        estadisticaDiariaService.procesarPendientes();
+
+        verify(cambioRepository, never()).reclamar(anyInt());
+        verify(estadisticaDiariaRepository, never()).recalcularRango(any(), any());
+        assertEquals(1, tabla.size());
+    }
+
+    // Tabla estadistica_cambio en memoria: save inserta, reclamar lee los más viejos y deleteAllInBatch borra esos
+    private List<CambioEstadistica> tablaDeCambios() {
+        List<CambioEstadistica> tabla = new ArrayList<>();
+        AtomicLong ids = new AtomicLong();
+        when(cambioRepository.save(any(CambioEstadistica.class))).thenAnswer(inv -> {
+            CambioEstadistica cambio = inv.getArgument(0);
+            cambio.setId(ids.incrementAndGet());
+            tabla.add(cambio);
+            return cambio;
+        });
+        when(cambioRepository.tomarLockDelJob(anyLong())).thenReturn(true);
+        when(cambioRepository.reclamar(anyInt())).thenAnswer(inv ->
+                new ArrayList<>(tabla.subList(0, Math.min(inv.<Integer>getArgument(0), tabla.size()))));
+        doAnswer(inv -> {
+            Collection<CambioEstadistica> borrar = inv.getArgument(0);
+            tabla.removeAll(borrar);
+            return null;
+        }).when(cambioRepository).deleteAllInBatch(any());
+        when(estadisticaDiariaRepository.count()).thenReturn(1L);
+        return tabla;
+    }
+
+    private static Turno turno(LocalDate dia, Long medicoId, String especialidad) {
+        Turno turno = new Turno();
+        turno.setFechaHora(dia.atTime(10, 0));
+        turno.setMedicoId(medicoId);
+        turno.setEspecialidad(especialidad);
+        return turno;
+    }
+}
@@ -0,0 +1,120 @@
+package com.nico.turnos.service;
+
+import com.nico.turnos.dto.ConteoTurnosDTO;
+import com.nico.turnos.dto.EstadisticaDTO;
+import com.nico.turnos.dto.ProfesionalDTO;
+import com.nico.turnos.dto.TotalesResumenDTO;
+import com.nico.turnos.repository.EstadisticaDiariaRepository;
+import com.nico.turnos.repository.TurnoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class EstadisticaServiceTest {
+
+    // Ayer: adentro de la ventana de días que se cuentan uno por uno
+    private static final LocalDate DIA = LocalDate.now().minusDays(1);
+    private static final LocalDate INICIO_VENTANA = LocalDate.now().minusDays(EstadisticaService.DIAS_POR_DIA - 1);
+
+    private TurnoRepository turnoRepository;
+    private EstadisticaDiariaRepository estadisticaDiariaRepository;
+    private EstadisticaService estadisticaService;
+
+    @BeforeEach
+    void setUp() {
+        turnoRepository = Mockito.mock(TurnoRepository.class);
+        estadisticaDiariaRepository = Mockito.mock(EstadisticaDiariaRepository.class);
+        CatalogoMedicosService catalogoMedicosService = Mockito.mock(CatalogoMedicosService.class);
+        estadisticaService = new EstadisticaService(turnoRepository, estadisticaDiariaRepository, catalogoMedicosService);
+        when(turnoRepository.conteoAgrupadoDesde(any())).thenReturn(List.of(
+                new ConteoTurnosDTO("Cardiología", false, 1L, DIA, 3L),
+                new ConteoTurnosDTO("Cardiología", true, 1L, DIA, 2L),
+                new ConteoTurnosDTO("Pediatría", false, 2L, DIA.plusDays(1), 1L)));
+        when(catalogoMedicosService.profesionales()).thenReturn(new CatalogoMedicosService.Catalogo<>(List.of(
+                new ProfesionalDTO(1L, "Ana", "Cardiología", null),
+                new ProfesionalDTO(2L, "Beto", "Pediatría", null)), "v1"));
+    }
+
+    @Test
+    @DisplayName("Should load counters once and answer later reads from memory")
+    void lecturas_carganUnaSolaVez() {
+        assertEquals(5L, valor(estadisticaService.conteoPorEspecialidad(), "Cardiología"));
+        assertEquals(2L, valor(estadisticaService.conteoPorAsistencia(), "Asistió"));
+        assertEquals(4L, valor(estadisticaService.conteoPorAsistencia(), "Pendiente"));
+        assertEquals(List.of(new EstadisticaDTO(DIA.toString(), 5L), new EstadisticaDTO(DIA.plusDays(1).toString(), 1L)),
+                estadisticaService.conteoPorDia(DIA, DIA.plusDays(1)));
+
+        verify(turnoRepository, times(1)).conteoAgrupadoDesde(any());
+    }
+
+    @Test
+    @DisplayName("Should apply create, update and delete incrementally")
+    void registrar_ajustaLosContadores() {
+        estadisticaService.conteoPorEspecialidad();
+
+        EstadisticaService.ClaveTurno nuevo = new EstadisticaService.ClaveTurno("Pediatría", false, 2L, DIA);
+        estadisticaService.registrarAlta(nuevo);
+        estadisticaService.registrarCambio(nuevo, new EstadisticaService.ClaveTurno("Pediatría", true, 2L, DIA));
+        estadisticaService.registrarBaja(new EstadisticaService.ClaveTurno("Cardiología", false, 1L, DIA));
+
+        assertEquals(2L, valor(estadisticaService.conteoPorEspecialidad(), "Pediatría"));
+        assertEquals(4L, valor(estadisticaService.conteoPorEspecialidad(), "Cardiología"));
+        assertEquals(3L, valor(estadisticaService.conteoPorAsistencia(), "Asistió"));
+        assertEquals(2L, valor(estadisticaService.conteoPorMedico(), "Beto"));
+        verify(turnoRepository, times(1)).conteoAgrupadoDesde(any());
+    }
+
+    @Test
+    @DisplayName("Should replace drifted counters with the database totals on reconciliation")
+    void reconciliar_corrigeDesvios() {
+        estadisticaService.conteoPorEspecialidad();
+        estadisticaService.registrarAlta(new EstadisticaService.ClaveTurno("Dermatología", false, 9L, DIA));
+
+        estadisticaService.reconciliar();
+
+        assertEquals(0L, valor(estadisticaService.conteoPorEspecialidad(), "Dermatología"));
+        assertEquals(5L, valor(estadisticaService.conteoPorEspecialidad(), "Cardiología"));
+    }
+
+    @Test
+    @DisplayName("Should take the days before the window from the rollup and group only the window over appointments")
+    void reconciliar_usaElResumenAntesDeLaVentana() {
+        when(estadisticaDiariaRepository.totalesAntesDe(INICIO_VENTANA)).thenReturn(List.of(
+                new TotalesResumenDTO("Cardiología", 1L, 10L, 4L),
+                new TotalesResumenDTO("", 3L, 2L, 0L)));
+
+        estadisticaService.reconciliar();
+
+        verify(turnoRepository).conteoAgrupadoDesde(INICIO_VENTANA.atStartOfDay());
+        assertEquals(15L, valor(estadisticaService.conteoPorEspecialidad(), "Cardiología"));
+        assertEquals(0L, valor(estadisticaService.conteoPorEspecialidad(), ""));
+        assertEquals(6L, valor(estadisticaService.conteoPorAsistencia(), "Asistió"));
+        assertEquals(12L, valor(estadisticaService.conteoPorAsistencia(), "Pendiente"));
+        assertEquals(15L, valor(estadisticaService.conteoPorMedico(), "Ana"));
+        assertEquals(2L, valor(estadisticaService.conteoPorMedico(), "Médico 3"));
+    }
+
+    @Test
+    @DisplayName("Should count an appointment before the window in the totals without keeping its day in memory")
+    void registrarAlta_diaViejo_noGuardaElDia() {
+        LocalDate viejo = INICIO_VENTANA.minusDays(30);
+        estadisticaService.conteoPorEspecialidad();
+
+        estadisticaService.registrarAlta(new EstadisticaService.ClaveTurno("Pediatría", false, 2L, viejo));
+
+        assertEquals(2L, valor(estadisticaService.conteoPorEspecialidad(), "Pediatría"));
+        assertEquals(List.of(new EstadisticaDTO(viejo.toString(), 0L)), estadisticaService.conteoPorDia(viejo, viejo));
+    }
+
+    private long valor(List<EstadisticaDTO> datos, String nombre) {
+        return datos.stream().filter(d -> d.name().equals(nombre)).mapToLong(EstadisticaDTO::value).sum();
+    }
+}
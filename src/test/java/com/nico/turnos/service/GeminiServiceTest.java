@@ -0,0 +1,219 @@
+package com.nico.turnos.service;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.RestClient;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GeminiServiceTest {
+
+    private static final List<Map<String, String>> HISTORIAL = List.of(Map.of("role", "user", "content", "Hola"));
+
+    private HttpServer groqFalso;
+    private final Queue<String> pedidos = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger respuestaHttp = new AtomicInteger(200);
+    // El servidor no manda el segundo fragmento hasta que el test recibió el primero
+    private final CountDownLatch primerFragmentoRecibido = new CountDownLatch(1);
+    // Groq colgado: después del primer fragmento no manda más texto (solo keep-alives) hasta que le cortan
+    private final AtomicBoolean colgado = new AtomicBoolean();
+    private final CountDownLatch conexionCortada = new CountDownLatch(1);
+
+    private GeminiService geminiService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        // Servidor local que responde como /chat/completions con "stream": true (respuesta chunked)
+        groqFalso = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        groqFalso.createContext("/v1/chat/completions", exchange -> {
+            pedidos.add(exchange.getRequestHeaders().getFirst("Authorization") + " "
+                    + new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+            exchange.getResponseHeaders().add("Content-Type", "text/event-stream");
+            exchange.sendResponseHeaders(respuestaHttp.get(), 0);
+            try (OutputStream out = exchange.getResponseBody()) {
+                if (respuestaHttp.get() != 200) {
+                    out.write("{\"error\":\"falla\"}".getBytes(StandardCharsets.UTF_8));
+                    return;
+                }
+                escribir(out, "data: {\"choices\":[{\"delta\":{\"role\":\"assistant\"}}]}\n\n");
+                escribir(out, "data: {\"choices\":[{\"delta\":{\"content\":\"Hola, \"}}]}\n\n");
+                primerFragmentoRecibido.await(5, TimeUnit.SECONDS);
+                if (colgado.get()) {
+                    try {
+                        for (int i = 0; i < 500; i++) {
+                            Thread.sleep(10);
+                            escribir(out, ": keep-alive\n\n");
+                        }
+                    } catch (java.io.IOException e) {
+                        conexionCortada.countDown();
+                    }
+                    return;
+                }
+                escribir(out, ": keep-alive\n\n");
+                escribir(out, "data: {\"choices\":[{\"delta\":{\"content\":\"¿en qué\\nte ayudo?\"}}]}\n\n");
+                escribir(out, "data: [DONE]\n\n");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        groqFalso.start();
+
+        geminiService = new GeminiService(RestClient.builder(), new ClientesHttpExternos(new MockEnvironment()),
+                "http://localhost:" + groqFalso.getAddress().getPort() + "/v1", 100, 60_000);
+        ReflectionTestUtils.setField(geminiService, "apiKey", "clave-test");
+    }
+
+    @AfterEach
+    void tearDown() {
+        groqFalso.stop(0);
+    }
+
+    @Test
+    @DisplayName("Should deliver each streamed fragment as it arrives and complete with the full text")
+    void preguntarEnStreaming_entregaFragmentosEnOrden() throws Exception {
+        Queue<String> fragmentos = new ConcurrentLinkedQueue<>();
+
+        CompletableFuture<String> respuesta = geminiService.preguntarEnStreaming(HISTORIAL, "contexto", fragmento -> {
+            fragmentos.add(fragmento);
+            primerFragmentoRecibido.countDown();
+        });
+
+        assertEquals("Hola, ¿en qué\nte ayudo?", respuesta.get(5, TimeUnit.SECONDS));
+        assertEquals(List.of("Hola, ", "¿en qué\nte ayudo?"), List.copyOf(fragmentos));
+        String pedido = pedidos.poll();
+        assertTrue(pedido.startsWith("Bearer clave-test "));
+        assertTrue(pedido.contains("\"stream\":true"));
+    }
+
+    @Test
+    @DisplayName("Should fail the future when the upstream answers with an error status")
+    void preguntarEnStreaming_errorHttp() {
+        respuestaHttp.set(500);
+
+        CompletableFuture<String> respuesta = geminiService.preguntarEnStreaming(HISTORIAL, "contexto", fragmento -> { });
+
+        ExecutionException error = assertThrows(ExecutionException.class, () -> respuesta.get(5, TimeUnit.SECONDS));
+        assertTrue(error.getCause().getMessage().contains("500"));
+    }
+
+    @Test
+    @DisplayName("Should stop reading and fail when the consumer can no longer accept fragments")
+    void preguntarEnStreaming_consumidorCerrado() {
+        AtomicInteger recibidos = new AtomicInteger();
+
+        CompletableFuture<String> respuesta = geminiService.preguntarEnStreaming(HISTORIAL, "contexto", fragmento -> {
+            recibidos.incrementAndGet();
+            primerFragmentoRecibido.countDown();
+            throw new IllegalStateException("cliente desconectado");
+        });
+
+        assertThrows(ExecutionException.class, () -> respuesta.get(5, TimeUnit.SECONDS));
+        assertEquals(1, recibidos.get());
+    }
+
+    @Test
+    @DisplayName("Should answer a repeated standalone question from the cache without calling the upstream")
+    void preguntarEnStreaming_preguntaRepetida_saleDeLaCache() throws Exception {
+        geminiService.preguntarEnStreaming(HISTORIAL, "contexto", f -> primerFragmentoRecibido.countDown()).get(5, TimeUnit.SECONDS);
+
+        Queue<String> fragmentos = new ConcurrentLinkedQueue<>();
+        List<Map<String, String>> mismaPregunta = List.of(Map.of("role", "user", "content", "  ¡HOLA!  "));
+        String respuesta = geminiService.preguntarEnStreaming(mismaPregunta, "contexto", fragmentos::add).get(5, TimeUnit.SECONDS);
+
+        assertEquals("Hola, ¿en qué\nte ayudo?", respuesta);
+        assertEquals(List.of(respuesta), List.copyOf(fragmentos));
+        assertEquals(1, pedidos.size());
+        assertEquals(1, geminiService.getCacheRespuestas().getAciertos());
+    }
+
+    @Test
+    @DisplayName("Should bypass the cache when the question comes with conversation history")
+    void preguntarEnStreaming_conHistorial_noUsaLaCache() throws Exception {
+        List<Map<String, String>> conversacion = List.of(
+                Map.of("role", "user", "content", "Hola"),
+                Map.of("role", "assistant", "content", "¿En qué te ayudo?"),
+                Map.of("role", "user", "content", "Hola"));
+
+        geminiService.preguntarEnStreaming(conversacion, "contexto", f -> primerFragmentoRecibido.countDown()).get(5, TimeUnit.SECONDS);
+        geminiService.preguntarEnStreaming(conversacion, "contexto", f -> { }).get(5, TimeUnit.SECONDS);
+
+        assertEquals(2, pedidos.size());
+        assertEquals(0, geminiService.getCacheRespuestas().getCantidad());
+        assertEquals(2, geminiService.getCacheRespuestas().getOmitidas());
+    }
+
+    @Test
+    @DisplayName("Should stop calling the upstream once it keeps failing and answer with the fallback at once")
+    void preguntar_groqCaido_abreElCircuito() {
+        respuestaHttp.set(503);
+        for (int i = 0; i < 5; i++) {
+            CompletableFuture<String> respuesta = geminiService.preguntarEnStreaming(HISTORIAL, "contexto " + i, f -> { });
+            assertThrows(ExecutionException.class, () -> respuesta.get(5, TimeUnit.SECONDS));
+        }
+
+        assertEquals(GeminiService.NO_DISPONIBLE, geminiService.preguntarAGemini("¿Atienden hoy?"));
+        CompletableFuture<String> rechazada = geminiService.preguntarEnStreaming(HISTORIAL, "otro", f -> { });
+        assertTrue(rechazada.isCompletedExceptionally());
+        assertEquals(5, pedidos.size());
+    }
+
+    @Test
+    @DisplayName("Should count a stalled stream that times out as an upstream failure and close its connection")
+    void preguntarEnStreaming_streamColgado_cuentaComoFallaYCorta() throws Exception {
+        colgado.set(true);
+        CompletableFuture<String> respuesta = geminiService.preguntarEnStreaming(HISTORIAL, "contexto",
+                f -> primerFragmentoRecibido.countDown());
+        assertTrue(primerFragmentoRecibido.await(5, TimeUnit.SECONDS));
+
+        // Lo que hace ChatController cuando vence el SseEmitter
+        respuesta.completeExceptionally(new TimeoutException("vencido"));
+
+        assertTrue(conexionCortada.await(5, TimeUnit.SECONDS));
+        ClienteHttpExterno.Metricas metricas = geminiService.getMetricasGroq();
+        assertEquals(1, metricas.fallos());
+        assertEquals(0, metricas.exitos());
+        assertEquals(0, metricas.enCurso());
+    }
+
+    @Test
+    @DisplayName("Should not count a stream cancelled by the caller as a success or a failure")
+    void preguntarEnStreaming_cancelado_noCuenta() throws Exception {
+        colgado.set(true);
+        CompletableFuture<String> respuesta = geminiService.preguntarEnStreaming(HISTORIAL, "contexto",
+                f -> primerFragmentoRecibido.countDown());
+        assertTrue(primerFragmentoRecibido.await(5, TimeUnit.SECONDS));
+
+        respuesta.cancel(true);
+
+        assertTrue(conexionCortada.await(5, TimeUnit.SECONDS));
+        ClienteHttpExterno.Metricas metricas = geminiService.getMetricasGroq();
+        assertEquals(1, metricas.canceladas());
+        assertEquals(0, metricas.fallos() + metricas.exitos());
+        assertEquals(0, metricas.enCurso());
+    }
+
+    private static void escribir(OutputStream out, String evento) throws java.io.IOException {
+        out.write(evento.getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+}
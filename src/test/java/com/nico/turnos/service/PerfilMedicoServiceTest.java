@@ -0,0 +1,56 @@
+package com.nico.turnos.service;
+
+import com.nico.turnos.entity.Rol;
+import com.nico.turnos.entity.Usuario;
+import com.nico.turnos.repository.UsuarioRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class PerfilMedicoServiceTest {
+
+    private UsuarioRepository usuarioRepository;
+
+    @BeforeEach
+    void setUp() {
+        usuarioRepository = Mockito.mock(UsuarioRepository.class);
+        Usuario medico = new Usuario();
+        medico.setId(3L);
+        medico.setNombreCompleto("Ana Pérez");
+        medico.setEspecialidad("Cardiología");
+        medico.setRol(Rol.MEDICO);
+        when(usuarioRepository.findById(3L)).thenReturn(Optional.of(medico));
+    }
+
+    @Test
+    @DisplayName("Should read the doctor once while the entry is fresh and again after invalidation")
+    void obtener_usaLaCacheHastaInvalidar() {
+        PerfilMedicoService service = new PerfilMedicoService(usuarioRepository, 60_000);
+
+        PerfilMedicoService.PerfilMedico perfil = service.obtener(3L);
+        service.obtener(3L);
+        assertEquals(new PerfilMedicoService.PerfilMedico(3L, "Ana Pérez", "Cardiología"), perfil);
+        verify(usuarioRepository, times(1)).findById(3L);
+
+        service.invalidar(3L);
+        service.obtener(3L);
+        verify(usuarioRepository, times(2)).findById(3L);
+    }
+
+    @Test
+    @DisplayName("Should reload the doctor once the TTL has passed")
+    void obtener_recargaAlVencer() {
+        PerfilMedicoService service = new PerfilMedicoService(usuarioRepository, 0);
+
+        service.obtener(3L);
+        service.obtener(3L);
+
+        verify(usuarioRepository, times(2)).findById(3L);
+    }
+}
@@ -0,0 +1,217 @@
+package com.nico.turnos.service;
+
+import com.nico.turnos.dto.ResultadoRecordatoriosDTO;
+import com.nico.turnos.entity.EmailPendiente;
+import com.nico.turnos.entity.RegistroRecordatorio;
+import com.nico.turnos.entity.Turno;
+import com.nico.turnos.repository.RegistroRecordatorioRepository;
+import com.nico.turnos.repository.TurnoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class RecordatorioServiceTest {
+
+    private static final LocalDate MANIANA = LocalDate.now().plusDays(1);
+
+    // Tablas falsas con bloqueo por fila, como en Postgres: reclamarParaRecordatorio toma el lock de cada turno
+    // hasta el commit (FOR UPDATE SKIP LOCKED saltea los bloqueados) y el registro y los emails de la
+    // transacción solo se ven después del commit
+    private final List<Turno> turnos = new ArrayList<>();
+    private final Map<Long, ReentrantLock> locks = new ConcurrentHashMap<>();
+    private final Set<Long> registrados = ConcurrentHashMap.newKeySet();
+    private final Queue<EmailPendiente> outbox = new ConcurrentLinkedQueue<>();
+    private final ThreadLocal<Transaccion> transaccion = ThreadLocal.withInitial(Transaccion::new);
+
+    private static final class Transaccion {
+        final List<ReentrantLock> locks = new ArrayList<>();
+        final List<Long> registros = new ArrayList<>();
+        final List<EmailPendiente> emails = new ArrayList<>();
+    }
+
+    private TurnoRepository turnoRepository;
+    private RegistroRecordatorioRepository registroRecordatorioRepository;
+    private EmailService emailService;
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    void setUp() {
+        turnoRepository = Mockito.mock(TurnoRepository.class);
+        registroRecordatorioRepository = Mockito.mock(RegistroRecordatorioRepository.class);
+        emailService = Mockito.mock(EmailService.class);
+        transactionManager = Mockito.mock(PlatformTransactionManager.class);
+
+        when(turnoRepository.reclamarParaRecordatorio(any(), any(), anyString(), anyInt())).thenAnswer(inv -> {
+            int limite = inv.getArgument(3);
+            List<Turno> reclamados = new ArrayList<>();
+            for (Turno turno : turnos) {
+                if (reclamados.size() == limite) break;
+                if (registrados.contains(turno.getId())) continue; // NOT EXISTS en registro_recordatorio
+                ReentrantLock lock = locks.computeIfAbsent(turno.getId(), id -> new ReentrantLock());
+                if (!lock.isHeldByCurrentThread() && lock.tryLock()) {
+                    transaccion.get().locks.add(lock);
+                    reclamados.add(turno);
+                }
+            }
+            return reclamados;
+        });
+        when(registroRecordatorioRepository.saveAll(anyList())).thenAnswer(inv -> {
+            List<RegistroRecordatorio> registros = inv.getArgument(0);
+            registros.forEach(r -> transaccion.get().registros.add(r.getTurnoId()));
+            return registros;
+        });
+        when(registroRecordatorioRepository.findTurnoIdsRegistrados(anyList(), any())).thenAnswer(inv -> {
+            List<Long> ids = inv.getArgument(0);
+            return ids.stream().filter(registrados::contains).toList();
+        });
+        doAnswer(inv -> {
+            List<EmailPendiente> emails = inv.getArgument(0);
+            transaccion.get().emails.addAll(emails);
+            return null;
+        }).when(emailService).sendEmails(anyList());
+        doAnswer(inv -> {
+            Transaccion actual = transaccion.get();
+            registrados.addAll(actual.registros);
+            outbox.addAll(actual.emails);
+            actual.locks.forEach(ReentrantLock::unlock);
+            transaccion.remove();
+            return null;
+        }).when(transactionManager).commit(any());
+        doAnswer(inv -> {
+            transaccion.get().locks.forEach(ReentrantLock::unlock);
+            transaccion.remove();
+            return null;
+        }).when(transactionManager).rollback(any());
+    }
+
+    @Test
+    @DisplayName("Should enqueue each reminder exactly once when two nodes claim the same day at the same time")
+    void procesarRecordatorios_dosNodos_noDuplicanEnvios() throws Exception {
+        cargarTurnos(450);
+        // Los dos nodos se esperan con su primer lote reclamado (y bloqueado) antes de confirmarlo
+        CyclicBarrier ambosReclamaron = new CyclicBarrier(2);
+        ThreadLocal<Boolean> primerLote = ThreadLocal.withInitial(() -> true);
+        when(registroRecordatorioRepository.saveAll(anyList())).thenAnswer(inv -> {
+            if (primerLote.get()) {
+                primerLote.set(false);
+                ambosReclamaron.await(5, TimeUnit.SECONDS);
+            }
+            List<RegistroRecordatorio> registros = inv.getArgument(0);
+            registros.forEach(r -> transaccion.get().registros.add(r.getTurnoId()));
+            return registros;
+        });
+
+        ExecutorService nodos = Executors.newFixedThreadPool(2);
+        ResultadoRecordatoriosDTO a, b;
+        try {
+            Future<ResultadoRecordatoriosDTO> nodoA = nodos.submit(() -> nuevoNodo().procesarRecordatorios(MANIANA));
+            Future<ResultadoRecordatoriosDTO> nodoB = nodos.submit(() -> nuevoNodo().procesarRecordatorios(MANIANA));
+            a = nodoA.get(10, TimeUnit.SECONDS);
+            b = nodoB.get(10, TimeUnit.SECONDS);
+        } finally {
+            nodos.shutdownNow();
+        }
+
+        assertEquals(450, a.turnos() + b.turnos());
+        assertTrue(a.turnos() > 0 && b.turnos() > 0);
+        assertEquals(450, outbox.size());
+        Map<String, Long> porDestinatario = outbox.stream()
+                .collect(Collectors.groupingBy(EmailPendiente::getDestinatario, Collectors.counting()));
+        assertEquals(450, porDestinatario.size());
+        assertEquals(0, a.lotesFallidos() + b.lotesFallidos());
+    }
+
+    @Test
+    @DisplayName("Should not enqueue again the reminders already recorded in the ledger, including patients without email")
+    void procesarRecordatorios_segundaCorrida_noReenvia() {
+        cargarTurnos(3);
+        turnos.get(1).setPacienteUsername("sin-email");
+        RecordatorioService nodo = nuevoNodo();
+
+        ResultadoRecordatoriosDTO primera = nodo.procesarRecordatorios(MANIANA);
+        ResultadoRecordatoriosDTO segunda = nodo.procesarRecordatorios(MANIANA);
+
+        assertEquals(3, primera.turnos());
+        assertEquals(2, primera.encolados());
+        assertEquals(1, primera.omitidos());
+        assertEquals(0, segunda.turnos());
+        assertEquals(2, outbox.size());
+        assertEquals(Set.of(1L, 2L, 3L), registrados);
+    }
+
+    @Test
+    @DisplayName("Should leave a failed batch unrecorded so the next run picks it up")
+    void procesarRecordatorios_loteFallido_seRetoma() {
+        cargarTurnos(2);
+        doThrow(new RuntimeException("base caída")).doCallRealMethod().when(emailService).sendEmails(anyList());
+        RecordatorioService nodo = nuevoNodo();
+
+        ResultadoRecordatoriosDTO fallida = nodo.procesarRecordatorios(MANIANA);
+        doAnswer(inv -> {
+            List<EmailPendiente> emails = inv.getArgument(0);
+            transaccion.get().emails.addAll(emails);
+            return null;
+        }).when(emailService).sendEmails(anyList());
+        ResultadoRecordatoriosDTO siguiente = nodo.procesarRecordatorios(MANIANA);
+
+        assertEquals(1, fallida.lotesFallidos());
+        assertEquals(2, siguiente.encolados());
+        assertEquals(2, outbox.size());
+    }
+
+    @Test
+    @DisplayName("Should keep reporting the last run that processed reminders after later empty runs")
+    void enviarRecordatoriosDiarios_corridaVacia_noPisaLaAnterior() {
+        RecordatorioService nodo = nuevoNodo();
+        nodo.enviarRecordatoriosDiarios();
+        assertNull(nodo.getUltimaEjecucion());
+
+        cargarTurnos(2);
+        nodo.enviarRecordatoriosDiarios();
+        nodo.enviarRecordatoriosDiarios();
+
+        assertEquals(2, nodo.getUltimaEjecucion().turnos());
+        assertEquals(2, nodo.getUltimaEjecucion().encolados());
+    }
+
+    private RecordatorioService nuevoNodo() {
+        return new RecordatorioService(turnoRepository, registroRecordatorioRepository, emailService, transactionManager);
+    }
+
+    private void cargarTurnos(int cantidad) {
+        for (long id = 1; id <= cantidad; id++) {
+            Turno turno = new Turno();
+            turno.setId(id);
+            turno.setFechaHora(MANIANA.atTime(9, 0));
+            turno.setCliente("Paciente " + id);
+            turno.setNombreMedico("Ana");
+            turno.setPacienteUsername("paciente" + id + "@mail.com");
+            turnos.add(turno);
+        }
+    }
+}
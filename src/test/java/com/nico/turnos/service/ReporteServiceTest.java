@@ -0,0 +1,113 @@
+package com.nico.turnos.service;
+
+import com.nico.turnos.entity.Turno;
+import com.nico.turnos.repository.TurnoRepository;
+import com.nico.turnos.repository.UsuarioRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReporteServiceTest {
+
+    private ReporteService reporteService;
+
+    @BeforeEach
+    void setUp() {
+        reporteService = new ReporteService(Mockito.mock(GeminiService.class), Mockito.mock(UsuarioRepository.class),
+                Mockito.mock(TurnoRepository.class), 1024 * 1024, 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        reporteService.cerrar();
+    }
+
+    @Test
+    @DisplayName("Should write one PDF entry per appointment, in list order, even with more appointments than the render window")
+    void escribirZipReportes_unPdfPorTurnoEnOrden() throws IOException {
+        List<Turno> turnos = new ArrayList<>();
+        for (long id = 1; id <= 7; id++) {
+            turnos.add(turno(id, LocalDateTime.of(2030, 3, 11, 8, 0).plusMinutes(30 * id)));
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        reporteService.escribirZipReportes(turnos, out);
+
+        List<String> nombres = new ArrayList<>();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            for (ZipEntry entrada; (entrada = zip.getNextEntry()) != null; ) {
+                nombres.add(entrada.getName());
+                assertTrue(new String(zip.readAllBytes(), StandardCharsets.ISO_8859_1).startsWith("%PDF"));
+            }
+        }
+        assertEquals(7, nombres.size());
+        assertEquals("turno_1_20300311_0830.pdf", nombres.get(0));
+        assertEquals("turno_7_20300311_1130.pdf", nombres.get(6));
+    }
+
+    @Test
+    @DisplayName("Should fail with an IOException when a PDF cannot be rendered")
+    void escribirZipReportes_errorAlGenerar() {
+        Turno roto = turno(2L, LocalDateTime.of(2030, 3, 11, 9, 0));
+        roto.setFechaHora(null); // El PDF formatea la fecha: sin fecha no se puede generar
+
+        IOException error = assertThrows(IOException.class,
+                () -> reporteService.escribirZipReportes(List.of(roto), new ByteArrayOutputStream()));
+        assertEquals("Error al generar PDF", error.getMessage());
+    }
+
+    @Test
+    @DisplayName("Should quote fields with commas, quotes or line breaks and double the inner quotes")
+    void campoCsv_escapaSegunRfc4180() {
+        assertEquals("", ReporteService.campoCsv(null));
+        assertEquals("Control anual", ReporteService.campoCsv("Control anual"));
+        assertEquals("\"Pérez, Ana\"", ReporteService.campoCsv("Pérez, Ana"));
+        assertEquals("\"dijo \"\"hola\"\"\"", ReporteService.campoCsv("dijo \"hola\""));
+        assertEquals("\"dos\nlíneas\"", ReporteService.campoCsv("dos\nlíneas"));
+    }
+
+    @Test
+    @DisplayName("Should neutralise values that a spreadsheet would run as a formula")
+    void campoCsv_neutralizaFormulas() {
+        assertEquals("'=1+1", ReporteService.campoCsv("=1+1"));
+        assertEquals("\"'=HYPERLINK(\"\"http://x\"\")\"", ReporteService.campoCsv("=HYPERLINK(\"http://x\")"));
+        assertEquals("'@SUM(A1)", ReporteService.campoCsv("@SUM(A1)"));
+        assertEquals("'+cmd|' /C calc'!A0", ReporteService.campoCsv("+cmd|' /C calc'!A0"));
+        assertEquals("'-2+3+cmd|' /C calc'!A0", ReporteService.campoCsv("-2+3+cmd|' /C calc'!A0"));
+        assertEquals("'\tdato", ReporteService.campoCsv("\tdato"));
+        assertEquals("\"'\rdato\"", ReporteService.campoCsv("\rdato"));
+    }
+
+    @Test
+    @DisplayName("Should keep phone numbers and negative numbers as they are")
+    void campoCsv_respetaTelefonosYNegativos() {
+        assertEquals("+54 9 11 1234-5678", ReporteService.campoCsv("+54 9 11 1234-5678"));
+        assertEquals("+54 (11) 4567-8901", ReporteService.campoCsv("+54 (11) 4567-8901"));
+        assertEquals("-12.5", ReporteService.campoCsv("-12.5"));
+        assertEquals("-3", ReporteService.campoCsv("-3"));
+    }
+
+    private static Turno turno(Long id, LocalDateTime fechaHora) {
+        Turno turno = new Turno();
+        turno.setId(id);
+        turno.setFechaHora(fechaHora);
+        turno.setCliente("Paciente " + id);
+        turno.setNombreMedico("Ana");
+        turno.setDescripcion("Control");
+        return turno;
+    }
+}
@@ -0,0 +1,72 @@
+package com.nico.turnos.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SesionChatServiceTest {
+
+    @Test
+    @DisplayName("Should keep the history sent to the model within the token budget however long the conversation gets")
+    void agregarPregunta_conversacionLarga_tamanioConstante() {
+        SesionChatService servicio = new SesionChatService(300, 60_000, 100);
+        String pregunta = "¿Qué médicos atienden los sábados a la mañana en la sede central?";
+        String respuesta = "Los sábados atienden la Dra. Pérez (clínica) y el Dr. Gómez (pediatría) de 8 a 12.";
+
+        SesionChatService.Conversacion conversacion = servicio.agregarPregunta(null, pregunta);
+        String sesionId = conversacion.sesionId();
+        int maximo = 0;
+        for (int i = 0; i < 200; i++) {
+            servicio.agregarRespuesta(sesionId, respuesta);
+            conversacion = servicio.agregarPregunta(sesionId, pregunta + " " + i);
+            int tokens = conversacion.historial().stream()
+                    .mapToInt(m -> SesionChatService.estimarTokens(m.get("content")))
+                    .sum();
+            assertTrue(tokens <= 300);
+            maximo = Math.max(maximo, conversacion.historial().size());
+        }
+
+        assertEquals(sesionId, conversacion.sesionId());
+        assertTrue(maximo < 20);
+        List<Map<String, String>> historial = conversacion.historial();
+        assertEquals("user", historial.get(0).get("role"));
+        assertEquals(pregunta + " 199", historial.get(historial.size() - 1).get("content"));
+    }
+
+    @Test
+    @DisplayName("Should open a new session for an unknown or expired id")
+    void agregarPregunta_sesionDesconocidaOVencida_abreOtra() {
+        SesionChatService servicio = new SesionChatService(300, 60_000, 100);
+        SesionChatService.Conversacion nueva = servicio.agregarPregunta("no-existe", "Hola");
+        assertNotEquals("no-existe", nueva.sesionId());
+        assertEquals(1, nueva.historial().size());
+
+        // Con vencimiento 0 toda sesión ya está vencida en el pedido siguiente
+        SesionChatService sinVigencia = new SesionChatService(300, 0, 100);
+        String primera = sinVigencia.agregarPregunta(null, "Hola").sesionId();
+        SesionChatService.Conversacion otra = sinVigencia.agregarPregunta(primera, "¿Sigo ahí?");
+        assertNotEquals(primera, otra.sesionId());
+        assertEquals(List.of(Map.of("role", "user", "content", "¿Sigo ahí?")), otra.historial());
+    }
+
+    @Test
+    @DisplayName("Should evict the least recently used session beyond the maximum and reject oversized messages")
+    void agregarPregunta_limites() {
+        SesionChatService servicio = new SesionChatService(300, 60_000, 2);
+        String a = servicio.agregarPregunta(null, "a").sesionId();
+        String b = servicio.agregarPregunta(null, "b").sesionId();
+        servicio.agregarPregunta(a, "a otra vez");
+        servicio.agregarPregunta(null, "c");
+
+        assertEquals(2, servicio.getCantidad());
+        assertEquals(a, servicio.agregarPregunta(a, "sigue").sesionId());
+        assertNotEquals(b, servicio.agregarPregunta(b, "sigue").sesionId());
+
+        assertThrows(RuntimeException.class,
+                () -> servicio.agregarPregunta(a, "x".repeat(SesionChatService.MAXIMO_CARACTERES_MENSAJE + 1)));
+    }
+}
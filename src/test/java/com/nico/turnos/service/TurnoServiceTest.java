@@ -0,0 +1,334 @@
+package com.nico.turnos.service;
+
+import com.nico.turnos.dto.HorarioOcupadoDTO;
+import com.nico.turnos.dto.TurnoPaginaResponse;
+import com.nico.turnos.dto.TurnoRequest;
+import com.nico.turnos.entity.Rol;
+import com.nico.turnos.entity.Turno;
+import com.nico.turnos.entity.Usuario;
+import com.nico.turnos.exception.TurnoConflictException;
+import com.nico.turnos.mapper.TurnoMapper;
+import com.nico.turnos.repository.TurnoRepository;
+import com.nico.turnos.repository.UsuarioRepository;
+import org.hibernate.exception.ConstraintViolationException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.SQLException;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+class TurnoServiceTest {
+
+    private static final long MEDICO_ID = 7L;
+    private static final LocalDateTime HORARIO = LocalDate.of(2030, 3, 4)
+            .with(TemporalAdjusters.nextOrSame(DayOfWeek.MONDAY)).atTime(10, 0);
+
+    // Hace de tabla turno con el índice único (medico_id, fecha_hora)
+    private final Map<String, Turno> tabla = new ConcurrentHashMap<>();
+    private final AtomicLong ids = new AtomicLong();
+
+    private TurnoRepository turnoRepository;
+
+    @BeforeEach
+    void setUp() {
+        turnoRepository = Mockito.mock(TurnoRepository.class);
+        when(turnoRepository.saveAndFlush(any(Turno.class))).thenAnswer(inv -> {
+            Turno turno = inv.getArgument(0);
+            if (tabla.putIfAbsent(turno.getMedicoId() + "|" + turno.getFechaHora(), turno) != null) {
+                throw violacion(TurnoService.RESTRICCION_HORARIO);
+            }
+            turno.setId(ids.incrementAndGet());
+            return turno;
+        });
+        when(turnoRepository.findHorariosOcupados(anyLong(), any())).thenAnswer(inv -> tabla.values().stream()
+                .filter(t -> t.getMedicoId().equals(inv.getArgument(0))
+                        && t.getFechaHora().toLocalDate().equals(inv.getArgument(1)))
+                .map(t -> new HorarioOcupadoDTO(t.getMedicoId(), t.getFechaHora(), t.getDuracionMinutos()))
+                .toList());
+    }
+
+    @Test
+    @DisplayName("Should let exactly one of hundreds of concurrent bookings across several nodes win the slot")
+    void crear_reservasConcurrentes_ganaUnaSola() throws Exception {
+        // Cada "nodo" tiene su propio índice en memoria; solo la base es compartida
+        List<DisponibilidadService> indices = new ArrayList<>();
+        List<TurnoService> nodos = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            DisponibilidadService disponibilidad = new DisponibilidadService(turnoRepository, mock(UsuarioRepository.class));
+            indices.add(disponibilidad);
+            nodos.add(nodo(disponibilidad));
+        }
+
+        int reservas = 400;
+        ExecutorService pool = Executors.newFixedThreadPool(32);
+        CountDownLatch largada = new CountDownLatch(1);
+        AtomicInteger exitos = new AtomicInteger();
+        AtomicInteger conflictos = new AtomicInteger();
+        List<Future<?>> tareas = new ArrayList<>();
+        try {
+            for (int i = 0; i < reservas; i++) {
+                TurnoService nodo = nodos.get(i % nodos.size());
+                tareas.add(pool.submit(() -> {
+                    largada.await();
+                    try {
+                        enTransaccion(() -> nodo.crear(pedido()));
+                        exitos.incrementAndGet();
+                    } catch (TurnoConflictException e) {
+                        conflictos.incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            largada.countDown();
+            for (Future<?> tarea : tareas) {
+                tarea.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertEquals(1, exitos.get());
+        assertEquals(reservas - 1, conflictos.get());
+        assertEquals(1, tabla.size());
+        // Los nodos que perdieron contra la base no devuelven el horario: sigue ocupado en todos los índices
+        // (los días descartados se recargan con el turno ganador)
+        for (DisponibilidadService indice : indices) {
+            assertFalse(indice.horariosDisponibles(MEDICO_ID, HORARIO.toLocalDate()).contains(LocalTime.of(10, 0)));
+        }
+        verify(turnoRepository, never()).existsByMedicoIdAndFechaHora(any(), any());
+    }
+
+    @Test
+    @DisplayName("Should rethrow integrity violations unrelated to the slot and free the reserved slot on rollback")
+    void crear_otraViolacion_noEsConflicto() {
+        DisponibilidadService disponibilidad = new DisponibilidadService(turnoRepository, mock(UsuarioRepository.class));
+        TurnoService servicio = nodo(disponibilidad);
+        doThrow(violacion("turno_paciente_username_not_null")).when(turnoRepository).saveAndFlush(any(Turno.class));
+
+        assertThrows(DataIntegrityViolationException.class, () -> enTransaccion(() -> servicio.crear(pedido())));
+
+        assertTrue(disponibilidad.horariosDisponibles(MEDICO_ID, HORARIO.toLocalDate()).contains(LocalTime.of(10, 0)));
+    }
+
+    @Test
+    @DisplayName("Should fail the booking and free the slot when the confirmation email cannot be queued")
+    void crear_falloAlEncolarEmail_propagaElError() {
+        DisponibilidadService disponibilidad = new DisponibilidadService(turnoRepository, mock(UsuarioRepository.class));
+        EmailService emailService = mock(EmailService.class);
+        doThrow(new DataAccessResourceFailureException("conexión perdida")).when(emailService).sendEmail(any(), any(), any());
+        TurnoService servicio = nodo(disponibilidad, emailService);
+
+        assertThrows(DataAccessResourceFailureException.class, () -> enTransaccion(() -> servicio.crear(pedido())));
+
+        assertTrue(disponibilidad.horariosDisponibles(MEDICO_ID, HORARIO.toLocalDate()).contains(LocalTime.of(10, 0)));
+    }
+
+    @Test
+    @DisplayName("Should translate an overlap rejected by the exclusion constraint into a conflict")
+    void crear_solapamientoEnBase_esConflicto() {
+        TurnoService servicio = nodo(new DisponibilidadService(turnoRepository, mock(UsuarioRepository.class)));
+        // Postgres informa el EXCLUDE con SQLState 23P01 y Hibernate no extrae el nombre
+        doThrow(new DataIntegrityViolationException("could not execute statement",
+                new ConstraintViolationException("conflicting key value violates exclusion constraint",
+                        new SQLException("conflicting key value", "23P01"), null)))
+                .when(turnoRepository).saveAndFlush(any(Turno.class));
+
+        assertThrows(TurnoConflictException.class, () -> enTransaccion(() -> servicio.crear(pedido())));
+    }
+
+    @Test
+    @DisplayName("Should reject durations that run past closing time")
+    void crear_duracionFueraDeHorario() {
+        TurnoService servicio = nodo(new DisponibilidadService(turnoRepository, mock(UsuarioRepository.class)));
+        TurnoRequest request = pedido();
+        request.setFechaHora(HORARIO.withHour(18).withMinute(30));
+        request.setDuracionMinutos(45);
+
+        RuntimeException error = assertThrows(RuntimeException.class, () -> enTransaccion(() -> servicio.crear(request)));
+
+        assertTrue(error.getMessage().contains("19:00"));
+        verify(turnoRepository, never()).saveAndFlush(any());
+    }
+
+    @Test
+    @DisplayName("Should return the first page with a token that resumes right after its last row")
+    void listar_primeraPagina_devuelveTokenYSigueDesdeElUltimo() {
+        TurnoService servicio = nodoComo(Rol.ADMIN);
+        List<Turno> pagina = new ArrayList<>();
+        for (int i = 0; i <= TurnoService.TAMANIO_PAGINA_DEFECTO; i++) {
+            pagina.add(turnoGuardado(100L - i, HORARIO.minusDays(i)));
+        }
+        when(turnoRepository.buscarPagina(any(), any(), any(), any(), any(), any(), any())).thenReturn(pagina);
+
+        TurnoPaginaResponse primera = servicio.listar();
+
+        assertEquals(TurnoService.TAMANIO_PAGINA_DEFECTO, primera.turnos().size());
+        assertNotNull(primera.siguienteToken());
+        // Se pide uno de más para saber si hay página siguiente
+        verify(turnoRepository).buscarPagina(any(), any(), eq(0L), isNull(), isNull(), isNull(),
+                eq(PageRequest.of(0, TurnoService.TAMANIO_PAGINA_DEFECTO + 1)));
+
+        Turno ultimo = pagina.get(TurnoService.TAMANIO_PAGINA_DEFECTO - 1);
+        servicio.listarPagina(null, null, null, null, primera.siguienteToken(), null);
+
+        verify(turnoRepository).buscarPagina(any(), eq(ultimo.getFechaHora()), eq(ultimo.getId()),
+                isNull(), isNull(), isNull(), any());
+    }
+
+    @Test
+    @DisplayName("Should keep returning every own turno to patients and doctors, without a page token")
+    void listar_pacienteYMedico_todosLosPropiosSinToken() {
+        List<Turno> propios = new ArrayList<>();
+        for (int i = 0; i <= TurnoService.TAMANIO_PAGINA_DEFECTO; i++) {
+            propios.add(turnoGuardado(100L - i, HORARIO.minusDays(i)));
+        }
+        when(turnoRepository.findByPacienteUsername("paciente@test.com")).thenReturn(propios);
+        when(turnoRepository.findByMedicoId(MEDICO_ID)).thenReturn(propios);
+
+        TurnoPaginaResponse delPaciente = nodoComo(Rol.PACIENTE).listar();
+        TurnoPaginaResponse delMedico = nodoComo(Rol.MEDICO).listar();
+
+        assertEquals(propios.size(), delPaciente.turnos().size());
+        assertNull(delPaciente.siguienteToken());
+        assertEquals(propios.size(), delMedico.turnos().size());
+        assertNull(delMedico.siguienteToken());
+        verify(turnoRepository, never()).buscarPagina(any(), any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("Should not return a token on the last page")
+    void listarPagina_ultimaPagina_sinToken() {
+        TurnoService servicio = nodoComo(Rol.ADMIN);
+        when(turnoRepository.buscarPagina(any(), any(), any(), any(), any(), any(), any()))
+                .thenReturn(List.of(turnoGuardado(1L, HORARIO)));
+
+        TurnoPaginaResponse pagina = servicio.listarPagina(null, null, null, null, null, 10);
+
+        assertEquals(1, pagina.turnos().size());
+        assertNull(pagina.siguienteToken());
+    }
+
+    @Test
+    @DisplayName("Should reject a page token that cannot be decoded")
+    void listarPagina_tokenInvalido() {
+        TurnoService servicio = nodoComo(Rol.ADMIN);
+
+        RuntimeException error = assertThrows(RuntimeException.class,
+                () -> servicio.listarPagina(null, null, null, null, "no-es-un-token", null));
+
+        assertEquals("Token de página inválido.", error.getMessage());
+        verify(turnoRepository, never()).buscarPagina(any(), any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("Should restrict doctors and patients to their own appointments whatever filters they send")
+    void listarPagina_medicoYPaciente_soloLosPropios() {
+        when(turnoRepository.buscarPagina(any(), any(), any(), any(), any(), any(), any())).thenReturn(List.of());
+
+        nodoComo(Rol.MEDICO).listarPagina(null, null, 99L, null, null, null);
+        nodoComo(Rol.PACIENTE).listarPagina(null, null, 99L, null, null, null);
+
+        verify(turnoRepository).buscarPagina(any(), any(), any(), eq(MEDICO_ID), isNull(), isNull(), any());
+        verify(turnoRepository).buscarPagina(any(), any(), any(), eq(99L), isNull(), eq("paciente@test.com"), any());
+    }
+
+    private TurnoService nodoComo(Rol rol) {
+        UsuarioActual usuarioActual = mock(UsuarioActual.class);
+        when(usuarioActual.getRol()).thenReturn(rol);
+        when(usuarioActual.getId()).thenReturn(MEDICO_ID);
+        when(usuarioActual.getUsername()).thenReturn("paciente@test.com");
+        return nodo(new DisponibilidadService(turnoRepository, mock(UsuarioRepository.class)),
+                mock(EmailService.class), usuarioActual);
+    }
+
+    private static Turno turnoGuardado(Long id, LocalDateTime fechaHora) {
+        Turno turno = new Turno();
+        turno.setId(id);
+        turno.setMedicoId(MEDICO_ID);
+        turno.setFechaHora(fechaHora);
+        return turno;
+    }
+
+    private TurnoService nodo(DisponibilidadService disponibilidad) {
+        return nodo(disponibilidad, mock(EmailService.class));
+    }
+
+    private TurnoService nodo(DisponibilidadService disponibilidad, EmailService emailService) {
+        UsuarioActual usuarioActual = mock(UsuarioActual.class);
+        Usuario paciente = new Usuario();
+        paciente.setUsername("paciente@test.com");
+        paciente.setNombreCompleto("Paciente");
+        when(usuarioActual.getRol()).thenReturn(Rol.PACIENTE);
+        when(usuarioActual.getUsuario()).thenReturn(paciente);
+        return nodo(disponibilidad, emailService, usuarioActual);
+    }
+
+    private TurnoService nodo(DisponibilidadService disponibilidad, EmailService emailService,
+                              UsuarioActual usuarioActual) {
+        PerfilMedicoService perfilMedicoService = mock(PerfilMedicoService.class);
+        when(perfilMedicoService.obtener(MEDICO_ID))
+                .thenReturn(new PerfilMedicoService.PerfilMedico(MEDICO_ID, "Dra. Ana", "Cardiología"));
+
+        return new TurnoService(turnoRepository, new TurnoMapper(), usuarioActual, perfilMedicoService,
+                emailService, disponibilidad, mock(EstadisticaService.class), mock(EstadisticaDiariaService.class));
+    }
+
+    private static TurnoRequest pedido() {
+        TurnoRequest request = new TurnoRequest();
+        request.setMedicoId(MEDICO_ID);
+        request.setFechaHora(HORARIO);
+        request.setDescripcion("Control");
+        return request;
+    }
+
+    // Imita a @Transactional: commit si no hubo excepción, rollback si la hubo, y avisa a las sincronizaciones
+    private static void enTransaccion(Runnable accion) {
+        TransactionSynchronizationManager.initSynchronization();
+        int estado = TransactionSynchronization.STATUS_ROLLED_BACK;
+        try {
+            accion.run();
+            estado = TransactionSynchronization.STATUS_COMMITTED;
+        } finally {
+            List<TransactionSynchronization> sincronizaciones = TransactionSynchronizationManager.getSynchronizations();
+            TransactionSynchronizationManager.clearSynchronization();
+            for (TransactionSynchronization sincronizacion : sincronizaciones) {
+                sincronizacion.afterCompletion(estado);
+            }
+        }
+    }
+
+    private static DataIntegrityViolationException violacion(String restriccion) {
+        return new DataIntegrityViolationException("could not execute statement",
+                new ConstraintViolationException("violates constraint \"" + restriccion + "\"",
+                        new SQLException("violates constraint", "23505"), restriccion));
+    }
+}